@@ -0,0 +1,167 @@
+package frc.robot.lib.util;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Vector2d, Pose and Util geometry, in the allocating and scratch (fill in a
+ * result) variants.  Inputs are field-sized positions and headings, cycled
+ * through a table so the JIT can't constant-fold them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeometryBenchmark
+{
+	static final int kNumInputs = 1024;		// power of 2
+
+	Vector2d[] a = new Vector2d[kNumInputs];
+	Vector2d[] b = new Vector2d[kNumInputs];
+	Vector2d[] p = new Vector2d[kNumInputs];
+	Pose[] poseA = new Pose[kNumInputs];
+	Pose[] poseB = new Pose[kNumInputs];
+	double[] angle = new double[kNumInputs];
+	int i = 0;
+
+	// scratch results
+	Vector2d v = new Vector2d();
+	Vector2d soln0 = new Vector2d();
+	Vector2d soln1 = new Vector2d();
+	Pose pose = new Pose();
+	Util.ClosestPointOnSegment closest = new Util.ClosestPointOnSegment();
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(2018);
+		for (int k = 0; k < kNumInputs; k++)
+		{
+			a[k] = new Vector2d(random.nextDouble()*324, random.nextDouble()*324);		// anywhere on the field
+			b[k] = a[k].add(Vector2d.magnitudeAngle(12 + random.nextDouble()*120, random.nextDouble()*2*Math.PI));
+			p[k] = a[k].interpolate(b[k], random.nextDouble()).add(Vector2d.magnitudeAngle(random.nextDouble()*12, random.nextDouble()*2*Math.PI));
+			poseA[k] = new Pose(random.nextGaussian()*12, random.nextGaussian()*12, random.nextGaussian());	// e.g. camera on the robot
+			poseB[k] = new Pose(a[k], random.nextDouble()*2*Math.PI);
+			angle[k] = random.nextDouble()*2*Math.PI;
+		}
+	}
+
+	private int next()
+	{
+		i = (i + 1) & (kNumInputs - 1);
+		return i;
+	}
+
+	@Benchmark
+	public Vector2d vectorAdd()
+	{
+		int k = next();
+		return a[k].add(b[k]);
+	}
+
+	@Benchmark
+	public Vector2d vectorAddScratch()
+	{
+		int k = next();
+		return a[k].add(b[k], v);
+	}
+
+	@Benchmark
+	public Vector2d vectorSub()
+	{
+		int k = next();
+		return a[k].sub(b[k]);
+	}
+
+	@Benchmark
+	public Vector2d vectorSubScratch()
+	{
+		int k = next();
+		return a[k].sub(b[k], v);
+	}
+
+	@Benchmark
+	public Vector2d vectorRotate()
+	{
+		int k = next();
+		return a[k].rotate(angle[k]);
+	}
+
+	@Benchmark
+	public Vector2d vectorRotateScratch()
+	{
+		int k = next();
+		return a[k].rotate(angle[k], v);
+	}
+
+	@Benchmark
+	public double vectorAngle()
+	{
+		int k = next();
+		return a[k].angle(b[k]);
+	}
+
+	@Benchmark
+	public Pose poseTransformBy()
+	{
+		int k = next();
+		return poseA[k].transformBy(poseB[k]);
+	}
+
+	@Benchmark
+	public Pose poseTransformByScratch()
+	{
+		int k = next();
+		return poseA[k].transformBy(poseB[k], pose);
+	}
+
+	@Benchmark
+	public Pose poseInterpolate()
+	{
+		int k = next();
+		return poseA[k].interpolate(poseB[k], 0.375);
+	}
+
+	@Benchmark
+	public Pose poseInterpolateScratch()
+	{
+		int k = next();
+		return poseA[k].interpolate(poseB[k], 0.375, pose);
+	}
+
+	@Benchmark
+	public Util.ClosestPointOnSegment closestPointOnSegment()
+	{
+		int k = next();
+		return Util.getClosestPointOnSegment(a[k], b[k], p[k]);
+	}
+
+	@Benchmark
+	public Util.ClosestPointOnSegment closestPointOnSegmentScratch()
+	{
+		int k = next();
+		return Util.getClosestPointOnSegment(a[k], b[k], p[k], closest);
+	}
+
+	@Benchmark
+	public Optional<Vector2d[]> lineCircleIntersection()
+	{
+		int k = next();
+		return Util.getLineCircleIntersection(a[k], b[k], p[k], 24.0);		// a lookahead circle around a robot near the segment
+	}
+
+	@Benchmark
+	public int lineCircleIntersectionScratch()
+	{
+		int k = next();
+		return Util.getLineCircleIntersection(a[k], b[k], p[k], 24.0, soln0, soln1);
+	}
+}
@@ -0,0 +1,100 @@
+package frc.robot.lib.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.lib.util.Kinematics.LinearAngularSpeed;
+import frc.robot.lib.util.Kinematics.WheelSpeed;
+
+/**
+ * Odometry and drive kinematics, with the wheel distances and gyro changes of
+ * one 10 ms loop at driving speeds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KinematicsBenchmark
+{
+	static final int kNumInputs = 1024;		// power of 2
+
+	double[] lDistance = new double[kNumInputs];
+	double[] rDistance = new double[kNumInputs];
+	double[] dHeading = new double[kNumInputs];
+	double[] speed = new double[kNumInputs];
+	double[] curvature = new double[kNumInputs];
+	LinearAngularSpeed[] arc = new LinearAngularSpeed[kNumInputs];
+	Pose[] initialPose = new Pose[kNumInputs];
+	int i = 0;
+
+	// scratch results
+	Pose pose = new Pose();
+	WheelSpeed wheelSpeed = new WheelSpeed();
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(2018);
+		for (int k = 0; k < kNumInputs; k++)
+		{
+			double v = random.nextDouble()*72;								// up to kPathFollowingMaxVel
+			double w = random.nextGaussian()*2;								// rad/sec
+			lDistance[k] = (v - w*12)*0.01;
+			rDistance[k] = (v + w*12)*0.01;
+			dHeading[k] = w*0.01;
+			speed[k] = v;
+			curvature[k] = random.nextGaussian()/48;
+			arc[k] = new LinearAngularSpeed(v*0.01, w*0.01);
+			initialPose[k] = new Pose(random.nextDouble()*324, random.nextDouble()*324, random.nextDouble()*2*Math.PI);
+		}
+	}
+
+	private int next()
+	{
+		i = (i + 1) & (kNumInputs - 1);
+		return i;
+	}
+
+	@Benchmark
+	public Pose travelArc()
+	{
+		int k = next();
+		return Kinematics.travelArc(initialPose[k], arc[k]);
+	}
+
+	@Benchmark
+	public Pose travelArcScratch()
+	{
+		int k = next();
+		return Kinematics.travelArc(initialPose[k], arc[k].linearSpeed, arc[k].angularSpeed, pose);
+	}
+
+	@Benchmark
+	public Pose integrateForwardKinematics()
+	{
+		int k = next();
+		Pose p = initialPose[k];
+		return Kinematics.integrateForwardKinematics(p, lDistance[k], rDistance[k], p.getHeading() + dHeading[k]);
+	}
+
+	@Benchmark
+	public WheelSpeed inverseKinematics()
+	{
+		int k = next();
+		return Kinematics.inverseKinematicsFromSpeedCurvature(speed[k], curvature[k]);
+	}
+
+	@Benchmark
+	public WheelSpeed inverseKinematicsScratch()
+	{
+		int k = next();
+		return Kinematics.inverseKinematicsFromSpeedCurvature(speed[k], curvature[k], wheelSpeed);
+	}
+}
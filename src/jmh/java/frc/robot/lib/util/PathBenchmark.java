@@ -0,0 +1,149 @@
+package frc.robot.lib.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.Constants;
+import frc.robot.lib.util.Kinematics.WheelSpeed;
+import frc.robot.lib.util.Path.Waypoint;
+import frc.robot.lib.util.PathFollower.PathVisionState;
+import frc.robot.loops.DriveLoop;
+
+/**
+ * One loop of path following, on paths with a few to many waypoints.  The
+ * robot poses are the path itself at kPathFollowingMaxVel, wandering a few
+ * inches off it, one loop apart; each benchmark starts the path again when
+ * the robot reaches the end.
+ *
+ * PathFollower uses the Drive, RobotState and VisionStatus singletons (as
+ * LogReplay does), but pathVisionDrive() only reads the poses passed to it.
+ * LED control is turned off, so the followers never construct the LED relay
+ * (which needs the robot's HAL).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathBenchmark
+{
+	@Param({"4", "16", "64"})
+	public int numWaypoints;
+
+	Path path;
+	CompiledPath compiledPath;
+	Trajectory trajectory;
+	PathCursor cursor;
+	PathFollower follower;
+	PathFollower trajectoryFollower;
+
+	Pose[] poses;				// robot pose each loop
+	int i = 0;
+	int j = 0;
+	Vector2d lookaheadPoint = new Vector2d();
+	Trajectory.Sample sample = new Trajectory.Sample();
+	Pose previousPose = new Pose();
+
+	@Setup
+	public void setup()
+	{
+		// a random walk around the field, turning up to 90 degrees at each waypoint
+		Random random = new Random(2018);
+		PathSegment.Options options = new PathSegment.Options(DriveLoop.kPathFollowingMaxVel, DriveLoop.kPathFollowingMaxAccel, DriveLoop.kPathFollowingLookahead, false);
+		path = new Path();
+		double x = 0, y = 0, heading = 0;
+		for (int k = 0; k < numWaypoints; k++)
+		{
+			path.add(new Waypoint(new Vector2d(x, y), options));
+			heading += (random.nextDouble() - 0.5) * Math.PI/2;
+			double length = 36 + random.nextDouble()*60;
+			x += length * Math.cos(heading);
+			y += length * Math.sin(heading);
+		}
+		compiledPath = path.compile();
+		trajectory = TrajectoryGenerator.generate(compiledPath);
+		cursor = new PathCursor(compiledPath);
+		follower = new PathFollower(compiledPath, PathVisionState.PATH_FOLLOWING);
+		trajectoryFollower = new PathFollower(compiledPath, trajectory, PathVisionState.PATH_FOLLOWING);
+		follower.setLedControl(false);
+		trajectoryFollower.setLedControl(false);
+
+		double step = DriveLoop.kPathFollowingMaxVel * Constants.kLoopDt;
+		int numPoses = (int)(compiledPath.getTotalLength() / step);
+		poses = new Pose[numPoses];
+		Vector2d point = new Vector2d();
+		int k = 0;
+		for (int n = 0; n < numPoses; n++)
+		{
+			double s = n * step;
+			while (k < compiledPath.getNumSegments()-1 && s >= compiledPath.getArcLength(k+1))
+				k++;
+			compiledPath.pointAt(k, s - compiledPath.getArcLength(k), point);
+			double offPath = 3 * Math.sin(s / 40);
+			double segmentHeading = Math.atan2(compiledPath.endY[k] - compiledPath.startY[k], compiledPath.endX[k] - compiledPath.startX[k]);
+			poses[n] = new Pose(point.getX() - offPath*Math.sin(segmentHeading), point.getY() + offPath*Math.cos(segmentHeading), segmentHeading + 0.1*Math.cos(s / 40));
+		}
+		follower.start();
+		trajectoryFollower.start();
+	}
+
+	@Benchmark
+	public CompiledPath compile()
+	{
+		return new Path(path).compile();		// a copy isn't compiled yet (done at robotInit: not per loop)
+	}
+
+	@Benchmark
+	public double cursorUpdate()
+	{
+		if (++i >= poses.length)
+		{
+			i = 0;
+			cursor.reset();
+		}
+		Vector2d position = poses[i].getPosition();
+		double distanceFromPath = cursor.update(position);
+		cursor.getLookaheadPoint(position, distanceFromPath, lookaheadPoint);
+		return cursor.getRemainingLength() + lookaheadPoint.getX();
+	}
+
+	@Benchmark
+	public WheelSpeed pathVisionDrive()
+	{
+		return drive(follower);
+	}
+
+	@Benchmark
+	public WheelSpeed pathVisionDriveTrajectory()
+	{
+		return drive(trajectoryFollower);
+	}
+
+	@Benchmark
+	public Trajectory.Sample trajectorySample()
+	{
+		if (++i >= poses.length)
+			i = 0;
+		return trajectory.sample(i * Constants.kLoopDt, sample);
+	}
+
+	private WheelSpeed drive(PathFollower _follower)
+	{
+		if (++j >= poses.length)
+		{
+			j = 0;
+			_follower.start();
+		}
+		Pose pose = poses[j];
+		previousPose.set(poses[Math.max(j-5, 0)]);		// pose when the (absent) image was taken
+		double time = j * Constants.kLoopDt;
+		return _follower.pathVisionDrive(time, pose, previousPose, time - 0.05, 0, 0);
+	}
+}
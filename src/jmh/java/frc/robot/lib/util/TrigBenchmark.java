@@ -0,0 +1,90 @@
+package frc.robot.lib.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * sin, cos and atan2 from each Trig, on headings and field positions, and
+ * travelArc() with each set as the default.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrigBenchmark
+{
+	static final int kNumInputs = 1024;		// power of 2
+
+	@Param({"math", "table"})
+	public String trigName;
+
+	Trig trig;
+	double[] angle = new double[kNumInputs];
+	double[] x = new double[kNumInputs];
+	double[] y = new double[kNumInputs];
+	Pose[] initialPose = new Pose[kNumInputs];
+	int i = 0;
+	Pose pose = new Pose();
+
+	@Setup
+	public void setup()
+	{
+		trig = trigName.equals("table") ? TableTrig.getInstance() : MathTrig.getInstance();
+		Trig.setDefault(trig);
+		Random random = new Random(2018);
+		for (int k = 0; k < kNumInputs; k++)
+		{
+			angle[k] = (random.nextDouble() - 0.5) * 4*Math.PI;		// headings wander past +/- pi
+			x[k] = random.nextGaussian() * 100;
+			y[k] = random.nextGaussian() * 100;
+			initialPose[k] = new Pose(x[k], y[k], angle[k]);
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		Trig.setDefault(MathTrig.getInstance());
+	}
+
+	private int next()
+	{
+		i = (i + 1) & (kNumInputs - 1);
+		return i;
+	}
+
+	@Benchmark
+	public double sin()
+	{
+		return trig.sin(angle[next()]);
+	}
+
+	@Benchmark
+	public double cos()
+	{
+		return trig.cos(angle[next()]);
+	}
+
+	@Benchmark
+	public double atan2()
+	{
+		int k = next();
+		return trig.atan2(y[k], x[k]);
+	}
+
+	@Benchmark
+	public Pose travelArc()
+	{
+		int k = next();
+		return Kinematics.travelArc(initialPose[k], 0.72, 0.3*Math.sin(k), pose);		// one loop at full speed, turning up to 0.3 rad
+	}
+}
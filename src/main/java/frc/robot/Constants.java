@@ -25,6 +25,8 @@ public class Constants extends ConstantsBase
      }
      
     public static double kLoopDt = 0.01;
+    public static boolean kUseTableTrig = false;		// table sin/cos/atan2 in Kinematics, Pose and Vector2d (see TableTrig for the error bounds)
+    public static String kTrajectoryDirectory = "/home/lvuser/trajectories";	// saved by TrajectoryGenerator.getCached()
     public static double kDriveWatchdogTimerThreshold = 0.500;    
     public static int kTalonTimeoutMs = 5;	// ms
     public static int kTalonPidIdx = 0;		// 0 for non-cascaded PIDs, 1 for cascaded PIDs
@@ -58,7 +60,8 @@ public class Constants extends ConstantsBase
     public static double kCameraFOVDegrees = 42.5;			// Camera Field of View (degrees)
     public static double kCameraHalfFOVRadians = kCameraFOVDegrees/2.0 * Math.PI/180.0;			// Half of Camera Field of View (radians)
     public static double kTangentCameraHalfFOV = Math.tan(kCameraHalfFOVRadians);
-    public static double kCameraLatencySeconds = 0.240;			// Camera image capturing latency
+    public static double kCameraLatencySeconds = 0.240;			// Camera image capturing latency (used until the camera reports its own)
+    public static double kCameraImageWidthPixels = 320;		// Limelight image width
     public static double kTargetLocationFilterConstant = (30.0 * kLoopDt);		// 30 time constants in 1 second
     
 
@@ -8,16 +8,24 @@
 package frc.robot;
 
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.IterativeRobot;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.command_status.DriveCommand;
+import frc.robot.lib.logging.FlightRecorder;
+import frc.robot.lib.util.DataLogController;
+import frc.robot.lib.util.TableTrig;
+import frc.robot.lib.util.Trig;
 import frc.robot.lib.joystick.ArcadeDriveJoystick;
 import frc.robot.lib.joystick.JoystickControlsBase;
 import frc.robot.loops.ColorSensorLoop;
 import frc.robot.loops.DriveLoop;
 import frc.robot.loops.LoopController;
+import frc.robot.loops.OdometryEngine;
+import frc.robot.loops.VisionLoop;
 import frc.robot.subsystems.Drive;
 import frc.robot.lib.sensors.Limelight;
 
@@ -41,7 +49,11 @@ public class Robot extends IterativeRobot {
   BunnyShooter bunnyShooter;
   Drive drive = Drive.getInstance();
   LoopController loopController;
+  OdometryEngine odometry;
   Limelight limelight;
+  DataLogController robotLogger;
+  NetworkTableEntry flightRecorderButton;
+  boolean brownedOut = false;
 
   /**
    * This function is run when the robot is first started up and should be
@@ -49,6 +61,9 @@ public class Robot extends IterativeRobot {
    */
   @Override
   public void robotInit() {
+    // before anything computes a pose: the loops read it on every call
+    if (Constants.kUseTableTrig)
+      Trig.setDefault(TableTrig.getInstance());
     //setting up smartdashboard
     m_chooser.addDefault("Default Auto", kDefaultAuto);
     m_chooser.addObject("My Auto", kCustomAuto);
@@ -64,7 +79,26 @@ public class Robot extends IterativeRobot {
     loopController = new LoopController();
     loopController.register(drive.getVelocityPIDLoop());
     loopController.register(DriveLoop.getInstance());
-    loopController.register(ColorSensorLoop.getInstance());
+    // drive output is critical (default), the color sensor is not: if its I2C read stalls, move it off the loop thread
+    loopController.register(ColorSensorLoop.getInstance(), new LoopController.Options(ColorSensorLoop.kPeriod, ColorSensorLoop.kBudget,
+    		LoopController.Options.Criticality.NON_CRITICAL, LoopController.Options.Degradation.BACKGROUND));
+    // vision targets go to RobotState, timestamped with the Limelight's reported latency
+    loopController.register(VisionLoop.getInstance(), new LoopController.Options(VisionLoop.kPeriod, VisionLoop.kBudget,
+    		LoopController.Options.Criticality.NON_CRITICAL, LoopController.Options.Degradation.BACKGROUND));
+    // odometry runs on its own thread at the encoder status frame rate, not in the loop
+    odometry = new OdometryEngine(DriveLoop.getInstance().getOdometrySensors());
+    odometry.start();
+    //publishing loop timing statistics
+    robotLogger = DataLogController.getRobotLogController();
+    robotLogger.register(loopController.getLogger());
+    robotLogger.register(odometry.getLogger());
+    robotLogger.register(robotLogger.getStatsLogger());
+    robotLogger.setOutputMode(false, true);
+    //black box: file logging is off in matches, so keep the last 10 s in memory and write it out if something goes wrong
+    robotLogger.enableFlightRecorder(10.0, 0.02);		// robotPeriodic() rate
+    DataLogController.getAutoLogController().enableFlightRecorder(10.0, Constants.kLoopDt);
+    flightRecorderButton = SmartDashboard.getEntry("FlightRecorder/Dump");
+    flightRecorderButton.setBoolean(false);
     //setting camera
     NetworkTable table = NetworkTableInstance.getDefault().getTable("limelight");
     table.getEntry("ledMode").setNumber(1); //turning the LED off
@@ -88,6 +122,18 @@ public class Robot extends IterativeRobot {
    */
   @Override
   public void robotPeriodic() {
+    robotLogger.log();
+
+    // flight recorder triggers (crashes and loop overruns trigger it themselves)
+    boolean brownout = RobotController.isBrownedOut();
+    if (brownout && !brownedOut)
+      FlightRecorder.triggerAll("brownout");
+    brownedOut = brownout;
+    if (flightRecorderButton.getBoolean(false))
+    {
+      flightRecorderButton.setBoolean(false);
+      FlightRecorder.triggerAll("manual");
+    }
   }
 
   /**
@@ -63,6 +63,11 @@ public class SmartDashboardInteractions
    
     
     static SendableChooser<AutoModeOption> autoModeChooser;
+
+    // auto modes are constructed (and their paths built) once, in initWithDefaults(), not at autonomousInit
+    AutoModeBase standStillMode;
+    AutoModeBase centerStartMode;
+    AutoModeBase driveStraightIntakeMode;
     
     enum AutoModeOption
     {
@@ -118,6 +123,10 @@ public class SmartDashboardInteractions
         autoModeChooser.addObject(AutoModeOption.CENTER_START_MODE.name, AutoModeOption.CENTER_START_MODE);
         autoModeChooser.addObject(AutoModeOption.DRIVE_STRAIGHT_INTAKE_MODE.name, AutoModeOption.DRIVE_STRAIGHT_INTAKE_MODE);
         SmartDashboard.putData("Auto Mode", autoModeChooser);
+
+        standStillMode = new StandStillMode();
+        centerStartMode = new CenterStartMode();
+        driveStraightIntakeMode = new DriveStraightIntakeMode();
     	
     	joystickModeChooser = new SendableChooser<JoystickOption>();
     	joystickModeChooser.addObject(JoystickOption.ARCADE_DRIVE.name,        JoystickOption.ARCADE_DRIVE);
@@ -144,15 +153,15 @@ public class SmartDashboardInteractions
     	switch(autoMode)
     	{
     	case STAND_STILL:
-            return new StandStillMode();
+            return standStillMode;
         case CENTER_START_MODE:
-            return new CenterStartMode();
+            return centerStartMode;
         case DRIVE_STRAIGHT_INTAKE_MODE:
-            return new DriveStraightIntakeMode();
+            return driveStraightIntakeMode;
 			
     	default:
             System.out.println("ERROR: unexpected auto mode: " + autoMode);
-			return new StandStillMode();
+			return standStillMode;
     	}
     }
 
@@ -2,12 +2,17 @@ package frc.robot.auto;
 
 
 
+import java.io.File;
+
 import frc.robot.Constants;
 import frc.robot.auto.actions.Action;
+import frc.robot.command_status.DriveState;
+import frc.robot.lib.util.Clock;
+import frc.robot.lib.util.CompiledPath;
 import frc.robot.lib.util.DataLogController;
 import frc.robot.lib.util.Pose;
-
-import edu.wpi.first.wpilibj.Timer;
+import frc.robot.lib.util.Trajectory;
+import frc.robot.lib.util.TrajectoryGenerator;
 
 /**
  * An abstract class that is the basis of the robot's autonomous routines. This
@@ -18,6 +23,7 @@ public abstract class AutoModeBase
     protected double updatePeriod = Constants.kLoopDt;
     protected boolean active = false;
     protected Pose initialPose = new Pose();
+    protected Clock clock = Clock.getDefault();
     
     static DataLogController autoLogger = DataLogController.getAutoLogController();
     
@@ -35,6 +41,10 @@ public abstract class AutoModeBase
             System.out.println("Auto mode done, ended early");
             return;
         }
+        finally
+        {
+        	autoLogger.close();		// finish the log file (the next auto mode starts a new one)
+        }
         done();
         System.out.println("Auto mode done");
     }
@@ -67,37 +77,45 @@ public abstract class AutoModeBase
     {
         autoLogger.deregister();						// remove previous action loggers from registry
         autoLogger.register(action.getLogger());
+        autoLogger.register(DriveState.getInstance().getLogger());	// sensor inputs, so the log can be replayed (see LogReplay)
         autoLogger.setOutputMode(true, true);
+        autoLogger.setFileFormat(DataLogController.FileFormat.BINARY);	// keeps the channel folders, so LogReplay can tell DriveState/lSpeed from PathVision/lSpeed
         
         action.start();
         while (isActiveWithThrow() && !action.isFinished()) 
         {
-        	double currTime = Timer.getFPGATimestamp();
-        	double nextTime = Timer.getFPGATimestamp() + updatePeriod;
+        	double nextTime = clock.getTime() + updatePeriod;
         	
             action.update();
             autoLogger.log();
 
-        	currTime = Timer.getFPGATimestamp();
-            long waitTime = (long) ((nextTime-currTime) * 1000.0);	// attempt to run thread every updatePeriod seconds
-            waitTime = Math.max(waitTime, 0);						// avoid negative waits
-            try
-            {
-                Thread.sleep(waitTime);
-            } 
-            catch (InterruptedException e) 
-            {
-                e.printStackTrace();
-            }
+        	double currTime = clock.getTime();
+            double waitTime = nextTime - currTime;		// attempt to run thread every updatePeriod seconds
+            waitTime = Math.max(waitTime, 0);			// avoid negative waits
+            clock.sleep(waitTime);
         }
         action.done();
         autoLogger.log();	// capture one last log
     }
 
+    // use a different clock (e.g. a VirtualClock to run faster than real time)
+    public void setClock(Clock _clock)
+    {
+    	clock = _clock;
+    }
+
     public Pose getInitialPose()
     {
     	return initialPose;	// default implementation
     }
+
+    // the trajectory for _path, loaded from kTrajectoryDirectory if it was saved there
+    // for the same path, otherwise generated (and saved).  call from the constructor
+    protected Trajectory getTrajectory(CompiledPath _path, String _name)
+    {
+    	File file = new File(Constants.kTrajectoryDirectory, getClass().getSimpleName() + "_" + _name + Trajectory.kFileExtension);
+    	return TrajectoryGenerator.getCached(_path, file);
+    }
     
     
 }
@@ -3,6 +3,7 @@ package frc.robot.auto.actions;
 import frc.robot.command_status.DriveState;
 import frc.robot.lib.sensors.GyroBase;
 import frc.robot.lib.sensors.NavX;
+import frc.robot.lib.util.DataLogController;
 import frc.robot.lib.util.DataLogger;
 
 /**
@@ -25,6 +26,7 @@ public class CollisionDetectionAction implements Action
     public static double kCollisionAccel 		= kCollisionVel / kCollisionAccelTime;
     public static double kCollisionJerkThreshold 	= 0.9;		// maximum JerkY was 0.9 for a 24 inch/sec collision into wall (<0.1 when driving normal)
     public static double kCollisionCurrentThreshold = 20;		// threshold to detect stall current
+    public static double kCollisionLogBurstTime = 1.0;		// sec of full-rate logging after a collision
     
 
     public CollisionDetectionAction() 
@@ -69,6 +71,9 @@ public class CollisionDetectionAction implements Action
         if ( ( lMotorCurrent > kCollisionCurrentThreshold ) || ( rMotorCurrent > kCollisionCurrentThreshold) )
         	collisionDetected = true;
         
+        if (collisionDetected)
+        	DataLogController.getAutoLogController().burst(kCollisionLogBurstTime);
+
     	return collisionDetected;
     }
 
@@ -89,16 +94,24 @@ public class CollisionDetectionAction implements Action
     
 	private final DataLogger logger = new DataLogger()
     {
+		final StringChannel autoActionCh    = addString("AutoAction/AutoAction", Policy.kChangeOnly);
+		final DoubleChannel jerkXCh         = addDouble("CollisionDetectionAction/JerkX");
+		final DoubleChannel jerkYCh         = addDouble("CollisionDetectionAction/JerkY");
+		final DoubleChannel jerkThreshCh    = addDouble("CollisionDetectionAction/JerkThresh", Policy.kChangeOnly);
+		final DoubleChannel lMotorCurrentCh = addDouble("CollisionDetectionAction/lMotorCurrent");
+		final DoubleChannel rMotorCurrentCh = addDouble("CollisionDetectionAction/rMotorCurrent");
+		final DoubleChannel currentThreshCh = addDouble("CollisionDetectionAction/CurrentThresh", Policy.kChangeOnly);
+
         @Override
         public void log()
         {
-    		put("AutoAction/AutoAction", "CollisionDetectionAction" );
-   			put("CollisionDetectionAction/JerkX", jerkX );
-   			put("CollisionDetectionAction/JerkY", jerkY );
-   			put("CollisionDetectionAction/JerkThresh", kCollisionJerkThreshold );
-   			put("CollisionDetectionAction/lMotorCurrent", jerkX );
-   			put("CollisionDetectionAction/rMotorCurrent", jerkY );
-   			put("CollisionDetectionAction/CurrentThresh", kCollisionCurrentThreshold );
+        	autoActionCh.set( "CollisionDetectionAction" );
+        	jerkXCh.set( jerkX );
+        	jerkYCh.set( jerkY );
+        	jerkThreshCh.set( kCollisionJerkThreshold );
+        	lMotorCurrentCh.set( jerkX );
+        	rMotorCurrentCh.set( jerkY );
+        	currentThreshCh.set( kCollisionCurrentThreshold );
         }
     };
      
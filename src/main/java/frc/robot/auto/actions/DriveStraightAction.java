@@ -1,5 +1,7 @@
 package frc.robot.auto.actions;
 
+import com.ctre.phoenix.motorcontrol.ControlMode;
+
 import frc.robot.lib.util.DataLogger;
 import frc.robot.command_status.DriveState;
 import frc.robot.subsystems.*;
@@ -71,19 +73,30 @@ public class DriveStraightAction implements Action {
     
 	private final DataLogger logger = new DataLogger()
     {
+		final StringChannel autoActionCh             = addString("AutoAction", Policy.kChangeOnly);
+		final EnumChannel<ControlMode> cmdTalonModeCh = addEnum("DriveCmd/talonMode", ControlMode.class, Policy.kChangeOnly);
+		final DoubleChannel cmdLeftCh                = addDouble("DriveCmd/left");
+		final DoubleChannel cmdRightCh               = addDouble("DriveCmd/right");
+		final EnumChannel<ControlMode> talonModeCh   = addEnum("DriveState/TalonControlMode", ControlMode.class, Policy.kChangeOnly);
+		final DoubleChannel lSpeedCh                 = addDouble("DriveState/lSpeed");
+		final DoubleChannel rSpeedCh                 = addDouble("DriveState/rSpeed");
+		final DoubleChannel lDistanceCh              = addDouble("DriveState/lDistance");
+		final DoubleChannel rDistanceCh              = addDouble("DriveState/rDistance");
+		final DoubleChannel headingCh                = addDouble("DriveState/Heading");
+
         @Override
         public void log()
         {
-    		put("AutoAction", "DriveStraight" );
-			put("DriveCmd/talonMode", driveState.getTalonControlMode().toString() );
-			put("DriveCmd/left", mDrive.getCommand().getLeftMotor() );
-			put("DriveCmd/right", mDrive.getCommand().getRightMotor() );
-    		put("DriveState/TalonControlMode", driveState.getTalonControlMode().toString() );
-			put("DriveState/lSpeed", driveState.getLeftSpeedInchesPerSec() );
-			put("DriveState/rSpeed", driveState.getRightSpeedInchesPerSec() );
-    		put("DriveState/lDistance", driveState.getLeftDistanceInches() );
-    		put("DriveState/rDistance", driveState.getRightDistanceInches() );
-    		put("DriveState/Heading", driveState.getHeadingDeg() );
+        	autoActionCh.set( "DriveStraight" );
+        	cmdTalonModeCh.set( driveState.getTalonControlMode() );
+        	cmdLeftCh.set( mDrive.getCommand().getLeftMotor() );
+        	cmdRightCh.set( mDrive.getCommand().getRightMotor() );
+        	talonModeCh.set( driveState.getTalonControlMode() );
+        	lSpeedCh.set( driveState.getLeftSpeedInchesPerSec() );
+        	rSpeedCh.set( driveState.getRightSpeedInchesPerSec() );
+        	lDistanceCh.set( driveState.getLeftDistanceInches() );
+        	rDistanceCh.set( driveState.getRightDistanceInches() );
+        	headingCh.set( driveState.getHeadingDeg() );
 	    }
     };
 	
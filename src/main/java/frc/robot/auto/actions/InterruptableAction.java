@@ -23,6 +23,8 @@ public class InterruptableAction implements Action
     {
     	mInterruptingAction = interruptingAction;
     	mAction = actions;
+    	logger.addChild(mAction.getLogger());
+    	logger.addChild(mInterruptingAction.getLogger());
     }
 
     @Override
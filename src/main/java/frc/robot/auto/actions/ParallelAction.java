@@ -23,6 +23,7 @@ public class ParallelAction implements Action
         for (Action action : actions) 
         {
             mActions.add(action);
+            logger.addChild(action.getLogger());
         }
     }
 
@@ -1,10 +1,12 @@
 package frc.robot.auto.actions;
 
 import frc.robot.command_status.RobotState;
+import frc.robot.lib.util.CompiledPath;
 import frc.robot.lib.util.DataLogger;
 import frc.robot.lib.util.Path;
 import frc.robot.lib.util.PathFollower;
 import frc.robot.lib.util.PathFollower.PathVisionState;
+import frc.robot.lib.util.Trajectory;
 
 /**
  * Action for following a path defined by a Path object.
@@ -14,13 +16,22 @@ import frc.robot.lib.util.PathFollower.PathVisionState;
 public class PathFollowerAction implements Action  
 {
 	PathFollower driveCtrl;
-	Path path;
 
     public PathFollowerAction(Path _path) 
+    {
+    	this(_path.compile());
+    }
+
+    // paths compiled ahead of time (e.g. in an auto mode's constructor) are not built again here
+    public PathFollowerAction(CompiledPath _path) 
     {
     	driveCtrl = new PathFollower(_path, PathVisionState.PATH_FOLLOWING);
-    	
-    	path = _path;
+    }
+
+    // follows _path at the speeds planned by TrajectoryGenerator
+    public PathFollowerAction(CompiledPath _path, Trajectory _trajectory) 
+    {
+    	driveCtrl = new PathFollower(_path, _trajectory, PathVisionState.PATH_FOLLOWING);
     }
 
     public PathFollower getDriveController() { return driveCtrl; }
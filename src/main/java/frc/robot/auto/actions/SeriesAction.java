@@ -23,21 +23,22 @@ public class SeriesAction implements Action
     public SeriesAction(List<Action> actions) 
     {
         mRemainingActions = new ArrayList<>(actions.size());
-        mRemainingActions.addAll(actions);
         mCurAction = null;
+        add(actions);
     }
 
 	public void add(List<Action> actions)
 	{
 		for (Action action : actions) 
 		{
-			mRemainingActions.add(action);
+			add(action);
 		}
 	}
 	
 	public void add(Action action)
 	{
 		mRemainingActions.add(action);
+		logger.addChild(action.getLogger());	// only the current action's channels are set each cycle
 	}
 
     @Override
@@ -83,8 +84,8 @@ public class SeriesAction implements Action
         @Override
         public void log()
         {
-//            if (mCurAction == null) 
-//            	mCurAction.getLogger().log();
+            if (mCurAction != null) 
+            	mCurAction.getLogger().log();
 	    }
     };
 	
@@ -1,10 +1,9 @@
 package frc.robot.auto.actions;
 
 
+import frc.robot.lib.util.Clock;
 import frc.robot.lib.util.DataLogger;
 
-import edu.wpi.first.wpilibj.Timer;
-
 /**
  * Action to wait for a given amount of time To use this Action, call
  * runAction(new WaitAction(your_time))
@@ -13,6 +12,7 @@ public class WaitAction implements Action {
 
     private double mTimeToWait;
     private double mStartTime;
+    private Clock mClock = Clock.getDefault();
 
     public WaitAction(double timeToWait) {
         mTimeToWait = timeToWait;
@@ -21,7 +21,7 @@ public class WaitAction implements Action {
 
     @Override
     public void start() {
-        mStartTime = Timer.getFPGATimestamp();
+        mStartTime = mClock.getTime();
     }
 
     @Override
@@ -31,7 +31,7 @@ public class WaitAction implements Action {
     
     @Override
     public boolean isFinished() {
-        return Timer.getFPGATimestamp() - mStartTime >= mTimeToWait;
+        return mClock.getTime() - mStartTime >= mTimeToWait;
     }
 
     @Override
@@ -11,9 +11,11 @@ import frc.robot.auto.actions.IntakeAction;
 import frc.robot.auto.actions.ParallelAction;
 import frc.robot.auto.actions.PathFollowerAction;
 import frc.robot.auto.actions.WaitAction;
+import frc.robot.lib.util.CompiledPath;
 import frc.robot.lib.util.Path;
 import frc.robot.lib.util.Path.Waypoint;
 import frc.robot.lib.util.PathSegment;
+import frc.robot.lib.util.Trajectory;
 import frc.robot.lib.util.Vector2d;
 import frc.robot.loops.DriveLoop;
 
@@ -22,14 +24,19 @@ import frc.robot.loops.DriveLoop;
  */
 public class CenterStartMode extends AutoModeBase {
 
+    // paths are built and compiled when the mode is constructed (at robotInit),
+    // so that following them in autonomous costs nothing
+    CompiledPath driveToBallsPath;
+    CompiledPath ballIntakePath;
+    CompiledPath driveToCratePath;
+    CompiledPath turnOuttakePath;
+    Trajectory driveToBallsTrajectory;		// speed profiles, made (or loaded) with the paths
+    Trajectory ballIntakeTrajectory;
+    Trajectory driveToCrateTrajectory;
+    Trajectory turnOuttakeTrajectory;
+
     public CenterStartMode() 
     { 
-    }
-
-    @Override
-    protected void routine() throws AutoModeEndedException 
-    {
-    	System.out.println("Starting Auto Mode: Center Start Mode");
         PathSegment.Options pathOptions	= new PathSegment.Options(DriveLoop.kPathFollowingMaxVel, DriveLoop.kPathFollowingMaxAccel, 48, false);
         PathSegment.Options tightTurnOptions	= new PathSegment.Options(DriveLoop.kPathFollowingMaxVel, DriveLoop.kPathFollowingMaxAccel, 48, false);
         //Vector2d backupPosition = 		new Vector2d(24, 0);
@@ -74,19 +81,34 @@ public class CenterStartMode extends AutoModeBase {
         Path turnOuttakePath = new Path();
 		turnOuttakePath.add(new Waypoint(cratePosition, tightTurnOptions));	
         turnOuttakePath.add(new Waypoint(outtakeStartPosition, tightTurnOptions));
-        
+
+        this.driveToBallsPath = driveToBallsPath.compile();
+        this.ballIntakePath = ballIntakePath.compile();
+        this.driveToCratePath = driveToCratePath.compile();
+        this.turnOuttakePath = turnOuttakePath.compile();
+
+        driveToBallsTrajectory = getTrajectory(this.driveToBallsPath, "driveToBalls");
+        ballIntakeTrajectory = getTrajectory(this.ballIntakePath, "ballIntake");
+        driveToCrateTrajectory = getTrajectory(this.driveToCratePath, "driveToCrate");
+        turnOuttakeTrajectory = getTrajectory(this.turnOuttakePath, "turnOuttake");
+    }
+
+    @Override
+    protected void routine() throws AutoModeEndedException 
+    {
+    	System.out.println("Starting Auto Mode: Center Start Mode");
         runAction(new GoodOuttakeAction()); 
         runAction(new WaitAction(1.0));
         //runAction(new PathFollowerAction(TurnPath));  
         //runAction(new PathFollowerAction(sharpTurnPath));
-        runAction(new PathFollowerAction(driveToBallsPath));
+        runAction(new PathFollowerAction(driveToBallsPath, driveToBallsTrajectory));
         runAction(new ParallelAction (Arrays.asList(new Action[] {
-            (new PathFollowerAction(ballIntakePath)),
+            (new PathFollowerAction(ballIntakePath, ballIntakeTrajectory)),
              (new IntakeAction())})));
         //runAction(new PathFollowerAction(turnToCratePath));
-        runAction(new PathFollowerAction(driveToCratePath)); // don't cross middle line
+        runAction(new PathFollowerAction(driveToCratePath, driveToCrateTrajectory)); // don't cross middle line
         runAction(new GoodOuttakeStopAction()); 
-        runAction(new PathFollowerAction(turnOuttakePath));
+        runAction(new PathFollowerAction(turnOuttakePath, turnOuttakeTrajectory));
         runAction(new GoodOuttakeAction());      
     }
 }
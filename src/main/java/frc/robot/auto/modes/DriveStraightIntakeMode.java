@@ -10,9 +10,11 @@ import frc.robot.auto.actions.IntakeAction;
 import frc.robot.auto.actions.ParallelAction;
 import frc.robot.auto.actions.PathFollowerAction;
 import frc.robot.auto.actions.WaitAction;
+import frc.robot.lib.util.CompiledPath;
 import frc.robot.lib.util.Path;
 import frc.robot.lib.util.Path.Waypoint;
 import frc.robot.lib.util.PathSegment;
+import frc.robot.lib.util.Trajectory;
 import frc.robot.lib.util.Vector2d;
 import frc.robot.loops.DriveLoop;
 
@@ -21,14 +23,15 @@ import frc.robot.loops.DriveLoop;
  */
 public class DriveStraightIntakeMode extends AutoModeBase {
 
+    // paths are built and compiled when the mode is constructed (at robotInit),
+    // so that following them in autonomous costs nothing
+    CompiledPath driveToBallsPath;
+    CompiledPath ballIntakePath;
+    Trajectory driveToBallsTrajectory;		// speed profiles, made (or loaded) with the paths
+    Trajectory ballIntakeTrajectory;
+
     public DriveStraightIntakeMode() 
     { 
-    }
-
-    @Override
-    protected void routine() throws AutoModeEndedException 
-    {
-    	System.out.println("Starting Auto Mode: Center Start Mode");
         PathSegment.Options pathOptions	= new PathSegment.Options(DriveLoop.kPathFollowingMaxVel, DriveLoop.kPathFollowingMaxAccel, 48, false);
         PathSegment.Options tightTurnOptions	= new PathSegment.Options(DriveLoop.kPathFollowingMaxVel/2, DriveLoop.kPathFollowingMaxAccel, 24, false);
         //Vector2d backupPosition = 		new Vector2d(24, 0);
@@ -78,11 +81,22 @@ public class DriveStraightIntakeMode extends AutoModeBase {
         turnAroundPath.add(new Waypoint(outtakeStartPosition, tightTurnOptions));
         */
 
+        this.driveToBallsPath = driveToBallsPath.compile();
+        this.ballIntakePath = ballIntakePath.compile();
+
+        driveToBallsTrajectory = getTrajectory(this.driveToBallsPath, "driveToBalls");
+        ballIntakeTrajectory = getTrajectory(this.ballIntakePath, "ballIntake");
+    }
+
+    @Override
+    protected void routine() throws AutoModeEndedException 
+    {
+    	System.out.println("Starting Auto Mode: Center Start Mode");
         runAction(new GoodOuttakeAction()); 
         runAction(new WaitAction(1.0));
-        runAction(new PathFollowerAction(driveToBallsPath));
+        runAction(new PathFollowerAction(driveToBallsPath, driveToBallsTrajectory));
         runAction(new ParallelAction (Arrays.asList(new Action[] {
-            (new PathFollowerAction(ballIntakePath)),
+            (new PathFollowerAction(ballIntakePath, ballIntakeTrajectory)),
             (new IntakeAction())})));    
         
        // runAction(new PathFollowerAction(backupToStartPath));
@@ -3,9 +3,11 @@ package frc.robot.auto.modes;
 import frc.robot.auto.AutoModeBase;
 import frc.robot.auto.AutoModeEndedException;
 import frc.robot.auto.actions.PathFollowerAction;
+import frc.robot.lib.util.CompiledPath;
 import frc.robot.lib.util.Path;
 import frc.robot.lib.util.Path.Waypoint;
 import frc.robot.lib.util.PathSegment;
+import frc.robot.lib.util.Trajectory;
 import frc.robot.lib.util.Vector2d;
 import frc.robot.loops.DriveLoop;
 
@@ -15,19 +17,22 @@ import frc.robot.loops.DriveLoop;
  */
 public class SquarePatternMode extends AutoModeBase {
 
-	Path path;
+	CompiledPath path;		// built when the mode is constructed (at robotInit), not when it runs
+	Trajectory trajectory;
     public SquarePatternMode(int lane, boolean shouldDriveBack) 
     {
- 
+    	init();
     }
     
     private void init(){
     	
     	PathSegment.Options options = new PathSegment.Options(DriveLoop.kPathFollowingMaxVel, DriveLoop.kPathFollowingMaxAccel, DriveLoop.kPathFollowingLookahead, false);
     	
-    	path = new Path();
+    	Path path = new Path();
     	path.add(new Waypoint(new Vector2d( 0, 0), options));
         path.add(new Waypoint(new Vector2d( 240.0, 0), options));
+        this.path = path.compile();
+        trajectory = getTrajectory(this.path, "path");
     }
 
     @Override
@@ -35,8 +40,6 @@ public class SquarePatternMode extends AutoModeBase {
     {
     	System.out.println("Starting Auto Mode: Square Pattern");
 
-    	init();
-    	
         //Path path = new Path();
         //path.add(new Waypoint(new Vector2d( 0, 0), options));
         //path.add(new Waypoint(new Vector2d( 240.0, 0), options));
@@ -48,7 +51,7 @@ public class SquarePatternMode extends AutoModeBase {
         //revPath.setReverseOrder();
         //revPath.setReverseDirection();
         
-        runAction(new PathFollowerAction(path));			// drive forward
+        runAction(new PathFollowerAction(path, trajectory));			// drive forward
         //runAction(new PathFollowerWithVisionAction(revPath));    	// drive reversed 
     }
 }
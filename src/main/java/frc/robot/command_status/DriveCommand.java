@@ -2,13 +2,12 @@ package frc.robot.command_status;
 
 
 
+import frc.robot.lib.util.Clock;
 import frc.robot.lib.util.DataLogger;
 import frc.robot.lib.util.Kinematics.WheelSpeed;
 
 import com.ctre.phoenix.motorcontrol.*;
 
-import edu.wpi.first.wpilibj.Timer;
-
 /**
  * A drivetrain command consisting of the left, right motor settings and whether the brake mode is enabled.  
  * The command is set by Drive.java, and read by DriveLoop.java, which sends it to the drive motors
@@ -122,7 +121,7 @@ public class DriveCommand
     	return rv; 
     }	
     
-    public synchronized void   setCommandTime() { commandTime = Timer.getFPGATimestamp(); }
+    public synchronized void   setCommandTime() { commandTime = Clock.getDefault().getTime(); }
     public synchronized double getCommandTime() { return commandTime; } 
     
     
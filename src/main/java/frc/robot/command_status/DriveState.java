@@ -77,24 +77,39 @@ public class DriveState
     
 	private final DataLogger logger = new DataLogger()
     {
+		final Policy currentPolicy = new Policy(Policy.Mode.DEADBAND, 0.25);	// amps
+		final EnumChannel<ControlMode> talonControlModeCh = addEnum("DriveState/TalonControlMode", ControlMode.class, Policy.kChangeOnly);
+		final EnumChannel<NeutralMode> neutralModeCh      = addEnum("DriveState/neutralMode", NeutralMode.class, Policy.kChangeOnly);
+		final DoubleChannel lMotorCurrentCh = addDouble("DriveState/lMotorCurrent", "A", currentPolicy);
+		final DoubleChannel rMotorCurrentCh = addDouble("DriveState/rMotorCurrent", "A", currentPolicy);
+		final DoubleChannel lMotorStatusCh  = addDouble("DriveState/lMotorStatus");
+		final DoubleChannel rMotorStatusCh  = addDouble("DriveState/rMotorStatus");
+		final DoubleChannel lSpeedCh        = addDouble("DriveState/lSpeed", "in/s");	// used by RaspberryPi set LED velocity display
+		final DoubleChannel rSpeedCh        = addDouble("DriveState/rSpeed", "in/s");	// used by RaspberryPi set LED velocity display
+		final DoubleChannel lDistanceCh     = addDouble("DriveState/lDistance", "in");
+		final DoubleChannel rDistanceCh     = addDouble("DriveState/rDistance", "in");
+		final IntChannel    lPIDErrorCh     = addInt("DriveState/lPIDError");
+		final IntChannel    rPIDErrorCh     = addInt("DriveState/rPIDError");
+		final DoubleChannel headingCh       = addDouble("DriveState/Heading", "deg");
+
         @Override
         public void log()
         {
         	synchronized (DriveState.this)
         	{
-	    		put("DriveState/TalonControlMode", talonControlMode.toString() );
-	    		put("DriveState/neutralMode", (neutralMode == NeutralMode.Coast ? "Coast" : "Brake"));
-	    		put("DriveState/lMotorCurrent", lMotorCurrent );
-	    		put("DriveState/rMotorCurrent", rMotorCurrent );
-	    		put("DriveState/lMotorStatus", lMotorStatus );
-	    		put("DriveState/rMotorStatus", rMotorStatus );
-	    		put("DriveState/lSpeed", lSpeedInchesPerSec );	// used by RaspberryPi set LED velocity display
-	    		put("DriveState/rSpeed", rSpeedInchesPerSec );	// used by RaspberryPi set LED velocity display
-	    		put("DriveState/lDistance", lDistanceInches );
-	    		put("DriveState/rDistance", rDistanceInches );
-	    		put("DriveState/lPIDError",  lMotorPIDError );
-	    		put("DriveState/rPIDError", rMotorPIDError );
-	    		put("DriveState/Heading", getHeadingDeg() );
+        		talonControlModeCh.set( talonControlMode );
+        		neutralModeCh.set( neutralMode == NeutralMode.Coast ? NeutralMode.Coast : NeutralMode.Brake );
+        		lMotorCurrentCh.set( lMotorCurrent );
+        		rMotorCurrentCh.set( rMotorCurrent );
+        		lMotorStatusCh.set( lMotorStatus );
+        		rMotorStatusCh.set( rMotorStatus );
+        		lSpeedCh.set( lSpeedInchesPerSec );
+        		rSpeedCh.set( rSpeedInchesPerSec );
+        		lDistanceCh.set( lDistanceInches );
+        		rDistanceCh.set( rDistanceInches );
+        		lPIDErrorCh.set( lMotorPIDError );
+        		rPIDErrorCh.set( rMotorPIDError );
+        		headingCh.set( getHeadingDeg() );
         	}
         }
     };
@@ -1,10 +1,15 @@
 package frc.robot.command_status;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+import frc.robot.Constants;
 import frc.robot.lib.util.DataLogger;
-import frc.robot.lib.util.InterpolatingDouble;
-import frc.robot.lib.util.InterpolatingTreeMap;
 import frc.robot.lib.util.Kinematics;
 import frc.robot.lib.util.Pose;
+import frc.robot.lib.util.PoseHistory;
+import frc.robot.lib.util.Trig;
+import frc.robot.lib.util.Vector2d;
 
 /**
  * RobotState keeps track of the poses of various coordinate frames throughout
@@ -62,96 +67,403 @@ public class RobotState
     public static final int kObservationBufferSize = 100;
     public static final double kMaxTargetAge = 0.4;
 
-    private InterpolatingTreeMap<InterpolatingDouble, Pose> fieldToRobot;
-    private Kinematics.LinearAngularSpeed robotSpeed;
+    private final PoseHistory fieldToRobot = new PoseHistory(kObservationBufferSize);
+    private final Pose lastPose = new Pose();		// scratch for generateOdometryFromSensors()
+    private volatile Kinematics.LinearAngularSpeed robotSpeed;
 
     private double gyroCorrection;
     
     private double lPrevDistance = 0;
     private double rPrevDistance = 0;
+
+    /*
+     * Vision target tracking.  Observations are kept in time order (by image capture time),
+     * along with the filtered field location of the target after each one.  An observation
+     * is located using the pose at its capture time, and filtered from the state after the
+     * observation before it, so one that arrives out of order re-runs the filter forward from
+     * its own time.  That is at most kVisionBufferSize steps, so the cost per observation is bounded.
+     */
+    public static final int kVisionBufferSize = 20;
+    private int numVision = 0;
+    private final double[] visionTime      = new double[kVisionBufferSize];	// image capture time
+    private final double[] visionTargetX   = new double[kVisionBufferSize];	// normalized target X (-1 to +1)
+    private final double[] visionWidth     = new double[kVisionBufferSize];	// normalized target width
+    private final double[] targetX         = new double[kVisionBufferSize];	// filtered target location after this observation (field frame)
+    private final double[] targetY         = new double[kVisionBufferSize];
+    private final double[] targetTime      = new double[kVisionBufferSize];	// time of the last observation in the filtered location (NaN if none)
+    private final Pose visionPose = new Pose();		// scratch for the filter
+
+    /*
+     * Locking: the odometry writer (loop thread) takes the write lock.  Readers (auto thread,
+     * loggers) don't lock at all: they read optimistically and check that no write happened
+     * meanwhile, retrying if one did.  Only after kOptimisticTries failures do they take the
+     * read lock, which is the only time a reader can make the writer wait.
+     * PoseHistory reads stay in bounds even when they race a write (the result is thrown away).
+     */
+    private final StampedLock lock = new StampedLock();
+    private static final int kOptimisticTries = 3;
+
+    // contention statistics
+    private final AtomicLong readRetries    = new AtomicLong();	// optimistic reads that overlapped a write, and were retried
+    private final AtomicLong readLocks      = new AtomicLong();	// reads that fell back to the read lock
+    private final AtomicLong writeWaits     = new AtomicLong();	// writes that had to wait for the lock
+    private final AtomicLong writeWaitNanos = new AtomicLong();	// total time writers waited
+
     
     public RobotState() { reset( 0, 0, 0, new Pose() ); }
 
-	public synchronized void reset(double _startTime, double _lEncoderDistance, double _rEncoderDistance, Pose _initialFieldToRobot) 
+	public void reset(double _startTime, double _lEncoderDistance, double _rEncoderDistance, Pose _initialFieldToRobot) 
 	{
-		// calibrate initial position to initial pose (set by autonomous mode)
-        fieldToRobot = new InterpolatingTreeMap<>(kObservationBufferSize);
-        fieldToRobot.put(new InterpolatingDouble(_startTime), _initialFieldToRobot);
-       
         // calculate gyro heading correction for the desired initial pose (as set by autonomous mode)
         double desiredHeading = _initialFieldToRobot.getHeading();  
         double gyroHeading  = DriveState.getInstance().getHeading();
-        gyroCorrection = gyroHeading - desiredHeading;		// subtract gyroCorrection from actual gyro heading to get desired orientation
-        
-        robotSpeed = new Kinematics.LinearAngularSpeed(0, 0);
-        
-        setPrevEncoderDistance(_lEncoderDistance, _rEncoderDistance);
+
+		long stamp = writeLock();
+		try
+		{
+			// calibrate initial position to initial pose (set by autonomous mode)
+	        fieldToRobot.clear();
+	        fieldToRobot.add(_startTime, _initialFieldToRobot);
+	       
+	        gyroCorrection = gyroHeading - desiredHeading;		// subtract gyroCorrection from actual gyro heading to get desired orientation
+	        
+	        robotSpeed = new Kinematics.LinearAngularSpeed(0, 0);
+	        
+	        lPrevDistance = _lEncoderDistance;
+	        rPrevDistance = _rEncoderDistance;
+
+	        numVision = 0;
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
     }
 	
 	public void setPrevEncoderDistance(double _lPrevDistance, double _rPrevDistance)
 	{
+		long stamp = writeLock();
         lPrevDistance = _lPrevDistance;
         rPrevDistance = _rPrevDistance;     
+		lock.unlockWrite(stamp);
 	}
 	 	
-	public synchronized Pose getFieldToVehicle(double _timestamp) 
+	public Pose getFieldToVehicle(double _timestamp) 
+	{
+        return getFieldToVehicle(_timestamp, new Pose());
+    }
+
+	// fills in _pose (no allocation), and returns it
+	public Pose getFieldToVehicle(double _timestamp, Pose _pose) 
 	{
-        return fieldToRobot.getInterpolated(new InterpolatingDouble(_timestamp));
+		for (int k = 0; k < kOptimisticTries; k++)
+		{
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0)
+			{
+				Pose pose = fieldToRobot.get(_timestamp, _pose);
+				if (lock.validate(stamp))
+					return pose;
+			}
+			readRetries.incrementAndGet();
+		}
+
+		readLocks.incrementAndGet();
+		long stamp = lock.readLock();
+		try
+		{
+			return fieldToRobot.get(_timestamp, _pose);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
     }
 
-    public synchronized Pose getLatestFieldToVehicle() 
+    public Pose getLatestFieldToVehicle() 
     {
-        return fieldToRobot.lastEntry().getValue();
+        return getLatestFieldToVehicle(new Pose());
     }
 
-    public synchronized Pose getPredictedFieldToVehicle(double _lookaheadTime) 
+    // fills in _pose (no allocation), and returns it
+    public Pose getLatestFieldToVehicle(Pose _pose) 
     {
+		for (int k = 0; k < kOptimisticTries; k++)
+		{
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0)
+			{
+				Pose pose = fieldToRobot.getLatest(_pose);
+				if (lock.validate(stamp))
+					return pose;
+			}
+			readRetries.incrementAndGet();
+		}
+
+		readLocks.incrementAndGet();
+		long stamp = lock.readLock();
+		try
+		{
+			return fieldToRobot.getLatest(_pose);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+    }
+
+    // time of the latest odometry
+    public double getLatestTime()
+    {
+		long stamp = lock.tryOptimisticRead();
+		double time = fieldToRobot.getLatestTime();
+		if (stamp != 0 && lock.validate(stamp))
+			return time;
+
+		readLocks.incrementAndGet();
+		stamp = lock.readLock();
+		try
+		{
+			return fieldToRobot.getLatestTime();
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+    }
+
+    public Pose getPredictedFieldToVehicle(double _lookaheadTime) 
+    {
+    	Kinematics.LinearAngularSpeed robotSpeed = this.robotSpeed;
     	Kinematics.LinearAngularSpeed speed = new Kinematics.LinearAngularSpeed(robotSpeed.linearSpeed * _lookaheadTime, robotSpeed.angularSpeed * _lookaheadTime);
         return Kinematics.travelArc(getLatestFieldToVehicle(), speed);
     }
 
-    public synchronized void addFieldToVehicleObservation(double _timestamp, Pose _observation)
+    public void addFieldToVehicleObservation(double _timestamp, Pose _observation)
     {
-        fieldToRobot.put(new InterpolatingDouble(_timestamp), _observation);
+		long stamp = writeLock();
+        fieldToRobot.add(_timestamp, _observation);
+		lock.unlockWrite(stamp);
     }
 
 
     public void generateOdometryFromSensors(double _time, double _lEncoderDistance, double _rEncoderDistance, 
     		                                double _lEncoderSpeed, double _rEncoderSpeed, double _gyroAngle) 
     {
-        Pose lastPose = getLatestFieldToVehicle();
+        Kinematics.LinearAngularSpeed speed = Kinematics.forwardKinematics(_lEncoderSpeed, _rEncoderSpeed);
+
+		long stamp = writeLock();
+		try
+		{
+	        fieldToRobot.getLatest(lastPose);
+	
+	        // get change in encoder distance from last call
+	        double lDeltaDistance = _lEncoderDistance - lPrevDistance; 
+	        double rDeltaDistance = _rEncoderDistance - rPrevDistance;
+	        
+	        lPrevDistance = _lEncoderDistance;
+	        rPrevDistance = _rEncoderDistance;
+	
+	        Pose odometry = Kinematics.integrateForwardKinematics(lastPose, lDeltaDistance, rDeltaDistance, _gyroAngle - gyroCorrection);
+	        
+	        fieldToRobot.add(_time, odometry);		// store odometry
+	        robotSpeed = speed;						// used in getPredictedFieldToVehicle()
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+    }
+
+    /*
+     * Adds a vision target observation, made from an image captured at _imageTimestamp (on the same
+     * clock as the odometry: the camera's reported latency already subtracted).  Observations
+     * with no target (_normalizedTargetWidth <= 0), or too far away, only carry the filter forward.
+     */
+    public void addVisionObservation(double _imageTimestamp, double _normalizedTargetX, double _normalizedTargetWidth)
+    {
+		long stamp = writeLock();
+		try
+		{
+			// insert in time order (almost always at the end), dropping the oldest if full
+			int k = numVision;
+			while (k > 0 && visionTime[k-1] > _imageTimestamp)
+				k--;
+			if (k > 0 && visionTime[k-1] == _imageTimestamp)
+				k--;		// same image again: replace it
+			else
+			{
+				if (numVision == kVisionBufferSize)
+				{
+					if (k == 0)
+						return;		// older than everything kept
+					shiftVision(1, 0, numVision-1);
+					numVision--;
+					k--;
+				}
+				shiftVision(k, k+1, numVision-k);
+				numVision++;
+			}
+			visionTime[k]    = _imageTimestamp;
+			visionTargetX[k] = _normalizedTargetX;
+			visionWidth[k]   = _normalizedTargetWidth;
+
+			// re-run the filter from this observation on
+			for (int j = k; j < numVision; j++)
+				filterVision(j);
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+    }
+
+    private void shiftVision(int _from, int _to, int _count)
+    {
+    	System.arraycopy(visionTime,    _from, visionTime,    _to, _count);
+    	System.arraycopy(visionTargetX, _from, visionTargetX, _to, _count);
+    	System.arraycopy(visionWidth,   _from, visionWidth,   _to, _count);
+    	System.arraycopy(targetX,       _from, targetX,       _to, _count);
+    	System.arraycopy(targetY,       _from, targetY,       _to, _count);
+    	System.arraycopy(targetTime,    _from, targetTime,    _to, _count);
+    }
+
+    // filtered target location after observation _k, from the one before it
+    private void filterVision(int _k)
+    {
+    	double t = visionTime[_k];
+    	boolean prevValid = (_k > 0) && !Double.isNaN(targetTime[_k-1]) && (t - targetTime[_k-1] <= kMaxTargetAge);
+    	targetX[_k]    = prevValid ? targetX[_k-1] : 0;
+    	targetY[_k]    = prevValid ? targetY[_k-1] : 0;
+    	targetTime[_k] = prevValid ? targetTime[_k-1] : Double.NaN;
 
-        // get change in encoder distance from last call
-        double lDeltaDistance = _lEncoderDistance - lPrevDistance; 
-        double rDeltaDistance = _rEncoderDistance - rPrevDistance;
-        
-        setPrevEncoderDistance(_lEncoderDistance, _rEncoderDistance);
+    	double width = visionWidth[_k];
+    	if (width <= 0)
+    		return;
+    	double distance = Constants.kTargetWidthInches / (2.0 * width * Constants.kTangentCameraHalfFOV);
+    	if (distance >= Constants.kVisionMaxDistanceInches)
+    		return;		// ignore bogus targets
 
-        Pose odometry = Kinematics.integrateForwardKinematics(lastPose, lDeltaDistance, rDeltaDistance, _gyroAngle - gyroCorrection);
-        Kinematics.LinearAngularSpeed speed = Kinematics.forwardKinematics(_lEncoderSpeed, _rEncoderSpeed);
-        
-        addFieldToVehicleObservation(_time, odometry);	// store odometry
-        robotSpeed = speed;								// used in getPredictedFieldToVehicle()
+    	// target location in the field frame, seen from where the camera was when the image was taken
+    	fieldToRobot.get(t, visionPose);
+    	Trig trig = Trig.getDefault();
+    	double heading = visionPose.getHeading();
+    	double cos = trig.cos(heading);
+    	double sin = trig.sin(heading);
+    	double cameraX = visionPose.getX() + cos * Constants.kCameraPoseX - sin * Constants.kCameraPoseY;
+    	double cameraY = visionPose.getY() + sin * Constants.kCameraPoseX + cos * Constants.kCameraPoseY;
+    	double angle = heading + Constants.kCameraPoseTheta - visionTargetX[_k] * Constants.kCameraHalfFOVRadians;
+    	double x = cameraX + distance * trig.cos(angle);
+    	double y = cameraY + distance * trig.sin(angle);
+
+    	// exponential averaging
+    	if (prevValid)
+    	{
+    		x = targetX[_k] + Constants.kTargetLocationFilterConstant * (x - targetX[_k]);
+    		y = targetY[_k] + Constants.kTargetLocationFilterConstant * (y - targetY[_k]);
+    	}
+    	targetX[_k] = x;
+    	targetY[_k] = y;
+    	targetTime[_k] = t;
+    }
+
+    /*
+     * Fills in _location with the filtered field location of the vision target, if it was seen
+     * less than kMaxTargetAge before _time.  returns false (leaving _location alone) if not
+     */
+    public boolean getTargetLocation(double _time, Vector2d _location)
+    {
+		for (int k = 0; k < kOptimisticTries; k++)
+		{
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0)
+			{
+				int n = numVision;
+				double t = (n > 0) ? targetTime[n-1] : Double.NaN;
+				double x = (n > 0) ? targetX[n-1] : 0;
+				double y = (n > 0) ? targetY[n-1] : 0;
+				if (lock.validate(stamp))
+					return setTargetLocation(_time, t, x, y, _location);
+			}
+			readRetries.incrementAndGet();
+		}
+
+		readLocks.incrementAndGet();
+		long stamp = lock.readLock();
+		try
+		{
+			int n = numVision;
+			return (n > 0) && setTargetLocation(_time, targetTime[n-1], targetX[n-1], targetY[n-1], _location);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+    }
+
+    private static boolean setTargetLocation(double _time, double _targetTime, double _x, double _y, Vector2d _location)
+    {
+    	if (Double.isNaN(_targetTime) || _time - _targetTime > kMaxTargetAge)
+    		return false;
+    	_location.setX(_x);
+    	_location.setY(_y);
+    	return true;
     }
 
     public double getSpeed()
     {
     	return robotSpeed.linearSpeed;
     }
+
+    // take the write lock, counting the times it was not free
+    private long writeLock()
+    {
+    	long stamp = lock.tryWriteLock();
+    	if (stamp == 0)
+    	{
+    		long start = System.nanoTime();
+    		stamp = lock.writeLock();
+    		writeWaitNanos.addAndGet(System.nanoTime() - start);
+    		writeWaits.incrementAndGet();
+    	}
+    	return stamp;
+    }
+
+    public long getReadRetries()    { return readRetries.get(); }
+    public long getReadLocks()      { return readLocks.get(); }
+    public long getWriteWaits()     { return writeWaits.get(); }
+    public long getWriteWaitNanos() { return writeWaitNanos.get(); }
     
     
 	private final DataLogger logger = new DataLogger()
     {
+		final DoubleChannel positionXCh  = addDouble("RobotState/positionX", "in");
+		final DoubleChannel positionYCh  = addDouble("RobotState/positionY", "in");
+		final DoubleChannel headingDegCh = addDouble("RobotState/headingDeg", "deg");
+		final DoubleChannel targetXCh    = addDouble("RobotState/targetX", "in");
+		final DoubleChannel targetYCh    = addDouble("RobotState/targetY", "in");
+		final IntChannel readRetriesCh   = addInt("RobotState/readRetries", Policy.kChangeOnly);
+		final IntChannel readLocksCh     = addInt("RobotState/readLocks", Policy.kChangeOnly);
+		final IntChannel writeWaitsCh    = addInt("RobotState/writeWaits", Policy.kChangeOnly);
+		final Pose odometry = new Pose();
+		final Vector2d target = new Vector2d();
+
         @Override
         public void log()
         {
-        	synchronized (RobotState.this)
-        	{
-	            Pose odometry = getLatestFieldToVehicle();
-	            put("RobotState/positionX",  odometry.getX());
-	            put("RobotState/positionY",  odometry.getY());
-	            put("RobotState/headingDeg", odometry.getHeadingDeg());
-        	}
+        	// no lock: the logger never makes the odometry writer wait
+            getLatestFieldToVehicle(odometry);
+            positionXCh.set(  odometry.getX() );
+            positionYCh.set(  odometry.getY() );
+            headingDegCh.set( odometry.getHeadingDeg() );
+            if (getTargetLocation(getLatestTime(), target))
+            {
+            	targetXCh.set( target.getX() );
+            	targetYCh.set( target.getY() );
+            }
+            readRetriesCh.set( (int)readRetries.get() );
+            readLocksCh.set( (int)readLocks.get() );
+            writeWaitsCh.set( (int)writeWaits.get() );
         }
     };
     
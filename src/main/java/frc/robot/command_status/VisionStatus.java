@@ -30,14 +30,18 @@ public class VisionStatus
 	
 	private final DataLogger logger = new DataLogger()
     {
+		final DoubleChannel imageTimestampCh        = addDouble("VisionStatus/imageTimestamp");
+		final DoubleChannel normalizedTargetXCh     = addDouble("VisionStatus/normalizedTargetX");
+		final DoubleChannel normalizedTargetWidthCh = addDouble("VisionStatus/normalizedTargetWidth");
+
         @Override
         public void log()
         {
-        	synchronized (this)
+        	synchronized (VisionStatus.this)
         	{
- 	    		put("VisionStatus/imageTimestamp", imageTimestamp );
-	    		put("VisionStatus/normalizedTargetX", normalizedTargetX );
-	    		put("VisionStatus/normalizedTargetWidth", normalizedTargetWidth );
+        		imageTimestampCh.set( imageTimestamp );
+        		normalizedTargetXCh.set( normalizedTargetX );
+        		normalizedTargetWidthCh.set( normalizedTargetWidth );
         	}
         }
     };
@@ -0,0 +1,69 @@
+package frc.robot.lib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts a binary log into the CSV layout that DataLogController has
+ * always written, so existing analysis scripts keep working.
+ *
+ * Usage: java frc.robot.lib.logging.BinaryLogConverter <log.bin> [out.csv]
+ *
+ * If <log.bin> is a segment (e.g. 20181117-101500_auto_000.bin), all segments
+ * of that log are converted into a single CSV file.
+ */
+public class BinaryLogConverter
+{
+	public static int convert(File _in, File _out) throws IOException
+	{
+		return convert(BinaryLogReader.getSegments(_in), _out);
+	}
+
+	public static int convert(List<File> _segments, File _out) throws IOException
+	{
+		int rows = 0;
+		LogRecord record = new LogRecord();
+		LogSchema schema = null;
+		CsvLogSink csv = new CsvLogSink(_out);
+		try
+		{
+			csv.open();
+			for (File segment : _segments)
+			{
+				try (BinaryLogReader reader = new BinaryLogReader(segment))
+				{
+					while (reader.next(record))
+					{
+						// each segment repeats the schema: only write a header when the columns change
+						if (record.header != null && !record.header.sameColumns(schema))
+						{
+							schema = record.header;
+							csv.writeHeader(schema);
+						}
+						csv.writeRecord(record);
+						rows++;
+					}
+				}
+			}
+		}
+		finally
+		{
+			csv.close();
+		}
+		return rows;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: BinaryLogConverter <log.bin> [out.csv]");
+			return;
+		}
+		File in = new File(args[0]);
+		String outName = (args.length > 1) ? args[1] : args[0].replaceAll("(_\\d{3})?\\.bin$", "") + ".csv";
+		int rows = convert(in, new File(outName));
+		System.out.println("Wrote " + rows + " rows to " + outName);
+	}
+}
@@ -0,0 +1,99 @@
+package frc.robot.lib.logging;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the binary log files written by BinaryLogSink.
+ *
+ * All values are big-endian (Java's default).  A file starts with the 8 byte
+ * kMagic, followed by records.  Each record starts with a one byte tag:
+ *
+ *   'S' schema:      int n, then n x { byte type, string name, string units }
+ *                    written before the first data record and whenever the columns change
+ *   'D' string def:  int id, string value
+ *                    written before the first data record that uses the string
+ *   'T' time sync:   long timestampNanos, long wallMillis
+ *                    maps record timestamps to wall-clock time
+ *   'R' data:        long timestampNanos, logged bitmask (ceil(n/8) bytes, bit k set if column k's value follows),
+ *                    missing bitmask (ceil(n/8) bytes, bit k set if column k was not set),
+ *                    then one fixed-width field per logged column (see getFieldWidth())
+ *
+ * A column that is neither logged nor missing is held: its value is the one
+ * in the last record that logged it (see DataLogger.Policy).  The first record
+ * in a file and the first record after a schema log every column that is set.
+ *
+ * Version 1 files (magic ending in 1) have a single presence bitmask, and
+ * write a field for every column.
+ *
+ * Strings are written as an unsigned short byte count followed by UTF-8 bytes.
+ * String and enum columns hold the int id of a string def record.
+ */
+public class BinaryLogFormat
+{
+	public static final byte[] kMagic = { 'F', 'R', 'C', 'L', 'O', 'G', 0, 2 };
+	public static final int kVersion = 2;		// last byte of kMagic
+
+	public static final byte kSchemaRecord   = 'S';
+	public static final byte kStringRecord   = 'D';
+	public static final byte kTimeSyncRecord = 'T';
+	public static final byte kDataRecord     = 'R';
+
+	public static final String kFileExtension = ".bin";
+
+	// bytes used by a column of the given LogRecord type in a data record
+	public static int getFieldWidth(byte _type)
+	{
+		switch (_type)
+		{
+		case LogRecord.kDouble:  return 8;
+		case LogRecord.kInt:     return 4;
+		case LogRecord.kBoolean: return 1;
+		case LogRecord.kString:
+		case LogRecord.kEnum:    return 4;	// string id
+		default:                 return 0;
+		}
+	}
+
+	public static int getPresenceBytes(int _numColumns)
+	{
+		return (_numColumns + 7) / 8;
+	}
+
+	// largest size of a data record (including its tag) for a schema: every column logged
+	public static int getDataRecordSize(LogSchema _schema)
+	{
+		int size = 1 + 8 + 2 * getPresenceBytes(_schema.size());
+		for (int k = 0; k < _schema.size(); k++)
+			size += getFieldWidth(_schema.getType(k));
+		return size;
+	}
+
+	public static void putString(ByteBuffer _buf, String _value)
+	{
+		byte[] bytes = _value.getBytes(StandardCharsets.UTF_8);
+		_buf.putShort((short)bytes.length);
+		_buf.put(bytes);
+	}
+
+	public static int getStringSize(String _value)
+	{
+		return 2 + _value.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	public static String getString(ByteBuffer _buf)
+	{
+		byte[] bytes = new byte[_buf.getShort() & 0xFFFF];
+		_buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static String readString(DataInput _in) throws IOException
+	{
+		byte[] bytes = new byte[_in.readUnsignedShort()];
+		_in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
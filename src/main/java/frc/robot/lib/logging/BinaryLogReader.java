@@ -0,0 +1,287 @@
+package frc.robot.lib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a file written by BinaryLogSink, one data record at a time.
+ *
+ * The file is memory-mapped, so seeking (see LogIndex) costs nothing, and
+ * reading a record only touches its own bytes.
+ *
+ * Schema, string def and time sync records are handled internally.
+ * A record read after a schema change has its header set to the new schema.
+ * A truncated last record (e.g. power was cut while writing) ends the log,
+ * as does the zero-filled unused end of a MappedBinaryLogSink segment.
+ *
+ * Held columns are filled in with their last logged value, so every record
+ * returned is a complete row.  Reads version 1 and 2 files.
+ */
+public class BinaryLogReader implements LogFileReader
+{
+	private final RandomAccessFile file;
+	private final ByteBuffer buf;
+	private final int version;
+	private final LogRecord last = new LogRecord();		// last logged value of each column
+	private LogSchema schema;
+	private boolean newSchema = false;
+	private final ArrayList<String> strings = new ArrayList<String>();
+	private long syncNanos = 0;
+	private long syncMillis = 0;
+	private boolean keyframe = false;
+	private boolean[] wanted = null;
+
+	public BinaryLogReader(File _file) throws IOException
+	{
+		file = new RandomAccessFile(_file, "r");
+		try
+		{
+			buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			byte[] magic = new byte[BinaryLogFormat.kMagic.length];
+			if (buf.remaining() < magic.length)
+				throw new IOException("not a binary log file");
+			buf.get(magic);
+			int n = magic.length - 1;		// last byte is the version
+			if (!Arrays.equals(Arrays.copyOf(magic, n), Arrays.copyOf(BinaryLogFormat.kMagic, n)))
+				throw new IOException("not a binary log file");
+			version = magic[n];
+			if (version < 1 || version > BinaryLogFormat.kVersion)
+				throw new IOException("unsupported binary log version " + version);
+		}
+		catch (IOException e)
+		{
+			file.close();
+			throw e;
+		}
+	}
+
+	// true if _file starts with the binary log magic number
+	public static boolean isBinaryLog(File _file)
+	{
+		byte[] magic = new byte[BinaryLogFormat.kMagic.length - 1];
+		try (RandomAccessFile in = new RandomAccessFile(_file, "r"))
+		{
+			in.readFully(magic);
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+		return Arrays.equals(magic, Arrays.copyOf(BinaryLogFormat.kMagic, magic.length));
+	}
+
+	@Override
+	public LogSchema getSchema() { return schema; }
+
+	@Override
+	public boolean isKeyframe()  { return keyframe; }
+
+	@Override
+	public long getPosition()    { return buf.position(); }
+
+	@Override
+	public void seek(long _position)
+	{
+		buf.position((int)_position);
+	}
+
+	@Override
+	public void setWantedColumns(boolean[] _wanted)
+	{
+		wanted = _wanted;
+	}
+
+	/*
+	 * Returns all the segments of a MappedBinaryLogSink log, given any one of them
+	 * (or just the file itself if it is not a segment)
+	 */
+	public static List<File> getSegments(File _file)
+	{
+		List<File> segments = new ArrayList<File>();
+		Matcher m = Pattern.compile("(.*)_(\\d{3})" + Pattern.quote(BinaryLogFormat.kFileExtension)).matcher(_file.getPath());
+		if (!m.matches())
+		{
+			segments.add(_file);
+			return segments;
+		}
+		for (int k = 0; ; k++)
+		{
+			File segment = MappedBinaryLogSink.getSegmentFile(m.group(1), k);
+			if (!segment.exists())
+				break;
+			segments.add(segment);
+		}
+		return segments;
+	}
+
+	// read the next data record into _record.  returns false at the end of the log
+	@Override
+	public boolean next(LogRecord _record) throws IOException
+	{
+		while (true)
+		{
+			byte tag = readRecord(_record);
+			if (tag == 0)
+				return false;
+			if (tag == BinaryLogFormat.kDataRecord)
+				return true;
+		}
+	}
+
+	@Override
+	public byte readRecord(LogRecord _record) throws IOException
+	{
+		int start = buf.position();
+		try
+		{
+			if (!buf.hasRemaining())
+				return 0;
+			byte tag = buf.get();
+			switch (tag)
+			{
+			case 0:
+				buf.position(start);
+				return 0;	// zero-filled end of a preallocated segment
+
+			case BinaryLogFormat.kSchemaRecord:
+				readSchema();
+				break;
+
+			case BinaryLogFormat.kStringRecord:
+				int id = buf.getInt();
+				String value = BinaryLogFormat.getString(buf);
+				while (strings.size() <= id)
+					strings.add(null);
+				strings.set(id, value);
+				break;
+
+			case BinaryLogFormat.kTimeSyncRecord:
+				syncNanos = buf.getLong();
+				syncMillis = buf.getLong();
+				break;
+
+			case BinaryLogFormat.kDataRecord:
+				readData(_record);
+				break;
+
+			default:
+				throw new IOException("bad record tag " + tag + " at " + start);
+			}
+			return tag;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException e)
+		{
+			buf.position(start);
+			return 0;		// truncated last record
+		}
+	}
+
+	private void readSchema()
+	{
+		int n = buf.getInt();
+		String[] names = new String[n];
+		byte[] types = new byte[n];
+		String[] units = new String[n];
+		for (int k = 0; k < n; k++)
+		{
+			types[k] = buf.get();
+			names[k] = BinaryLogFormat.getString(buf);
+			units[k] = BinaryLogFormat.getString(buf);
+		}
+		schema = new LogSchema(names, types, units);
+		newSchema = true;
+		wanted = null;		// the wanted columns were for the old schema
+	}
+
+	private void readData(LogRecord _record) throws IOException
+	{
+		if (schema == null)
+			throw new IOException("data record before schema");
+
+		int n = schema.size();
+		_record.timestampNanos = buf.getLong();
+		_record.wallMillis = syncMillis + Math.round((_record.timestampNanos - syncNanos) / 1e6);
+		_record.header = newSchema ? schema : null;
+		newSchema = false;
+		_record.ensureCapacity(n);
+		_record.numValues = n;
+
+		// version 1: presence bitmask, and a field for every column
+		// version 2: logged and missing bitmasks, and a field for every logged column
+		int bits = 0;
+		for (int k = 0; k < n; k++)
+		{
+			if (k % 8 == 0)
+				bits = buf.get() & 0xFF;
+			_record.types[k] = ((bits >> (k % 8)) & 1) != 0 ? schema.getType(k) : LogRecord.kHeld;
+		}
+		if (version >= 2)
+		{
+			for (int k = 0; k < n; k++)
+			{
+				if (k % 8 == 0)
+					bits = buf.get() & 0xFF;
+				if (((bits >> (k % 8)) & 1) != 0)
+					_record.types[k] = LogRecord.kMissing;
+			}
+		}
+
+		keyframe = true;
+		for (int k = 0; k < n; k++)
+		{
+			boolean logged = (_record.types[k] != LogRecord.kHeld) && (_record.types[k] != LogRecord.kMissing);
+			if (version >= 2 && !logged)
+			{
+				if (_record.types[k] == LogRecord.kHeld)
+					keyframe = false;
+				continue;
+			}
+			if (wanted != null && (k >= wanted.length || !wanted[k]))
+			{
+				// not needed: skip the field
+				buf.position(buf.position() + BinaryLogFormat.getFieldWidth(schema.getType(k)));
+				_record.types[k] = LogRecord.kMissing;
+				continue;
+			}
+			switch (schema.getType(k))
+			{
+			case LogRecord.kDouble:
+				_record.values[k] = buf.getDouble();
+				break;
+			case LogRecord.kInt:
+				_record.values[k] = buf.getInt();
+				break;
+			case LogRecord.kBoolean:
+				_record.values[k] = buf.get();
+				break;
+			case LogRecord.kString:
+			case LogRecord.kEnum:
+				int id = buf.getInt();
+				_record.strings[k] = (logged && id >= 0 && id < strings.size()) ? strings.get(id) : null;
+				break;
+			default:
+				break;
+			}
+			if (!logged)
+				_record.types[k] = LogRecord.kMissing;	// version 1 has no held columns
+		}
+
+		_record.fillHeld(last);
+		_record.updateHeld(last);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		file.close();
+	}
+}
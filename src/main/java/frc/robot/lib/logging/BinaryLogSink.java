@@ -0,0 +1,228 @@
+package frc.robot.lib.logging;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * Writes log records in the BinaryLogFormat: each row is a nanosecond
+ * timestamp and fixed-width primitive fields, instead of a formatted CSV line.
+ *
+ * Held columns (see DataLogger.Policy) are not written at all, so the size of
+ * a row depends on how many values changed.
+ *
+ * Records are packed into a 64 KB direct buffer that is written to the
+ * FileChannel when it fills up or when the batch is flushed.
+ * Use BinaryLogConverter to turn the file back into CSV.
+ *
+ * Subclasses can write somewhere else by overriding open(), reserve(),
+ * flush() and close(), and calling startFile() whenever they start a new file.
+ */
+public class BinaryLogSink implements LogSink
+{
+	public static final int kBufferSize = 64 * 1024;
+
+	protected final File file;
+	private FileChannel channel;
+	protected ByteBuffer buf;
+
+	private LogSchema schema;
+	private int recordSize;
+	private final HashMap<String, Integer> stringIds = new HashMap<String, Integer>();
+	private boolean timeSynced = false;
+	private int fileCount = 0;			// incremented by startFile()
+	private int keyframeCount = 0;		// fileCount when the last full record was written
+	private final LogRecord last = new LogRecord();		// last logged value of each column
+
+	public BinaryLogSink(File _file)
+	{
+		file = _file;
+	}
+
+	@Override
+	@SuppressWarnings("resource")
+	public void open() throws IOException
+	{
+		System.out.println("Opening log file: " + file.getName());
+		channel = new FileOutputStream(file).getChannel();
+		buf = ByteBuffer.allocateDirect(kBufferSize);
+		startFile();
+	}
+
+	/*
+	 * Start a new file: every file begins with the magic number and (once known) the schema,
+	 * and gets its own string defs and time sync, so that it can be read on its own.
+	 */
+	protected void startFile()
+	{
+		fileCount++;
+		stringIds.clear();
+		timeSynced = false;
+		buf.put(BinaryLogFormat.kMagic);
+		if (schema != null)
+			putSchema();
+	}
+
+	@Override
+	public void writeHeader(LogSchema _schema) throws IOException
+	{
+		schema = _schema;
+		recordSize = BinaryLogFormat.getDataRecordSize(schema);
+		reserve(getSchemaSize());
+		putSchema();
+	}
+
+	private int getSchemaSize()
+	{
+		int size = 1 + 4;
+		for (int k = 0; k < schema.size(); k++)
+			size += 1 + BinaryLogFormat.getStringSize(schema.getName(k)) + BinaryLogFormat.getStringSize(schema.getUnits(k));
+		return size;
+	}
+
+	private void putSchema()
+	{
+		buf.put(BinaryLogFormat.kSchemaRecord);
+		buf.putInt(schema.size());
+		for (int k = 0; k < schema.size(); k++)
+		{
+			buf.put(schema.getType(k));
+			BinaryLogFormat.putString(buf, schema.getName(k));
+			BinaryLogFormat.putString(buf, schema.getUnits(k));
+		}
+	}
+
+	@Override
+	public void writeRecord(LogRecord _record) throws IOException
+	{
+		int n = Math.min(_record.numValues, schema.size());
+
+		// the time sync, string defs and record must end up in the same file.
+		// if reserve() started a new file part way through, write them all again
+		int startCount;
+		do
+		{
+			startCount = fileCount;
+			if (keyframeCount != fileCount)
+			{
+				// first record in this file: write the held columns too, so the file can be read on its own
+				_record.fillHeld(last);
+				keyframeCount = fileCount;
+			}
+
+			if (!timeSynced)
+			{
+				reserve(1 + 8 + 8);
+				buf.put(BinaryLogFormat.kTimeSyncRecord);
+				buf.putLong(_record.timestampNanos);
+				buf.putLong(_record.wallMillis);
+				timeSynced = true;
+			}
+
+			// define any new strings before the record that uses them
+			for (int k = 0; k < n; k++)
+				if (_record.types[k] == LogRecord.kString || _record.types[k] == LogRecord.kEnum)
+					getStringId(_record.strings[k]);
+
+			reserve(recordSize);
+		}
+		while (fileCount != startCount);
+		_record.updateHeld(last);
+
+		buf.put(BinaryLogFormat.kDataRecord);
+		buf.putLong(_record.timestampNanos);
+
+		// logged and missing bitmasks (columns past the end of the record are missing)
+		int presenceBytes = BinaryLogFormat.getPresenceBytes(schema.size());
+		for (int b = 0; b < presenceBytes; b++)
+		{
+			int bits = 0;
+			for (int k = 8*b; k < Math.min(8*b + 8, n); k++)
+				if (isLogged(_record.types[k]))
+					bits |= 1 << (k - 8*b);
+			buf.put((byte)bits);
+		}
+		for (int b = 0; b < presenceBytes; b++)
+		{
+			int bits = 0;
+			for (int k = 8*b; k < Math.min(8*b + 8, schema.size()); k++)
+				if (k >= n || _record.types[k] == LogRecord.kMissing)
+					bits |= 1 << (k - 8*b);
+			buf.put((byte)bits);
+		}
+
+		// fixed-width fields of the logged columns, in the schema's types
+		for (int k = 0; k < n; k++)
+		{
+			if (!isLogged(_record.types[k]))
+				continue;
+			switch (schema.getType(k))
+			{
+			case LogRecord.kDouble:  buf.putDouble(_record.values[k]); break;
+			case LogRecord.kInt:     buf.putInt((int)_record.values[k]); break;
+			case LogRecord.kBoolean: buf.put((byte)(_record.values[k] != 0 ? 1 : 0)); break;
+			case LogRecord.kString:
+			case LogRecord.kEnum:    buf.putInt(stringIds.get(_record.strings[k])); break;
+			default: break;
+			}
+		}
+	}
+
+	private static boolean isLogged(byte _type)
+	{
+		return (_type != LogRecord.kMissing) && (_type != LogRecord.kHeld);
+	}
+
+	// returns the id of a string, writing a string def record the first time it is seen in this file
+	private int getStringId(String _value) throws IOException
+	{
+		Integer id = stringIds.get(_value);
+		if (id != null)
+			return id;
+
+		reserve(1 + 4 + BinaryLogFormat.getStringSize(_value));	// may start a new file (and clear stringIds)
+		int newId = stringIds.size();
+		stringIds.put(_value, newId);
+		buf.put(BinaryLogFormat.kStringRecord);
+		buf.putInt(newId);
+		BinaryLogFormat.putString(buf, _value);
+		return newId;
+	}
+
+	// make room for _size bytes in buf
+	protected void reserve(int _size) throws IOException
+	{
+		if (buf.remaining() < _size)
+			writeBuffer();
+		if (buf.remaining() < _size)
+			throw new IOException("log record of " + _size + " bytes does not fit in buffer");
+	}
+
+	private void writeBuffer() throws IOException
+	{
+		buf.flip();
+		while (buf.hasRemaining())
+			channel.write(buf);
+		buf.clear();
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		writeBuffer();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (channel != null)
+		{
+			writeBuffer();
+			channel.close();
+		}
+		channel = null;
+	}
+}
@@ -0,0 +1,241 @@
+package frc.robot.lib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reads a CSV log written by DataLogController (or CsvLogSink), one line at a time.
+ *
+ * The file is memory-mapped, so seeking (see LogIndex) costs nothing.  Each
+ * header line ("time,timeSinceStart,...") is a new schema.  CSV has no types,
+ * so numbers are read as doubles, true/false as booleans and anything else as
+ * a string.  Only the wanted columns are parsed.  timeSinceStart becomes the
+ * record's timestampNanos.
+ */
+public class CsvLogReader implements LogFileReader
+{
+	private static final byte[] kHeaderStart = "time,".getBytes(StandardCharsets.US_ASCII);
+
+	private final RandomAccessFile file;
+	private final ByteBuffer buf;
+	private LogSchema schema;
+	private boolean newSchema = false;
+	private boolean[] wanted = null;
+	private byte[] line = new byte[1024];
+	private int[] starts = new int[64], ends = new int[64];		// fields of the line
+	private final SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy HH:mm:ss.SS");
+	private long startWallMillis = Long.MIN_VALUE;
+
+	public CsvLogReader(File _file) throws IOException
+	{
+		file = new RandomAccessFile(_file, "r");
+		buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+	}
+
+	@Override
+	public LogSchema getSchema() { return schema; }
+
+	@Override
+	public boolean isKeyframe()  { return true; }		// every line is complete
+
+	@Override
+	public long getPosition()    { return buf.position(); }
+
+	@Override
+	public void seek(long _position)
+	{
+		buf.position((int)_position);
+	}
+
+	@Override
+	public void setWantedColumns(boolean[] _wanted)
+	{
+		wanted = _wanted;
+	}
+
+	@Override
+	public boolean next(LogRecord _record) throws IOException
+	{
+		while (true)
+		{
+			byte tag = readRecord(_record);
+			if (tag == 0)
+				return false;
+			if (tag == BinaryLogFormat.kDataRecord)
+				return true;
+		}
+	}
+
+	@Override
+	public byte readRecord(LogRecord _record) throws IOException
+	{
+		// copy the line (without its '\n') into line[]
+		int start = buf.position();
+		int end = start;
+		int limit = buf.limit();
+		while (end < limit && buf.get(end) != '\n')
+			end++;
+		if (end >= limit)
+			return 0;		// end of file, or a truncated last line
+		int length = end - start;
+		if (line.length < length)
+			line = new byte[Math.max(length, 2 * line.length)];
+		buf.get(line, 0, length);
+		buf.get();			// '\n'
+		if (length > 0 && line[length-1] == '\r')
+			length--;
+
+		int numFields = splitFields(length);
+		if (isHeader(length))
+		{
+			readHeader(numFields);
+			return BinaryLogFormat.kSchemaRecord;
+		}
+		if (schema == null)
+			throw new IOException("data before header at " + start);
+		readData(_record, numFields);
+		return BinaryLogFormat.kDataRecord;
+	}
+
+	private boolean isHeader(int _length)
+	{
+		if (_length < kHeaderStart.length)
+			return false;
+		for (int k = 0; k < kHeaderStart.length; k++)
+			if (line[k] != kHeaderStart[k])
+				return false;
+		return true;
+	}
+
+	// find the start and end of each field of the line
+	private int splitFields(int _length)
+	{
+		int n = 0;
+		int s = 0;
+		for (int k = 0; k <= _length; k++)
+		{
+			if (k == _length || line[k] == ',')
+			{
+				if (n >= starts.length)
+				{
+					starts = Arrays.copyOf(starts, 2 * n);
+					ends   = Arrays.copyOf(ends, 2 * n);
+				}
+				starts[n] = s;
+				ends[n] = k;
+				n++;
+				s = k + 1;
+			}
+		}
+		return n;
+	}
+
+	private String getField(int _n)
+	{
+		return new String(line, starts[_n], ends[_n] - starts[_n], StandardCharsets.US_ASCII);
+	}
+
+	private void readHeader(int _numFields)
+	{
+		ArrayList<String> names = new ArrayList<String>();
+		for (int f = 2; f < _numFields; f++)
+			names.add(getField(f));
+		int n = names.size();
+		byte[] types = new byte[n];
+		String[] units = new String[n];
+		for (int k = 0; k < n; k++)
+		{
+			types[k] = LogRecord.kString;		// unknown until the values are read
+			units[k] = "";
+		}
+		schema = new LogSchema(names.toArray(new String[n]), types, units);
+		newSchema = true;
+		wanted = null;		// the wanted columns were for the old schema
+	}
+
+	private void readData(LogRecord _record, int _numFields) throws IOException
+	{
+		long timeSinceStart = parseLong(1, _numFields);
+		if (startWallMillis == Long.MIN_VALUE)
+		{
+			try
+			{
+				startWallMillis = format.parse(getField(0)).getTime() - timeSinceStart;
+			}
+			catch (ParseException e)
+			{
+				startWallMillis = 0;
+			}
+		}
+		_record.timestampNanos = timeSinceStart * 1000000L;
+		_record.wallMillis = startWallMillis + timeSinceStart;
+		_record.header = newSchema ? schema : null;
+		newSchema = false;
+
+		int n = schema.size();
+		_record.ensureCapacity(n);
+		_record.numValues = n;
+		for (int k = 0; k < n; k++)
+		{
+			int f = k + 2;
+			if (f >= _numFields || starts[f] == ends[f] || (wanted != null && (k >= wanted.length || !wanted[k])))
+			{
+				_record.setMissing(k);
+				continue;
+			}
+			byte c = line[starts[f]];
+			int length = ends[f] - starts[f];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '.' || c == 'N' || c == 'I')
+			{
+				String text = getField(f);
+				try
+				{
+					_record.setDouble(k, Double.parseDouble(text));
+				}
+				catch (NumberFormatException e)
+				{
+					_record.setString(k, text);
+				}
+			}
+			else if (length == 4 && c == 't' && line[starts[f]+1] == 'r')
+				_record.setBoolean(k, true);
+			else if (length == 5 && c == 'f' && line[starts[f]+1] == 'a')
+				_record.setBoolean(k, false);
+			else
+				_record.setString(k, getField(f));
+		}
+	}
+
+	private long parseLong(int _f, int _numFields) throws IOException
+	{
+		if (_f >= _numFields || starts[_f] == ends[_f])
+			throw new IOException("missing timeSinceStart");
+		long value = 0;
+		boolean negative = false;
+		for (int k = starts[_f]; k < ends[_f]; k++)
+		{
+			byte c = line[k];
+			if (c == '-' && k == starts[_f])
+				negative = true;
+			else if (c >= '0' && c <= '9')
+				value = 10 * value + (c - '0');
+			else
+				throw new IOException("bad timeSinceStart " + getField(_f));
+		}
+		return negative ? -value : value;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		file.close();
+	}
+}
@@ -0,0 +1,104 @@
+package frc.robot.lib.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Writes log records as CSV, in the same layout DataLogController has always used:
+ * time,timeSinceStart,<values...>
+ *
+ * Held columns (see DataLogger.Policy) are written with their last logged value,
+ * so every row is complete.
+ */
+public class CsvLogSink implements LogSink
+{
+	public static final int kBufferSize = 64 * 1024;
+
+	private final File file;
+	private Writer out;
+	private long startMillis = -1;
+
+	private final SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy HH:mm:ss.SS");
+	private final Date date = new Date();
+	private final StringBuilder line = new StringBuilder(1024);
+	private final LogRecord last = new LogRecord();		// last logged value of each column
+
+	public CsvLogSink(File _file)
+	{
+		file = _file;
+	}
+
+	@Override
+	public void open() throws IOException
+	{
+		System.out.println("Opening log file: " + file.getName());
+		out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII), kBufferSize);
+	}
+
+	@Override
+	public void writeHeader(LogSchema _schema) throws IOException
+	{
+		line.setLength(0);
+		line.append("time,timeSinceStart");
+		for (int k = 0; k < _schema.size(); k++)
+		{
+			// remove SmartDashboard folder hierarchy
+			String name = _schema.getName(k);
+			line.append(',').append(name.substring(name.lastIndexOf('/') + 1));
+		}
+		line.append('\n');
+		out.append(line);
+	}
+
+	@Override
+	public void writeRecord(LogRecord _record) throws IOException
+	{
+		if (startMillis < 0)
+			startMillis = _record.wallMillis;
+
+		_record.fillHeld(last);
+		_record.updateHeld(last);
+
+		date.setTime(_record.wallMillis);
+		line.setLength(0);
+		line.append(format.format(date));
+		line.append(',').append(_record.wallMillis - startMillis);
+		for (int k = 0; k < _record.numValues; k++)
+		{
+			line.append(',');
+			switch (_record.types[k])
+			{
+			case LogRecord.kInt:     line.append((int)_record.values[k]); break;
+			case LogRecord.kBoolean: line.append(_record.values[k] != 0); break;
+			case LogRecord.kString:
+			case LogRecord.kEnum:    line.append(_record.strings[k]); break;
+			case LogRecord.kMissing: break;
+			case LogRecord.kDouble:
+			default:                 line.append(_record.values[k]); break;
+			}
+		}
+		line.append('\n');
+		out.append(line);
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (out != null)
+			out.close();
+		out = null;
+	}
+}
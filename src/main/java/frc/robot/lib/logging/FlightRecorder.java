@@ -0,0 +1,233 @@
+package frc.robot.lib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * "Black box" for a DataLogController: keeps the last rows of every channel in
+ * memory, and only writes them to a file when something goes wrong.
+ *
+ * Rows are preallocated LogRecords in a ring, so recording a row does not
+ * allocate or touch the file system.  There are two rings.  When a trigger
+ * fires, recording continues for the post-trigger rows, then the ring is
+ * frozen and written to a binary log file by a background thread while
+ * recording carries on in the other ring.
+ *
+ * trigger() (a loop overrun, a brownout, a dashboard button) can be called
+ * from any thread.  Triggers are ignored for kTriggerHoldoff seconds after one
+ * is accepted, so a run of overruns produces one file.  dumpNow() (a crash)
+ * freezes the ring and writes it on the calling thread straight away, since
+ * the program may not get to run another loop.  It is held off the same way,
+ * so code that keeps crashing doesn't write a file every time.
+ */
+public class FlightRecorder
+{
+	public static final double kDefaultPostTrigger = 2.0;	// seconds recorded after a trigger, before the dump
+	public static final double kTriggerHoldoff     = 30.0;	// seconds after a trigger before another is accepted
+
+	private static final ArrayList<FlightRecorder> recorders = new ArrayList<FlightRecorder>();
+
+	// trigger every FlightRecorder
+	public static void triggerAll(String _reason)
+	{
+		synchronized (recorders)
+		{
+			for (int k = 0; k < recorders.size(); k++)
+				recorders.get(k).trigger(_reason);
+		}
+	}
+
+	// dump every FlightRecorder now, on this thread
+	public static void dumpAll(String _reason)
+	{
+		synchronized (recorders)
+		{
+			for (int k = 0; k < recorders.size(); k++)
+				recorders.get(k).dumpNow(_reason);
+		}
+	}
+
+	private static class Ring
+	{
+		final LogRecord[] rows;
+		long count = 0;					// rows published
+		long dumpEnd;					// count when the ring was frozen
+		volatile boolean dumping = false;
+
+		Ring(int _rows)
+		{
+			rows = new LogRecord[_rows];
+			for (int k = 0; k < _rows; k++)
+				rows[k] = new LogRecord();
+		}
+	}
+
+	private final String name;
+	private final File directory;
+	private final int postTriggerRows;
+	private final Ring[] rings;
+	private Ring active;				// ring being recorded into
+	private Ring claimed;				// ring of the row returned by claim()
+
+	private int rowsUntilDump = -1;		// -1: no trigger pending
+	private String dumpReason;
+	private long holdoffUntilNanos = Long.MIN_VALUE;
+
+	private long dumps;
+	private long ignoredTriggers;
+
+	public FlightRecorder(String _name, File _directory, int _rows, int _postTriggerRows)
+	{
+		name = _name;
+		directory = _directory;
+		postTriggerRows = Math.min(_postTriggerRows, _rows - 1);
+		rings = new Ring[] { new Ring(_rows), new Ring(_rows) };
+		active = rings[0];
+
+		synchronized (recorders)
+		{
+			recorders.add(this);
+		}
+	}
+
+	/*
+	 * Producer (the DataLogController's thread): fill in the row returned by claim(), then call publish()
+	 */
+	public synchronized LogRecord claim()
+	{
+		claimed = active;
+		return claimed.rows[(int)(claimed.count % claimed.rows.length)];
+	}
+
+	public synchronized void publish()
+	{
+		claimed.count++;
+
+		if (rowsUntilDump > 0)
+			rowsUntilDump--;
+		if (rowsUntilDump == 0)
+		{
+			Ring frozen = freeze();
+			if (frozen != null)		// otherwise the other ring is still being written: try again next row
+			{
+				rowsUntilDump = -1;
+				startDump(frozen, dumpReason);
+			}
+		}
+	}
+
+	// write the recorded rows (and the next post-trigger rows) to a file
+	public synchronized void trigger(String _reason)
+	{
+		if (rowsUntilDump >= 0)
+			return;		// already going to dump
+
+		long now = System.nanoTime();
+		if (now < holdoffUntilNanos)
+		{
+			ignoredTriggers++;
+			return;
+		}
+		holdoffUntilNanos = now + (long)(kTriggerHoldoff * 1e9);
+		dumpReason = _reason;
+		rowsUntilDump = postTriggerRows;
+	}
+
+	// write the recorded rows to a file now, on the calling thread
+	public void dumpNow(String _reason)
+	{
+		Ring frozen;
+		synchronized (this)
+		{
+			long now = System.nanoTime();
+			if (now < holdoffUntilNanos)
+			{
+				ignoredTriggers++;
+				return;
+			}
+			frozen = freeze();
+			holdoffUntilNanos = now + (long)(kTriggerHoldoff * 1e9);
+		}
+		if (frozen == null)
+		{
+			System.out.println("FlightRecorder " + name + ": already writing, " + _reason + " not written");
+			return;
+		}
+		dump(frozen, _reason);
+	}
+
+	// stop recording into the active ring, and switch to the other one (returns null if it is still being written)
+	private Ring freeze()
+	{
+		Ring spare = (active == rings[0]) ? rings[1] : rings[0];
+		if (spare.dumping)
+			return null;
+
+		Ring frozen = active;
+		frozen.dumping = true;
+		frozen.dumpEnd = frozen.count;
+		spare.count = 0;
+		active = spare;
+		return frozen;
+	}
+
+	private void startDump(final Ring _ring, final String _reason)
+	{
+		Thread thread = new Thread("FlightRecorder " + name)
+		{
+			@Override
+			public void run()
+			{
+				dump(_ring, _reason);
+			}
+		};
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private void dump(Ring _ring, String _reason)
+	{
+		// the oldest slot may have been claimed for a row that was never finished, so leave it out
+		long end = _ring.dumpEnd;
+		long first = Math.max(0, end - (_ring.rows.length - 1));
+
+		String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		File file = new File(directory, timestamp + "_" + name + "_flight_" + _reason + BinaryLogFormat.kFileExtension);
+		BinaryLogSink sink = new BinaryLogSink(file);
+		try
+		{
+			sink.open();
+			LogSchema header = null;
+			for (long n = first; n < end; n++)
+			{
+				LogRecord row = _ring.rows[(int)(n % _ring.rows.length)];
+				if (row.header != header)
+				{
+					header = row.header;
+					sink.writeHeader(header);
+				}
+				sink.writeRecord(row);
+			}
+			sink.close();
+			System.out.println("FlightRecorder " + name + ": wrote " + (end - first) + " rows (" + _reason + ")");
+		}
+		catch (IOException e)
+		{
+			System.out.println("FlightRecorder " + name + ": could not write " + file.getName() + ": " + e);
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				dumps++;
+			}
+			_ring.dumping = false;
+		}
+	}
+
+	public synchronized long getDumps()           { return dumps; }
+	public synchronized long getIgnoredTriggers() { return ignoredTriggers; }
+}
@@ -0,0 +1,37 @@
+package frc.robot.lib.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A log file that can be read one record at a time, and repositioned.
+ * Implemented by BinaryLogReader and CsvLogReader, and used by LogIndex and
+ * LogReader to jump straight to the part of a log they need.
+ *
+ * Records are identified by their BinaryLogFormat tag: schema records ('S'),
+ * the other metadata records a binary log has ('D', 'T') and data records ('R').
+ * A CSV header line is a schema record.
+ */
+public interface LogFileReader extends Closeable
+{
+	// read the record at the current position.  returns its tag, or 0 at the end of the file.
+	// _record is only filled in for a data record: its header is set if the schema changed
+	public byte readRecord(LogRecord _record) throws IOException;
+
+	// read up to and including the next data record.  returns false at the end of the file
+	public boolean next(LogRecord _record) throws IOException;
+
+	// true if the last data record did not depend on the data records before it (no held values)
+	public boolean isKeyframe();
+
+	public LogSchema getSchema();
+
+	// byte offset of the next record
+	public long getPosition();
+
+	public void seek(long _position);
+
+	// only the columns set in _wanted need to be read (a hint: others may be read anyway).  null reads them all.
+	// applies to the current schema: a new schema resets it to null
+	public void setWantedColumns(boolean[] _wanted);
+}
@@ -0,0 +1,231 @@
+package frc.robot.lib.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Time index of a log file: timestamp -> byte offset, so a LogFileReader can
+ * start reading just before the time it needs instead of at the start of
+ * the file.
+ *
+ * Entries are made at keyframes (data records that don't depend on the ones
+ * before them), at most kDefaultInterval apart.  The offsets of the metadata
+ * records (schemas, string defs and time syncs) are kept too: seek() replays
+ * the ones before the entry, which is all a reader needs to carry on from
+ * there.
+ *
+ * The index is saved next to the log as <log>.idx, and rebuilt when the log's
+ * length or modification time no longer match.
+ */
+public class LogIndex
+{
+	public static final String kFileExtension = ".idx";
+	public static final double kDefaultInterval = 0.1;		// seconds between entries (at most)
+
+	private static final byte[] kMagic = { 'F', 'R', 'C', 'I', 'D', 'X', 0, 1 };
+
+	private long sourceLength;
+	private long sourceModified;
+	private long firstNanos = Long.MAX_VALUE;		// timestamp of the first data record
+	private long lastNanos = Long.MIN_VALUE;		// timestamp of the last data record
+	private int numEntries = 0;
+	private long[] entryNanos = new long[256];
+	private long[] entryOffsets = new long[256];
+	private int numMeta = 0;
+	private long[] metaOffsets = new long[64];
+
+	private LogIndex()
+	{
+	}
+
+	public static File getIndexFile(File _log)
+	{
+		return new File(_log.getPath() + kFileExtension);
+	}
+
+	/*
+	 * Returns the index of _log, loading it from the sidecar file if it is up to date,
+	 * or building it with _reader (and saving it, if the directory is writable)
+	 */
+	public static LogIndex get(File _log, LogFileReader _reader) throws IOException
+	{
+		File indexFile = getIndexFile(_log);
+		LogIndex index = load(indexFile, _log);
+		if (index != null)
+			return index;
+
+		index = build(_log, _reader);
+		try
+		{
+			index.save(indexFile);
+		}
+		catch (IOException e)
+		{
+			System.out.println("LogIndex: could not save " + indexFile.getName() + ": " + e);
+		}
+		return index;
+	}
+
+	// read the whole log once, from the reader's current position (just after any file header)
+	public static LogIndex build(File _log, LogFileReader _reader) throws IOException
+	{
+		LogIndex index = new LogIndex();
+		index.sourceLength = _log.length();
+		index.sourceModified = _log.lastModified();
+
+		long intervalNanos = (long)(kDefaultInterval * 1e9);
+		LogRecord record = new LogRecord();
+		boolean[] none = new boolean[0];
+		_reader.setWantedColumns(none);		// only the timestamps are needed
+		while (true)
+		{
+			long position = _reader.getPosition();
+			byte tag = _reader.readRecord(record);
+			if (tag == 0)
+				break;
+			if (tag != BinaryLogFormat.kDataRecord)
+			{
+				index.addMeta(position);
+				_reader.setWantedColumns(none);		// a new schema resets it
+				continue;
+			}
+
+			if (record.timestampNanos < index.firstNanos)
+				index.firstNanos = record.timestampNanos;
+			if (record.timestampNanos > index.lastNanos)
+				index.lastNanos = record.timestampNanos;
+			if (_reader.isKeyframe() && (index.numEntries == 0 || record.timestampNanos - index.entryNanos[index.numEntries-1] >= intervalNanos))
+				index.addEntry(record.timestampNanos, position);
+		}
+		_reader.setWantedColumns(null);
+		return index;
+	}
+
+	private void addEntry(long _nanos, long _offset)
+	{
+		if (numEntries == entryNanos.length)
+		{
+			entryNanos   = Arrays.copyOf(entryNanos, 2 * numEntries);
+			entryOffsets = Arrays.copyOf(entryOffsets, 2 * numEntries);
+		}
+		entryNanos[numEntries] = _nanos;
+		entryOffsets[numEntries] = _offset;
+		numEntries++;
+	}
+
+	private void addMeta(long _offset)
+	{
+		if (numMeta == metaOffsets.length)
+			metaOffsets = Arrays.copyOf(metaOffsets, 2 * numMeta);
+		metaOffsets[numMeta++] = _offset;
+	}
+
+	public int  getNumEntries() { return numEntries; }
+	public long getFirstNanos() { return firstNanos; }
+	public long getLastNanos()  { return lastNanos; }
+	public boolean isEmpty()    { return numEntries == 0; }
+
+	/*
+	 * Position _reader at the last entry at or before _nanos (or the first entry), with the
+	 * schema and string defs that apply there.  The next data record it reads is that entry.
+	 * returns false if the log has no data records
+	 */
+	public boolean seek(LogFileReader _reader, long _nanos) throws IOException
+	{
+		if (numEntries == 0)
+			return false;
+
+		// last entry with entryNanos <= _nanos
+		int k = Arrays.binarySearch(entryNanos, 0, numEntries, _nanos);
+		if (k < 0)
+			k = -k - 2;		// insertion point - 1
+		k = Math.max(0, Math.min(k, numEntries - 1));
+		while (k > 0 && entryNanos[k-1] == entryNanos[k])
+			k--;
+		long offset = entryOffsets[k];
+
+		LogRecord scratch = new LogRecord();
+		for (int m = 0; m < numMeta && metaOffsets[m] < offset; m++)
+		{
+			_reader.seek(metaOffsets[m]);
+			_reader.readRecord(scratch);
+		}
+		_reader.seek(offset);
+		return true;
+	}
+
+	/*
+	 * Sidecar file
+	 */
+	public void save(File _file) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file))))
+		{
+			out.write(kMagic);
+			out.writeLong(sourceLength);
+			out.writeLong(sourceModified);
+			out.writeLong(firstNanos);
+			out.writeLong(lastNanos);
+			out.writeInt(numEntries);
+			for (int k = 0; k < numEntries; k++)
+			{
+				out.writeLong(entryNanos[k]);
+				out.writeLong(entryOffsets[k]);
+			}
+			out.writeInt(numMeta);
+			for (int k = 0; k < numMeta; k++)
+				out.writeLong(metaOffsets[k]);
+		}
+	}
+
+	// returns null if there is no index for _log, or it is out of date
+	public static LogIndex load(File _file, File _log)
+	{
+		if (!_file.exists())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(_file))))
+		{
+			byte[] magic = new byte[kMagic.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, kMagic))
+				return null;
+
+			LogIndex index = new LogIndex();
+			index.sourceLength = in.readLong();
+			index.sourceModified = in.readLong();
+			if (index.sourceLength != _log.length() || index.sourceModified != _log.lastModified())
+				return null;
+			index.firstNanos = in.readLong();
+			index.lastNanos = in.readLong();
+
+			int n = in.readInt();
+			index.entryNanos = new long[Math.max(n, 1)];
+			index.entryOffsets = new long[Math.max(n, 1)];
+			for (int k = 0; k < n; k++)
+			{
+				index.entryNanos[k] = in.readLong();
+				index.entryOffsets[k] = in.readLong();
+			}
+			index.numEntries = n;
+
+			int m = in.readInt();
+			index.metaOffsets = new long[Math.max(m, 1)];
+			for (int k = 0; k < m; k++)
+				index.metaOffsets[k] = in.readLong();
+			index.numMeta = m;
+			return index;
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package frc.robot.lib.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Command line tool to pull a few channels for a time range out of a log.
+ *
+ * Usage: java frc.robot.lib.logging.LogQuery <log> [-from <s>] [-to <s>] [-channels <a,b,...>] [-out <file.csv>] [-list]
+ *
+ * <log> is a CSV or binary log (any segment of a segmented binary log).
+ * Times are seconds since the first row.  Writes CSV (t,<channels...>) to
+ * the -out file, or to stdout.  -list prints the channels at -from instead.
+ * The first query of a log builds its index (<log>.idx); later ones go
+ * straight to the rows they need.
+ */
+public class LogQuery
+{
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: LogQuery <log> [-from <s>] [-to <s>] [-channels <a,b,...>] [-out <file.csv>] [-list]");
+			return;
+		}
+
+		double from = 0;
+		double to = Double.MAX_VALUE;
+		String[] channels = null;
+		String outName = null;
+		boolean list = false;
+		for (int k = 1; k < args.length; k++)
+		{
+			if (args[k].equals("-from") && k+1 < args.length)
+				from = Double.parseDouble(args[++k]);
+			else if (args[k].equals("-to") && k+1 < args.length)
+				to = Double.parseDouble(args[++k]);
+			else if (args[k].equals("-channels") && k+1 < args.length)
+				channels = args[++k].split(",");
+			else if (args[k].equals("-out") && k+1 < args.length)
+				outName = args[++k];
+			else if (args[k].equals("-list"))
+				list = true;
+			else
+			{
+				System.out.println("Unknown argument " + args[k]);
+				return;
+			}
+		}
+
+		long start = System.nanoTime();
+		try (LogReader reader = new LogReader(new File(args[0])))
+		{
+			long indexed = System.nanoTime();
+			System.err.printf("%d file(s), %.3f s long, opened in %.1f ms\n", reader.getFiles().size(), reader.getDuration(), (indexed - start) / 1e6);
+
+			if (list)
+			{
+				LogSchema schema = reader.getSchema(from);
+				if (schema != null)
+					for (int k = 0; k < schema.size(); k++)
+						System.out.println(schema.getName(k) + (schema.getUnits(k).isEmpty() ? "" : " [" + schema.getUnits(k) + "]"));
+				return;
+			}
+
+			final Writer out = new BufferedWriter(new OutputStreamWriter((outName != null) ? new FileOutputStream(outName) : System.out, StandardCharsets.US_ASCII), 64 * 1024);
+			final StringBuilder line = new StringBuilder(1024);
+			int rows = reader.query(from, to, channels, new LogReader.RowHandler()
+			{
+				@Override
+				public void onRow(double _time, LogRecord _row) throws IOException
+				{
+					line.setLength(0);
+					if (_row.header != null)
+					{
+						line.append('t');
+						for (int k = 0; k < _row.header.size(); k++)
+							line.append(',').append(_row.header.getName(k));
+						line.append('\n');
+					}
+					line.append(String.format("%.3f", _time));
+					for (int k = 0; k < _row.numValues; k++)
+					{
+						line.append(',');
+						switch (_row.types[k])
+						{
+						case LogRecord.kInt:     line.append((int)_row.values[k]); break;
+						case LogRecord.kBoolean: line.append(_row.values[k] != 0); break;
+						case LogRecord.kString:
+						case LogRecord.kEnum:    line.append(_row.strings[k]); break;
+						case LogRecord.kMissing: break;
+						case LogRecord.kDouble:
+						default:                 line.append(_row.values[k]); break;
+						}
+					}
+					line.append('\n');
+					out.append(line);
+				}
+			});
+			out.flush();
+			if (outName != null)
+				out.close();
+			System.err.printf("%d rows in %.1f ms\n", rows, (System.nanoTime() - indexed) / 1e6);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package frc.robot.lib.logging;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads selected channels of a log for a time range, using each file's
+ * LogIndex to start reading just before the range.
+ *
+ * Works on CSV logs and binary logs (all segments of a MappedBinaryLogSink
+ * log, given any one of them).  Times are in seconds since the first row of
+ * the log.
+ *
+ * Channels are matched by name.  CSV headers drop the SmartDashboard folders,
+ * so "lSpeed" matches "DriveState/lSpeed" and the other way round.  A name
+ * that matches exactly wins.  Otherwise, if a channel matches more than one
+ * column (e.g. "DriveState/lSpeed" and "PathVision/lSpeed" both read back as
+ * "lSpeed" from a CSV log), query() throws an IOException rather than guess.
+ */
+public class LogReader implements Closeable
+{
+	public interface RowHandler
+	{
+		// _row has the requested channels, in order (missing if a channel is not in the log at that time).
+		// _row.header is set on the first row, and whenever the log's columns change
+		public void onRow(double _time, LogRecord _row) throws IOException;
+	}
+
+	private final List<File> files;
+	private final List<LogFileReader> readers = new ArrayList<LogFileReader>();
+	private final List<LogIndex> indexes = new ArrayList<LogIndex>();
+	private long originNanos = Long.MAX_VALUE;
+
+	public LogReader(File _file) throws IOException
+	{
+		files = BinaryLogReader.isBinaryLog(_file) ? BinaryLogReader.getSegments(_file) : new ArrayList<File>();
+		if (files.isEmpty())
+			files.add(_file);
+
+		try
+		{
+			for (File file : files)
+			{
+				LogFileReader reader = BinaryLogReader.isBinaryLog(file) ? new BinaryLogReader(file) : new CsvLogReader(file);
+				readers.add(reader);
+				LogIndex index = LogIndex.get(file, reader);
+				indexes.add(index);
+				if (!index.isEmpty())
+					originNanos = Math.min(originNanos, index.getFirstNanos());
+			}
+		}
+		catch (IOException e)
+		{
+			close();
+			throw e;
+		}
+	}
+
+	public List<File> getFiles() { return files; }
+
+	// seconds from the first row to the last
+	public double getDuration()
+	{
+		long last = Long.MIN_VALUE;
+		for (LogIndex index : indexes)
+			last = Math.max(last, index.getLastNanos());
+		return (last == Long.MIN_VALUE) ? 0 : (last - originNanos) / 1e9;
+	}
+
+	// the columns of the log at time _time (null if there are none)
+	public LogSchema getSchema(double _time) throws IOException
+	{
+		long nanos = toNanos(_time);
+		LogSchema schema = null;
+		for (int k = 0; k < readers.size(); k++)
+		{
+			LogIndex index = indexes.get(k);
+			if (index.isEmpty() || (schema != null && index.getFirstNanos() > nanos))
+				break;
+			LogFileReader reader = readers.get(k);
+			LogRecord record = new LogRecord();
+			index.seek(reader, nanos);
+			if (reader.next(record))
+				schema = reader.getSchema();
+		}
+		return schema;
+	}
+
+	/*
+	 * Calls _handler for each row from _start to _end seconds (inclusive).
+	 * _channels null reads every column.  Returns the number of rows
+	 */
+	public int query(double _start, double _end, String[] _channels, RowHandler _handler) throws IOException
+	{
+		long startNanos = toNanos(_start);
+		long endNanos = toNanos(_end);
+		LogRecord record = new LogRecord();
+		LogRecord row = new LogRecord();
+		LogSchema rowSchema = null;
+		int rows = 0;
+
+		for (int f = 0; f < readers.size(); f++)
+		{
+			LogIndex index = indexes.get(f);
+			if (index.isEmpty() || index.getLastNanos() < startNanos || index.getFirstNanos() > endNanos)
+				continue;
+
+			LogFileReader reader = readers.get(f);
+			index.seek(reader, startNanos);
+			LogSchema schema = null;
+			int[] columns = null;
+			while (reader.next(record))
+			{
+				if (reader.getSchema() != schema)
+				{
+					// new columns: find the channels, and only read those from now on
+					schema = reader.getSchema();
+					columns = findColumns(schema, _channels, files.get(f));
+					boolean[] wanted = new boolean[schema.size()];
+					for (int c : columns)
+						if (c >= 0)
+							wanted[c] = true;
+					reader.setWantedColumns(wanted);
+
+					LogSchema selected = selectColumns(schema, columns, _channels);
+					if (!selected.sameColumns(rowSchema))
+						rowSchema = selected;
+					else
+						selected = null;
+					row.header = selected;
+				}
+				if (record.timestampNanos < startNanos)
+					continue;
+				if (record.timestampNanos > endNanos)
+					break;
+
+				row.ensureCapacity(columns.length);
+				row.numValues = columns.length;
+				row.timestampNanos = record.timestampNanos;
+				row.wallMillis = record.wallMillis;
+				for (int k = 0; k < columns.length; k++)
+				{
+					int c = columns[k];
+					if (c < 0 || c >= record.numValues)
+					{
+						row.setMissing(k);
+						continue;
+					}
+					row.types[k]   = record.types[c];
+					row.values[k]  = record.values[c];
+					row.strings[k] = record.strings[c];
+				}
+				_handler.onRow((record.timestampNanos - originNanos) / 1e9, row);
+				row.header = null;
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	// log timestamp of _time seconds after the first row (saturating, so a huge _end reads to the end)
+	private long toNanos(double _time)
+	{
+		double nanos = originNanos + _time * 1e9;
+		return (nanos >= Long.MAX_VALUE) ? Long.MAX_VALUE : (nanos <= Long.MIN_VALUE) ? Long.MIN_VALUE : (long)nanos;
+	}
+
+	// the column of each channel in _schema (-1 if it is not there), or all the columns if _channels is null
+	private static int[] findColumns(LogSchema _schema, String[] _channels, File _file) throws IOException
+	{
+		if (_channels == null)
+		{
+			int[] columns = new int[_schema.size()];
+			for (int k = 0; k < columns.length; k++)
+				columns[k] = k;
+			return columns;
+		}
+
+		int[] columns = new int[_channels.length];
+		for (int j = 0; j < _channels.length; j++)
+		{
+			columns[j] = -1;
+			for (int pass = 0; pass < 2 && columns[j] < 0; pass++)
+			{
+				// exact names first, then names with a folder dropped
+				for (int k = 0; k < _schema.size(); k++)
+				{
+					String name = _schema.getName(k);
+					if ((pass == 0) ? name.equals(_channels[j]) : matches(name, _channels[j]))
+					{
+						if (columns[j] >= 0)
+							throw new IOException(String.format("LogReader: %s matches both %s and %s in %s (use a binary log, which keeps the folders)",
+									_channels[j], _schema.getName(columns[j]), name, _file));
+						columns[j] = k;
+					}
+				}
+			}
+		}
+		return columns;
+	}
+
+	// matches with a folder dropped from either name
+	private static boolean matches(String _name, String _channel)
+	{
+		return _name.endsWith("/" + _channel) || _channel.endsWith("/" + _name);
+	}
+
+	private static LogSchema selectColumns(LogSchema _schema, int[] _columns, String[] _channels)
+	{
+		int n = _columns.length;
+		String[] names = new String[n];
+		byte[] types = new byte[n];
+		String[] units = new String[n];
+		for (int k = 0; k < n; k++)
+		{
+			int c = _columns[k];
+			names[k] = (c >= 0) ? _schema.getName(c) : _channels[k];
+			types[k] = (c >= 0) ? _schema.getType(c) : LogRecord.kMissing;
+			units[k] = (c >= 0) ? _schema.getUnits(c) : "";
+		}
+		return new LogSchema(names, types, units);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		for (LogFileReader reader : readers)
+			reader.close();
+		readers.clear();
+	}
+}
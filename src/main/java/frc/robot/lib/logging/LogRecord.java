@@ -0,0 +1,127 @@
+package frc.robot.lib.logging;
+
+import java.util.Arrays;
+
+/**
+ * One row of log data, copied out of the DataLoggers by the control thread.
+ *
+ * LogRecords are the preallocated slots of a LogRingBuffer, and are reused.
+ * Values are stored as primitives (booleans and ints are stored in the
+ * double array, with their type), so copying a row does not allocate.
+ * Strings are stored by reference.
+ */
+public class LogRecord
+{
+	public static final byte kDouble  = 0;
+	public static final byte kInt     = 1;
+	public static final byte kBoolean = 2;
+	public static final byte kString  = 3;
+	public static final byte kEnum    = 4;	// ordinal in values[], name() in strings[]
+	public static final byte kMissing = 5;	// channel was not set this cycle
+	public static final byte kHeld    = 6;	// value has not changed since the last row that logged it (see DataLogger.Policy)
+
+	public long     wallMillis;		// System.currentTimeMillis() when the row was logged
+	public long     timestampNanos;	// System.nanoTime() when the row was logged
+	public LogSchema header;		// columns, only set on the first row after the columns change
+	public int      numValues;
+	public byte[]   types   = new byte[0];
+	public double[] values  = new double[0];
+	public String[] strings = new String[0];
+
+	// make room for _numValues values (keeping any already set).  only allocates when the number of columns grows
+	public void ensureCapacity(int _numValues)
+	{
+		if (types.length < _numValues)
+		{
+			int capacity = Math.max(_numValues, 2 * types.length);
+			types   = Arrays.copyOf(types, capacity);
+			values  = Arrays.copyOf(values, capacity);
+			strings = Arrays.copyOf(strings, capacity);
+		}
+	}
+
+	public void setDouble(int _k, double _value)
+	{
+		types[_k] = kDouble;
+		values[_k] = _value;
+	}
+
+	public void setInt(int _k, int _value)
+	{
+		types[_k] = kInt;
+		values[_k] = _value;
+	}
+
+	public void setBoolean(int _k, boolean _value)
+	{
+		types[_k] = kBoolean;
+		values[_k] = _value ? 1 : 0;
+	}
+
+	public void setString(int _k, String _value)
+	{
+		types[_k] = kString;
+		strings[_k] = _value;
+	}
+
+	public void setEnum(int _k, Enum<?> _value)
+	{
+		types[_k] = kEnum;
+		values[_k] = _value.ordinal();
+		strings[_k] = _value.name();
+	}
+
+	public void setMissing(int _k)
+	{
+		types[_k] = kMissing;
+	}
+
+	public void setHeld(int _k)
+	{
+		types[_k] = kHeld;
+	}
+
+	/*
+	 * Held values: _last keeps the last logged value of each column, for sinks and readers
+	 * that need full rows.  Call fillHeld() to replace the held columns of this row, then
+	 * updateHeld() to remember its values for the next row.  Neither allocates once _last
+	 * has grown to the number of columns.
+	 */
+	public void fillHeld(LogRecord _last)
+	{
+		int lastValues = (header != null) ? 0 : _last.numValues;	// new columns: the old values don't apply
+		for (int k = 0; k < numValues; k++)
+		{
+			if (types[k] != kHeld)
+				continue;
+			if (k < lastValues)
+			{
+				types[k]   = _last.types[k];
+				values[k]  = _last.values[k];
+				strings[k] = _last.strings[k];
+			}
+			else
+				types[k] = kMissing;	// nothing logged before (should not happen: the first row after a header logs every column)
+		}
+	}
+
+	public void updateHeld(LogRecord _last)
+	{
+		if (header != null)
+			_last.numValues = 0;		// new columns: forget the old values
+		_last.ensureCapacity(numValues);
+		for (int k = 0; k < numValues; k++)
+		{
+			if (types[k] == kHeld)
+			{
+				if (k >= _last.numValues)
+					_last.types[k] = kMissing;
+				continue;
+			}
+			_last.types[k]   = types[k];
+			_last.values[k]  = values[k];
+			_last.strings[k] = strings[k];
+		}
+		_last.numValues = numValues;
+	}
+}
@@ -0,0 +1,280 @@
+package frc.robot.lib.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import frc.robot.command_status.DriveState;
+import frc.robot.command_status.RobotState;
+import frc.robot.command_status.VisionStatus;
+import frc.robot.lib.util.Kinematics.WheelSpeed;
+import frc.robot.lib.util.Path;
+import frc.robot.lib.util.PathFollower;
+import frc.robot.lib.util.PathFollower.PathVisionState;
+import frc.robot.lib.util.Pose;
+import frc.robot.lib.util.VirtualClock;
+
+/**
+ * Re-runs odometry and path following on the sensor values recorded in an
+ * autonomous log, and compares the commands they produce now with the ones
+ * recorded.  Use it to check a controller change against a pile of match logs
+ * in seconds, instead of on the carpet.
+ *
+ * For each row of the log (in time order, with no waiting, on a VirtualClock
+ * set to the robot clock time PathFollower recorded for the row, or the log
+ * time plus the last known offset between the two):
+ *   1. the recorded DriveState encoder distances, speeds and gyro heading go
+ *      through RobotState.generateOdometryFromSensors()
+ *   2. during a PathFollowerAction, the recorded vision values are put in
+ *      VisionStatus, and PathFollower.calcWheelSpeed() gives the command
+ *      (PathFollower passes each new image on to RobotState, as VisionLoop does)
+ *   3. the recomputed and recorded commands (PathVision/lSpeed, rSpeed) and
+ *      poses are passed to a ReplayHandler
+ *
+ * The paths are not in the log: pass the ones the auto mode followed, in the
+ * order it followed them (a new PathFollower is started with the next one
+ * each time a PathFollowerAction starts in the log).  Each PathFollower
+ * keeps its own progress, so the same paths can be replayed any number of
+ * times.
+ *
+ * Replay uses the RobotState, DriveState and VisionStatus singletons, so only
+ * run one replay at a time, and not on the robot.  Logs from before the
+ * DriveState logger was added to the auto log have nothing to replay.
+ *
+ * The recorded command was computed by the auto thread from the latest
+ * odometry of the loop thread, which may be a loop behind the sensor values
+ * logged in the same row, so small differences are expected even with an
+ * unchanged controller.  AutoModeBase writes binary logs.  CSV headers drop
+ * the channel folders, so DriveState/lSpeed and PathVision/lSpeed can't be
+ * told apart: run() throws an IOException on a CSV auto log rather than
+ * replay the wrong columns.
+ *
+ * Usage: java frc.robot.lib.logging.LogReplay <PathSource class> <log>...
+ *   writes <log>_replay.csv next to each log and prints a summary of each.
+ */
+public class LogReplay
+{
+	/**
+	 * Supplies the initial pose and paths of an auto mode (for the command line, where it is given by class name)
+	 */
+	public interface PathSource
+	{
+		public Pose getInitialPose();
+		public List<Path> getPaths();
+	}
+
+	public interface ReplayHandler
+	{
+		// called for each row during path following.  _recorded is reused: copy it to keep it
+		public void onRow(double _time, WheelSpeed _recorded, WheelSpeed _replayed, Pose _recordedPose, Pose _replayedPose) throws IOException;
+	}
+
+	/**
+	 * Summary of a replay
+	 */
+	public static class Result
+	{
+		public int rows = 0;				// rows read
+		public int pathRows = 0;			// rows during path following (compared)
+		public int paths = 0;				// PathFollowerActions started
+		public double maxSpeedError = 0;	// largest difference between recorded and replayed wheel speeds (in/s)
+		public double rmsSpeedError = 0;
+		public double maxPoseError = 0;		// largest distance between recorded and replayed position (in)
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d rows, %d paths, %d compared: wheel speed error rms %.3f max %.3f in/s, pose error max %.3f in",
+					rows, paths, pathRows, rmsSpeedError, maxSpeedError, maxPoseError);
+		}
+	}
+
+	// columns requested from the log
+	private static final String[] kChannels = {
+		"DriveState/lDistance", "DriveState/rDistance", "DriveState/lSpeed", "DriveState/rSpeed", "DriveState/Heading",
+		"PathVision/imageTimestamp", "PathVision/normalizedTargetX", "PathVision/normalizedTargetWidth",
+		"PathVision/lSpeed", "PathVision/rSpeed",
+		"PathVision/positionX", "PathVision/positionY", "PathVision/headingDeg",
+		"PathVision/currentTime" };
+	private static final int kLDistance = 0, kRDistance = 1, kLSpeed = 2, kRSpeed = 3, kHeading = 4;
+	private static final int kImageTimestamp = 5, kTargetX = 6, kTargetWidth = 7;
+	private static final int kCmdLSpeed = 8, kCmdRSpeed = 9;
+	private static final int kPoseX = 10, kPoseY = 11, kPoseHeading = 12;
+	private static final int kCurrentTime = 13;
+
+	private final File log;
+	private final Pose initialPose;
+	private final List<Path> paths;
+
+	/*
+	 * _initialPose is the auto mode's initial pose (RobotState is reset to it at the first row)
+	 */
+	public LogReplay(File _log, Pose _initialPose, List<Path> _paths)
+	{
+		log = _log;
+		initialPose = _initialPose;
+		paths = _paths;
+	}
+
+	public Result run(final ReplayHandler _handler) throws IOException
+	{
+		final VirtualClock clock = new VirtualClock();
+		final RobotState robotState = RobotState.getInstance();
+		final DriveState driveState = DriveState.getInstance();
+		final VisionStatus visionStatus = VisionStatus.getInstance();
+		final Result result = new Result();
+		final WheelSpeed recorded = new WheelSpeed();
+
+		try (LogReader reader = new LogReader(log))
+		{
+			// replay on the robot's clock (recorded by PathFollower), not the log's:
+			// find the offset between them, for the rows before the first path
+			final double[] firstOffset = { Double.NaN };
+			reader.query(0, Double.MAX_VALUE, new String[] { kChannels[kCurrentTime] }, new LogReader.RowHandler()
+			{
+				@Override
+				public void onRow(double _time, LogRecord _row)
+				{
+					if (Double.isNaN(firstOffset[0]) && isValue(_row, 0))
+						firstOffset[0] = _row.values[0] - _time;
+				}
+			});
+
+			reader.query(0, Double.MAX_VALUE, kChannels, new LogReader.RowHandler()
+			{
+				double offset = Double.isNaN(firstOffset[0]) ? 0 : firstOffset[0];		// robot clock - log time
+				boolean started = false;
+				boolean pathColumns = false;
+				int nextPath = 0;
+				PathFollower follower = null;
+				double sumSquares = 0;
+
+				@Override
+				public void onRow(double _time, LogRecord _row) throws IOException
+				{
+					result.rows++;
+					if (isValue(_row, kCurrentTime))
+						offset = _row.values[kCurrentTime] - _time;
+					double time = Math.max(_time + offset, clock.getTime());
+					clock.advanceTo(time);
+					boolean sensors = isValue(_row, kLDistance) && isValue(_row, kHeading);
+					if (sensors && !started)
+					{
+						driveState.setHeadingDeg(_row.values[kHeading]);		// reset() calibrates the gyro from DriveState
+						robotState.reset(time, _row.values[kLDistance], _row.values[kRDistance], initialPose);
+						started = true;
+					}
+
+					if (_row.header != null)
+					{
+						// a new action: start the next path if it is a PathFollowerAction
+						boolean wasPath = pathColumns;
+						pathColumns = (_row.header.getType(kCmdLSpeed) != LogRecord.kMissing);
+						follower = null;
+						if (pathColumns && !wasPath)
+						{
+							if (nextPath < paths.size())
+							{
+								follower = new PathFollower(paths.get(nextPath++), PathVisionState.PATH_FOLLOWING, clock);
+								follower.setLedControl(false);		// no relay off the robot
+								follower.start();
+								result.paths++;
+							}
+							else
+								System.out.println("LogReplay: " + log.getName() + " has more PathFollowerActions than paths, at " + _time);
+						}
+					}
+
+					// odometry
+					if (!sensors)
+						return;		// no sensor values (not replayable)
+					double lDistance = _row.values[kLDistance];
+					double rDistance = _row.values[kRDistance];
+					driveState.setLeftDistanceInches(lDistance);
+					driveState.setRightDistanceInches(rDistance);
+					driveState.setLeftSpeedInchesPerSec(_row.values[kLSpeed]);
+					driveState.setRightSpeedInchesPerSec(_row.values[kRSpeed]);
+					driveState.setHeadingDeg(_row.values[kHeading]);
+					robotState.generateOdometryFromSensors(time, lDistance, rDistance,
+							driveState.getLeftSpeedInchesPerSec(), driveState.getRightSpeedInchesPerSec(), driveState.getHeading());
+
+					// path following
+					if (follower == null || !isValue(_row, kCmdLSpeed))
+						return;
+					visionStatus.setImageTimestamp(_row.values[kImageTimestamp]);
+					visionStatus.setNormalizedTargetX(_row.values[kTargetX]);
+					visionStatus.setNormalizedTargetWidth(_row.values[kTargetWidth]);
+					WheelSpeed replayed = follower.calcWheelSpeed();
+
+					recorded.left  = _row.values[kCmdLSpeed];
+					recorded.right = _row.values[kCmdRSpeed];
+					Pose recordedPose = new Pose(_row.values[kPoseX], _row.values[kPoseY], Math.toRadians(_row.values[kPoseHeading]));
+					Pose replayedPose = robotState.getLatestFieldToVehicle();
+
+					double lError = replayed.left - recorded.left;
+					double rError = replayed.right - recorded.right;
+					sumSquares += (lError*lError + rError*rError) / 2;
+					result.pathRows++;
+					result.rmsSpeedError = Math.sqrt(sumSquares / result.pathRows);
+					result.maxSpeedError = Math.max(result.maxSpeedError, Math.max(Math.abs(lError), Math.abs(rError)));
+					result.maxPoseError = Math.max(result.maxPoseError, Math.hypot(replayedPose.getX() - recordedPose.getX(), replayedPose.getY() - recordedPose.getY()));
+
+					if (_handler != null)
+						_handler.onRow(_time, recorded, replayed, recordedPose, replayedPose);
+				}
+			});
+		}
+		return result;
+	}
+
+	private static boolean isValue(LogRecord _row, int _k)
+	{
+		byte type = _row.types[_k];
+		return (type != LogRecord.kMissing) && (type != LogRecord.kHeld);
+	}
+
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 2)
+		{
+			System.out.println("Usage: LogReplay <PathSource class> <log>...");
+			return;
+		}
+		PathSource source = (PathSource)Class.forName(args[0]).getDeclaredConstructor().newInstance();
+
+		long start = System.nanoTime();
+		List<Result> results = new ArrayList<Result>();
+		for (int k = 1; k < args.length; k++)
+		{
+			File log = new File(args[k]);
+			File out = new File(log.getPath().replaceFirst("\\.[^.\\\\/]*$", "") + "_replay.csv");
+			try (final Writer writer = new BufferedWriter(new FileWriter(out)))
+			{
+				writer.write("t,lSpeed,rSpeed,replayLSpeed,replayRSpeed,positionX,positionY,headingDeg,replayPositionX,replayPositionY,replayHeadingDeg\n");
+				Result result = new LogReplay(log, source.getInitialPose(), source.getPaths()).run(new ReplayHandler()
+				{
+					@Override
+					public void onRow(double _time, WheelSpeed _recorded, WheelSpeed _replayed, Pose _recordedPose, Pose _replayedPose) throws IOException
+					{
+						writer.write(String.format("%.3f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f\n", _time,
+								_recorded.left, _recorded.right, _replayed.left, _replayed.right,
+								_recordedPose.getX(), _recordedPose.getY(), _recordedPose.getHeadingDeg(),
+								_replayedPose.getX(), _replayedPose.getY(), _replayedPose.getHeadingDeg()));
+					}
+				});
+				results.add(result);
+				System.out.println(log.getName() + ": " + result);
+			}
+			catch (IOException e)
+			{
+				System.out.println(log.getName() + ": " + e);
+			}
+		}
+		System.out.printf("%d logs replayed in %.2f s\n", results.size(), (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,99 @@
+package frc.robot.lib.logging;
+
+/**
+ * Single-producer, single-consumer ring of preallocated LogRecords.
+ *
+ * The producer (the control thread) claims a slot, fills it and publishes it.
+ * It never waits: if the consumer (the LogWriter) has fallen behind and the
+ * ring is full, the row is dropped and counted instead.  The consumer peeks
+ * at the oldest published slot and releases it once it has been written.
+ */
+public class LogRingBuffer
+{
+	public static final int kDefaultCapacity = 1024;	// ~20 s of rows at 50 Hz
+
+	private final LogRecord[] slots;
+	private final int mask;
+
+	private volatile long head = 0;		// next slot to be published (written by the producer only)
+	private volatile long tail = 0;		// next slot to be consumed (written by the consumer only)
+
+	// statistics (written by the producer only)
+	private volatile long published = 0;
+	private volatile long dropped = 0;
+	private volatile long overflows = 0;	// number of times the ring filled up
+	private volatile int  maxDepth = 0;
+	private boolean overflowing = false;
+
+	// _capacity is rounded up to a power of 2
+	public LogRingBuffer(int _capacity)
+	{
+		int capacity = Integer.highestOneBit(Math.max(_capacity, 2) - 1) << 1;
+		slots = new LogRecord[capacity];
+		for (int k = 0; k < capacity; k++)
+			slots[k] = new LogRecord();
+		mask = capacity - 1;
+	}
+
+	public LogRingBuffer()
+	{
+		this(kDefaultCapacity);
+	}
+
+	/*
+	 * Producer
+	 */
+
+	// returns the next free slot, or null if the ring is full (the row is counted as dropped)
+	public LogRecord claim()
+	{
+		if (head - tail >= slots.length)
+		{
+			dropped++;
+			if (!overflowing)
+			{
+				overflowing = true;
+				overflows++;
+			}
+			return null;
+		}
+		overflowing = false;
+		return slots[(int)(head & mask)];
+	}
+
+	// make the slot returned by claim() visible to the consumer
+	public void publish()
+	{
+		head++;
+		published++;
+		int depth = (int)(head - tail);
+		if (depth > maxDepth)
+			maxDepth = depth;
+	}
+
+	/*
+	 * Consumer
+	 */
+
+	// returns the oldest published slot, or null if the ring is empty
+	public LogRecord peek()
+	{
+		long t = tail;
+		if (t == head)
+			return null;
+		return slots[(int)(t & mask)];
+	}
+
+	// return the slot returned by peek() to the producer
+	public void release()
+	{
+		tail++;
+	}
+
+	public int  getCapacity()  { return slots.length; }
+	public int  getDepth()     { return (int)(head - tail); }
+	public int  getMaxDepth()  { return maxDepth; }
+	public long getPublished() { return published; }
+	public long getDropped()   { return dropped; }
+	public long getOverflows() { return overflows; }
+}
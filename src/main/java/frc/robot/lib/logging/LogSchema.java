@@ -0,0 +1,47 @@
+package frc.robot.lib.logging;
+
+import java.util.Arrays;
+
+/**
+ * The columns of a log: names and LogRecord value types.
+ *
+ * A LogSchema is immutable.  DataLogController builds a new one only when
+ * loggers or channels are added, and attaches it to the first LogRecord
+ * that uses it, so the writer knows when to write a new header.
+ */
+public class LogSchema
+{
+	private final String[] names;
+	private final byte[] types;
+	private final String[] units;	// "" if a channel has no units
+
+	public LogSchema(String[] _names, byte[] _types, String[] _units)
+	{
+		names = _names.clone();
+		types = _types.clone();
+		units = _units.clone();
+	}
+
+	public int    size()           { return names.length; }
+	public String getName(int _k)  { return names[_k]; }
+	public byte   getType(int _k)  { return types[_k]; }
+	public String getUnits(int _k) { return units[_k]; }
+
+	// true if both schemas have the same columns (names, types and units)
+	public boolean sameColumns(LogSchema _other)
+	{
+		return (_other != null) && Arrays.equals(names, _other.names) && Arrays.equals(types, _other.types) && Arrays.equals(units, _other.units);
+	}
+
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int k = 0; k < names.length; k++)
+		{
+			sb.append(k == 0 ? "" : ", ").append(names[k]).append(':').append(types[k]);
+			if (!units[k].isEmpty())
+				sb.append(" [").append(units[k]).append(']');
+		}
+		return sb.toString();
+	}
+}
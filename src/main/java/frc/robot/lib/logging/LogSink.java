@@ -0,0 +1,22 @@
+package frc.robot.lib.logging;
+
+import java.io.IOException;
+
+/**
+ * Output format for a LogWriter.  All methods are called from the LogWriter's
+ * thread, so they are free to block on file I/O.
+ */
+public interface LogSink
+{
+	public void open() throws IOException;
+
+	// columns of the rows that follow
+	public void writeHeader(LogSchema _schema) throws IOException;
+
+	public void writeRecord(LogRecord _record) throws IOException;
+
+	// called after each batch of records
+	public void flush() throws IOException;
+
+	public void close() throws IOException;
+}
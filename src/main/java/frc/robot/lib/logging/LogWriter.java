@@ -0,0 +1,139 @@
+package frc.robot.lib.logging;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.robot.lib.util.CrashTrackingRunnable;
+
+/**
+ * Background thread that drains a LogRingBuffer into a LogSink.
+ *
+ * The writer wakes up every kWritePeriod seconds (or when unparked), writes
+ * every published record in one batch and then flushes the sink, so the
+ * file system sees a few large writes instead of one small write per row.
+ */
+public class LogWriter
+{
+	public static final double kWritePeriod = 0.100;	// seconds between batches
+
+	private final LogRingBuffer ring;
+	private final LogSink sink;
+	private final String name;
+	private Thread thread;
+	private volatile boolean running = false;
+	private volatile boolean failed = false;
+
+	private long written = 0;
+	private long batches = 0;
+	private long reportedDrops = 0;
+
+	public LogWriter(String _name, LogRingBuffer _ring, LogSink _sink)
+	{
+		name = _name;
+		ring = _ring;
+		sink = _sink;
+	}
+
+	public synchronized void start()
+	{
+		if (running)
+			return;
+		running = true;
+		thread = new Thread(runnable, "LogWriter " + name);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// write anything left in the ring and close the sink
+	public synchronized void stop()
+	{
+		if (!running)
+			return;
+		running = false;
+		LockSupport.unpark(thread);
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+		thread = null;
+	}
+
+	// ask for the next batch to be written now (does not block)
+	public void wakeup()
+	{
+		Thread t = thread;
+		if (t != null)
+			LockSupport.unpark(t);
+	}
+
+	public boolean isRunning() { return running && !failed; }
+	public long getWritten()   { return written; }
+	public long getBatches()   { return batches; }
+
+	private final CrashTrackingRunnable runnable = new CrashTrackingRunnable()
+	{
+		@Override
+		public void runCrashTracked()
+		{
+			try
+			{
+				sink.open();
+				while (running)
+				{
+					LockSupport.parkNanos((long)(kWritePeriod * 1e9));
+					drain();
+				}
+				drain();
+			}
+			catch (IOException e)
+			{
+				// stop writing, the control thread will keep dropping rows into the full ring
+				failed = true;
+				e.printStackTrace();
+			}
+			finally
+			{
+				try
+				{
+					sink.close();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+	};
+
+	private void drain() throws IOException
+	{
+		int count = 0;
+		LogRecord record;
+		while ((record = ring.peek()) != null)
+		{
+			if (record.header != null)
+				sink.writeHeader(record.header);
+			sink.writeRecord(record);
+			ring.release();
+			count++;
+		}
+		if (count > 0)
+		{
+			sink.flush();
+			written += count;
+			batches++;
+		}
+
+		long drops = ring.getDropped();
+		if (drops != reportedDrops)
+		{
+			System.out.printf("LogWriter %s: dropped %d rows (%d overflows)\n", name, drops - reportedDrops, ring.getOverflows());
+			reportedDrops = drops;
+		}
+	}
+}
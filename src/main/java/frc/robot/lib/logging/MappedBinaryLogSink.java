@@ -0,0 +1,116 @@
+package frc.robot.lib.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes the BinaryLogFormat into preallocated, memory-mapped segment files.
+ *
+ * Each segment (<base>_000.bin, <base>_001.bin, ...) is created at its full
+ * size up front and mapped into memory, so writing a record is a memory copy:
+ * the file does not grow on every flush, and the file system metadata is only
+ * updated when a segment is created.  When a record does not fit, the next
+ * segment is started.  Each segment starts with the schema, so it can be read
+ * on its own.
+ *
+ * The unused end of a segment is zero-filled, which readers treat as the end
+ * of the segment.  On a clean close() the last segment is truncated to the
+ * data actually written.
+ */
+public class MappedBinaryLogSink extends BinaryLogSink
+{
+	public static final long kDefaultSegmentSize = 16 * 1024 * 1024;	// ~20 minutes of 270 byte rows at 50 Hz
+
+	private final String baseName;		// path without the segment number and extension
+	private final long segmentSize;
+	private int segment = -1;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+
+	// _file is the first segment's name without the segment number (e.g. 20181117-101500_auto.bin)
+	public MappedBinaryLogSink(File _file, long _segmentSize)
+	{
+		super(_file);
+		String path = _file.getPath();
+		if (path.endsWith(BinaryLogFormat.kFileExtension))
+			path = path.substring(0, path.length() - BinaryLogFormat.kFileExtension.length());
+		baseName = path;
+		segmentSize = _segmentSize;
+	}
+
+	public MappedBinaryLogSink(File _file)
+	{
+		this(_file, kDefaultSegmentSize);
+	}
+
+	public static File getSegmentFile(String _baseName, int _segment)
+	{
+		return new File(String.format("%s_%03d%s", _baseName, _segment, BinaryLogFormat.kFileExtension));
+	}
+
+	@Override
+	public void open() throws IOException
+	{
+		openSegment();
+	}
+
+	private void openSegment() throws IOException
+	{
+		segment++;
+		File segmentFile = getSegmentFile(baseName, segment);
+		System.out.println("Opening log segment: " + segmentFile.getName());
+
+		raf = new RandomAccessFile(segmentFile, "rw");
+		raf.setLength(segmentSize);		// preallocate
+		channel = raf.getChannel();
+		mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		buf = mapped;
+		startFile();
+	}
+
+	private void closeSegment(boolean _truncate) throws IOException
+	{
+		if (channel == null)
+			return;
+		long used = mapped.position();
+		mapped.force();
+		buf = null;
+		mapped = null;
+		if (_truncate)
+			channel.truncate(used);		// the mapping can't be released explicitly, but Linux allows truncating a mapped file
+		channel.close();
+		raf.close();
+		channel = null;
+		raf = null;
+	}
+
+	@Override
+	protected void reserve(int _size) throws IOException
+	{
+		if (buf.remaining() >= _size)
+			return;
+
+		// segment is full (the rest of it stays zero-filled): roll to the next one
+		closeSegment(false);
+		openSegment();
+		if (buf.remaining() < _size)
+			throw new IOException("log record of " + _size + " bytes does not fit in a segment");
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		// nothing to do: the records are already in the page cache, and the
+		// kernel writes dirty pages back without blocking the writer
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		closeSegment(true);
+	}
+}
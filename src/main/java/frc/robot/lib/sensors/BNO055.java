@@ -1,10 +1,8 @@
 package frc.robot.lib.sensors;
 
-import java.util.TimerTask;
-
 import edu.wpi.first.wpilibj.I2C;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.lib.util.Clock;
 
 /**
  * Attribution: copied from FRC team 2168, https://github.com/jcorcoran/BNO055_FRC/blob/master/src/org/team2168/utils/BNO055.java
@@ -80,7 +78,8 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  */
 public class BNO055 extends GyroBase {
 	//Tread variables
-	private java.util.Timer executor;
+	private Clock clock;
+	private Clock.PeriodicTask executor;
 	private static final long THREAD_PERIOD = 20; //ms - max poll rate on sensor.
 	
 	public static final byte BNO055_ADDRESS_A = 0x28;
@@ -396,8 +395,9 @@ public class BNO055 extends GyroBase {
 	private BNO055(I2C.Port port, byte address) {
 		imu = new I2C(port, address);
 		
-		executor = new java.util.Timer();
-		executor.schedule(new BNO055UpdateTask(this), 0L, THREAD_PERIOD);
+		clock = Clock.getDefault();
+		executor = clock.createPeriodic(new BNO055UpdateTask(this));
+		executor.startPeriodic(THREAD_PERIOD / 1000.0);
 	}
 	
 	/**
@@ -452,7 +452,7 @@ public class BNO055 extends GyroBase {
 	 */
 	private void update() 
 	{
-		currentTime = Timer.getFPGATimestamp(); //seconds
+		currentTime = clock.getTime(); //seconds
 		if(!initialized) 
 		{
 			//System.out.println("State: " + state + ".  curr: " + currentTime + ", next: " + nextTime);
@@ -475,15 +475,14 @@ public class BNO055 extends GyroBase {
 					//Sensor present, go to next state
 					sensorPresent = true;
 					state++;
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+					nextTime = clock.getTime() + 0.050;
 				}
 				break;
 			case 1:
 				if(currentTime >= nextTime) 
 				{
 					//Switch to config mode (just in case since this is the default)
-					nextTime = Timer.getFPGATimestamp() + 0.050;	// grabbing time before setMode, since setMode has it's own delay
-					setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
+					setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());	// sets nextTime: wait for the switch in the next state
 					state++;
 				}
 				break;
@@ -502,7 +501,7 @@ public class BNO055 extends GyroBase {
 					//Sensor present, go to next state
 					state++;
 					//Log current time
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+					nextTime = clock.getTime() + 0.050;
 				}
 				break;
 			case 4:
@@ -511,7 +510,7 @@ public class BNO055 extends GyroBase {
 				{
 					//Switch to config mode (just in case since this is the default)
 					setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+					nextTime = clock.getTime() + 0.050;
 					state++;
 				}
 				break;
@@ -521,8 +520,8 @@ public class BNO055 extends GyroBase {
 				//Write accelerometer calibration values
 				if(currentTime >= nextTime) 
 				{
-					nextTime = Timer.getFPGATimestamp() + 0.050;	// grabbing time before setCalibrationOffsets, since setCalibrationOffsets has it's own delay
-					setCalibrationOffsets();
+					writeCalibrationOffsets();		// already in config mode (state 4)
+					nextTime = clock.getTime() + 0.050;
 					state++;
 				}
 				break;
@@ -532,7 +531,7 @@ public class BNO055 extends GyroBase {
 				{
 					/* Set to normal power mode */
 					write8(reg_t.BNO055_PWR_MODE_ADDR, (byte) powermode_t.POWER_MODE_NORMAL.getVal());
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+					nextTime = clock.getTime() + 0.050;
 					state++;
 				}
 				break;
@@ -541,7 +540,7 @@ public class BNO055 extends GyroBase {
 				if(currentTime >= nextTime) 
 				{
 					write8(reg_t.BNO055_PAGE_ID_ADDR, (byte) 0x00);
-					nextTime = Timer.getFPGATimestamp() + 0.050;
+					nextTime = clock.getTime() + 0.050;
 					state++;
 				}
 				break;
@@ -549,7 +548,7 @@ public class BNO055 extends GyroBase {
 				if(currentTime >= nextTime) 
 				{
 					write8(reg_t.BNO055_SYS_TRIGGER_ADDR, (byte) 0x80);	// CLK_SEL = 1: selects external oscillator
-					nextTime = Timer.getFPGATimestamp() + 0.500;
+					nextTime = clock.getTime() + 0.500;
 					state++;
 				}
 				break;
@@ -557,8 +556,8 @@ public class BNO055 extends GyroBase {
 				//Set operating mode to mode requested at instantiation
 				if(currentTime >= nextTime) 
 				{
-					nextTime = Timer.getFPGATimestamp() + 1.050;	// grabbing time before setMode, since setMode has it's own delay
-					setMode(requestedMode);
+					nextTime = clock.getTime() + 1.050;
+					setMode(requestedMode);			// doesn't wait: state 10 does
 					state++;
 				}
 				break;
@@ -592,11 +591,11 @@ public class BNO055 extends GyroBase {
 		double headingDiff = 0.0;
 		
 		// Read vector data (6 bytes)
-		double startTime = Timer.getFPGATimestamp();
+		double startTime = clock.getTime();
 		readLen(requestedVectorType.getVal(), positionVector);
 		
 		// Diagnostics for checking how long read operation took
-		double endTime = Timer.getFPGATimestamp();
+		double endTime = clock.getTime();
 		readDurationLast = (endTime - startTime);
 		if (readDurationLast > READ_TOO_LONG_THRESHOLD) {
 			readDurationOver++;
@@ -663,9 +662,14 @@ public class BNO055 extends GyroBase {
 	 * @param mode
 	 */
 	public void setMode(opmode_t mode) {
-		setMode(mode.getVal());
+		setModeAndWait(mode.getVal());
 	}
 
+	/*
+	 * Starts switching the chip's operating mode, without waiting for it: the periodic task
+	 * waits until nextTime in its next state.  (Sleeping here, from inside the task, would run
+	 * the clock's other periodic tasks nested inside this one on a VirtualClock.)
+	 */
 	private void setMode(int mode)
 	{
 		if (mode != _mode)
@@ -675,11 +679,17 @@ public class BNO055 extends GyroBase {
 			
 			// Allow 19ms to switch into CONFIG mode, 7ms to switch out of it.
 			// Just use 50ms for now, since we won't be switching much
-			nextTime = Timer.getFPGATimestamp() + 0.050;
-			currentTime = Timer.getFPGATimestamp();
-			while (currentTime < nextTime) {
-				currentTime = Timer.getFPGATimestamp();
-			}
+			nextTime = Math.max(nextTime, clock.getTime() + 0.050);
+		}
+	}
+
+	// for callers outside the periodic task, which use the chip right after switching
+	private void setModeAndWait(int mode)
+	{
+		if (mode != _mode)
+		{
+			setMode(mode);
+			clock.sleep(nextTime - clock.getTime());
 		}
 	}
 
@@ -861,7 +871,7 @@ public class BNO055 extends GyroBase {
 		if (initialized)
 		{
 			int lastMode = getMode();
-			setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
+			setModeAndWait(opmode_t.OPERATION_MODE_CONFIG.getVal());
 			
 			int msb, lsb;
 			
@@ -881,7 +891,7 @@ public class BNO055 extends GyroBase {
 			lsb = read8(reg_t.ACCEL_RADIUS_LSB_ADDR);
 			offsets.accel_radius = (short) ((msb << 8) | lsb);
 
-			setMode(lastMode);
+			setModeAndWait(lastMode);
 		}
 		
 		return offsets;
@@ -902,8 +912,14 @@ public class BNO055 extends GyroBase {
 	public void setCalibrationOffsets()
 	{
 		int lastMode = getMode();
-		setMode(opmode_t.OPERATION_MODE_CONFIG.getVal());
+		setModeAndWait(opmode_t.OPERATION_MODE_CONFIG.getVal());
+		writeCalibrationOffsets();
+		setModeAndWait(lastMode);
+	}
 
+	// the chip must be in config mode
+	private void writeCalibrationOffsets()
+	{
 		write8(reg_t.ACCEL_OFFSET_X_LSB_ADDR, (byte)((kAccelOffsetX >> 0) & 0xFF));
 		write8(reg_t.ACCEL_OFFSET_X_MSB_ADDR, (byte)((kAccelOffsetX >> 8) & 0xFF));
 		write8(reg_t.ACCEL_OFFSET_Y_LSB_ADDR, (byte)((kAccelOffsetY >> 0) & 0xFF));
@@ -917,8 +933,6 @@ public class BNO055 extends GyroBase {
 		// we will only write the accelerometer calibration constants
 		// the gyroscope is calibrated by sitting still
 		// the magnetometer is not used for IMU mode (accel + mag fusion) 
-		
-		setMode(lastMode);
 	}
 	
 	
@@ -1160,7 +1174,7 @@ public class BNO055 extends GyroBase {
 		return retVal;
 	}
 	
-	private class BNO055UpdateTask extends TimerTask {
+	private class BNO055UpdateTask implements Runnable {
 		private BNO055 imu;
 
 		private BNO055UpdateTask(BNO055 imu) {
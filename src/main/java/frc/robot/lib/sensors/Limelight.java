@@ -130,6 +130,30 @@ public class Limelight {
         return l;
     }
 
+    /**
+     * Image capture latency (ms) to add to the pipeline latency, per the Limelight docs
+     */
+    public static final double kImageCaptureLatencyMs = 11.0;
+
+    /**
+     * Total latency from image capture to the results being posted (seconds):
+     * subtract from the current time to get the time the image was taken
+     * @return
+     */
+    public double getLatencySeconds() {
+        return (getPipelineLatency() + kImageCaptureLatencyMs) / 1000.0;
+    }
+
+    /**
+     * thor Horizontal sidelength of the rough bounding box (0 - 320 pixels)
+     * @return
+     */
+    public double getTargetHorizontalLength() {
+        NetworkTableEntry thor = m_table.getEntry("thor");
+        double h = thor.getDouble(0.0);
+        return h;
+    }
+
     private void resetPilelineLatency(){
         m_table.getEntry("tl").setValue(0.0);
     }
@@ -0,0 +1,58 @@
+package frc.robot.lib.util;
+
+/**
+ * Source of time and periodic scheduling for the robot code.
+ *
+ * On the robot, FPGAClock uses the FPGA timestamp, Thread.sleep() and
+ * Notifiers.  Off the robot, VirtualClock keeps its own time, which only moves
+ * forward when someone sleeps or advances it, so that loops and autonomous
+ * modes can be run as fast as the CPU allows.
+ *
+ * Classes that need the time should use the Clock they were given, or
+ * Clock.getDefault() when they are not given one.
+ */
+public abstract class Clock
+{
+	private static Clock defaultClock = null;
+
+	public static synchronized Clock getDefault()
+	{
+		if (defaultClock == null)
+			defaultClock = FPGAClock.getInstance();
+		return defaultClock;
+	}
+
+	// call before constructing any loops, auto modes, etc. that use the default clock
+	public static synchronized void setDefault(Clock _clock)
+	{
+		defaultClock = _clock;
+	}
+
+
+	/**
+	 * A task that is run periodically, started and stopped like a Notifier
+	 */
+	public interface PeriodicTask
+	{
+		// run the task every _period seconds, starting _period seconds from now
+		public void startPeriodic(double _period);
+
+		public void stop();
+	}
+
+
+	/**
+	 * Returns the current time in seconds
+	 */
+	public abstract double getTime();
+
+	/**
+	 * Waits for the given number of seconds
+	 */
+	public abstract void sleep(double _seconds);
+
+	/**
+	 * Creates a periodic task that will run _task when started
+	 */
+	public abstract PeriodicTask createPeriodic(Runnable _task);
+}
@@ -0,0 +1,113 @@
+package frc.robot.lib.util;
+
+import java.util.List;
+
+import frc.robot.lib.util.PathSegment.Options;
+
+/**
+ * A Path, compiled into arrays indexed by segment, with the cumulative arc
+ * length at the start of each segment.
+ *
+ * A CompiledPath is immutable: progress along it is kept by a PathCursor (one
+ * per PathFollower), so the same CompiledPath can be followed any number of
+ * times, and shared between threads.  Build paths with Path, and compile them
+ * once (e.g. in an auto mode's constructor, at robotInit), so that starting to
+ * follow one costs nothing.
+ *
+ * Progress along a path is a single arc length, which only moves forward:
+ *   - PathCursor.update() looks at the current and next segment only
+ *   - PathCursor.getRemainingLength() is the total length less the cursor
+ *   - PathCursor.getLookaheadPoint() binary searches past the segments whose
+ *     ends must be inside the lookahead circle, then tests the rest in order
+ * None of them allocate, so a path with many waypoints costs the same per
+ * cycle as one with a few.
+ */
+public class CompiledPath
+{
+	// not modified after construction (package access for PathCursor)
+	final int numSegments;
+	final double[] startX, startY;
+	final double[] endX, endY;
+	final double[] dirX, dirY;			// unit vector from start to end (0 for a zero length segment)
+	final double[] length;
+	final double[] arcLength;			// arc length at the start of each segment (arcLength[numSegments] is the total)
+	final Options[] options;
+	final double minLookaheadDist;
+
+	private final double finalSpeed;
+	private final boolean reverseDirection;
+
+	public CompiledPath(List<PathSegment> _segments, double _finalSpeed, boolean _reverseDirection)
+	{
+		numSegments = _segments.size();
+		startX    = new double[numSegments];
+		startY    = new double[numSegments];
+		endX      = new double[numSegments];
+		endY      = new double[numSegments];
+		dirX      = new double[numSegments];
+		dirY      = new double[numSegments];
+		length    = new double[numSegments];
+		arcLength = new double[numSegments+1];
+		options   = new Options[numSegments];
+		finalSpeed = _finalSpeed;
+		reverseDirection = _reverseDirection;
+
+		double minLookahead = Double.MAX_VALUE;
+		for (int k = 0; k < numSegments; k++)
+		{
+			PathSegment seg = _segments.get(k);
+			startX[k] = seg.start.x;
+			startY[k] = seg.start.y;
+			endX[k]   = seg.end.x;
+			endY[k]   = seg.end.y;
+			length[k] = seg.length;
+			if (length[k] > 0)
+			{
+				dirX[k] = (endX[k] - startX[k]) / length[k];
+				dirY[k] = (endY[k] - startY[k]) / length[k];
+			}
+			arcLength[k+1] = arcLength[k] + length[k];
+			options[k] = seg.getOptions();
+			minLookahead = Math.min(minLookahead, options[k].getLookaheadDist());
+		}
+		minLookaheadDist = minLookahead;
+	}
+
+	public int     getNumSegments()     { return numSegments; }
+	public double  getTotalLength()     { return arcLength[numSegments]; }
+	public double  getFinalSpeed()      { return finalSpeed; }
+	public boolean getReverseDirection(){ return reverseDirection; }
+	public Options getOptions(int _k)   { return options[_k]; }		// shared: don't modify
+	public double  getSegmentLength(int _k) { return length[_k]; }
+	public double  getArcLength(int _k) { return arcLength[_k]; }		// arc length to the start of segment _k
+
+	// fills in the point _along the way along segment _k from its start (not limited to the segment)
+	public Vector2d pointAt(int _k, double _along, Vector2d _point)
+	{
+		return _point.set(startX[_k] + _along*dirX[_k], startY[_k] + _along*dirY[_k]);
+	}
+
+	// intersection of the line through segment _k with the circle of radius _radius centered at (_x,_y)
+	// closest to the end of the segment.  returns false if they don't intersect
+	boolean getLineCircleIntersection(int _k, double _x, double _y, double _radius, Vector2d _point)
+	{
+		// points on the line are start + t*dir: solve |start + t*dir - center|^2 = radius^2
+		double wx = startX[_k] - _x;
+		double wy = startY[_k] - _y;
+		double b = wx*dirX[_k] + wy*dirY[_k];
+		double c = wx*wx + wy*wy - _radius*_radius;
+		double disc = b*b - c;
+		if (disc < 0)
+			return false;		// no intersection
+		pointAt(_k, -b + Math.sqrt(disc), _point);
+		return true;
+	}
+
+	public String toString()
+	{
+		String str = String.format("***CompiledPath*** finalSpeed = %.1f, reversed = %b, length = %.1f\n", finalSpeed, reverseDirection, getTotalLength());
+		for (int k = 0; k < numSegments; k++)
+			str += String.format("Segment %2d: Start: (% 7.3f, % 7.3f), End: (% 7.3f, % 7.3f), Options: %s\n", k, startX[k], startY[k], endX[k], endY[k], options[k].toString());
+		return str;
+	}
+}
@@ -4,6 +4,8 @@ import java.io.*;
 import java.util.Date;
 import java.util.UUID;
 
+import frc.robot.lib.logging.FlightRecorder;
+
 /**
  * Tracks start-up and caught crash events, logging them to a file which dosn't
  * roll over
@@ -39,6 +41,7 @@ public class CrashTracker {
 
     public static void logThrowableCrash(Throwable throwable) {
         logMarker("Exception", throwable);
+        FlightRecorder.dumpAll("crash");	// write what led up to it while we still can
     }
 
     private static void logMarker(String mark) {
@@ -0,0 +1,232 @@
+package frc.robot.lib.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.lib.logging.LogRecord;
+
+/**
+ * Sends DataLogger channels to SmartDashboard for a DataLogController.
+ *
+ * Each key's NetworkTableEntry is looked up once, when its channel is added.
+ * A value is only sent when it has changed by more than the key's tolerance
+ * since it was last sent, and no more often than the key's period.
+ *
+ * All keys share a budget of (estimated) bytes per second.  Once it is used
+ * up, changed keys wait for a later cycle, and the next cycle starts with the
+ * first key that had to wait, so every key gets its turn.  A key that has to
+ * wait sends its latest value when it gets its turn.
+ */
+public class DashboardPublisher
+{
+	public static final double kDefaultPeriod    = 0.1;		// NetworkTables sends updates every 100 ms, so faster is wasted
+	public static final double kDefaultTolerance = 1e-3;
+	public static final double kDefaultBudget    = 16 * 1024;	// bytes per second, for all keys
+	public static final double kMaxBurst         = 0.25;		// seconds of budget that can be saved up
+
+	private static final int kUpdateOverhead = 8;			// estimated bytes per update, besides the key and value
+
+	/*
+	 * Per-key settings
+	 */
+	static public class Options
+	{
+		protected double period;		// seconds between updates of the key (at least)
+		protected double tolerance;		// change in a number that is worth sending
+
+		// constructor
+		public Options(double _period, double _tolerance)
+		{
+			period = _period;
+			tolerance = _tolerance;
+		}
+
+		public double getPeriod()    { return period; }
+		public double getTolerance() { return tolerance; }
+
+		public String toString()
+		{
+			return String.format("Period: %5.3f, Tolerance: %f", period, tolerance);
+		}
+	}
+
+	private static class Slot
+	{
+		final DataLogger.Channel channel;
+		final NetworkTableEntry entry;
+		final long periodNanos;
+		final double tolerance;
+		final int keyBytes;
+
+		boolean sent = false;
+		double  sentValue;
+		String  sentString;
+		long    sentNanos;
+
+		Slot(DataLogger.Channel _channel, NetworkTableEntry _entry, Options _options)
+		{
+			channel = _channel;
+			entry = _entry;
+			periodNanos = (long)(_options.getPeriod() * 1e9);
+			tolerance = _options.getTolerance();
+			keyBytes = _channel.name.length();
+		}
+	}
+
+	private Options defaultOptions = new Options(kDefaultPeriod, kDefaultTolerance);
+	private final HashMap<String, Options> keyOptions = new HashMap<String, Options>();
+	private final HashMap<String, Slot> slotMap = new HashMap<String, Slot>();	// keeps entries and last sent values when the channels are rebuilt
+	private final ArrayList<Slot> slots = new ArrayList<Slot>();
+
+	private double budget = kDefaultBudget;
+	private double tokens = kDefaultBudget * kMaxBurst;
+	private long lastRefillNanos = Long.MIN_VALUE;
+	private int next = 0;				// slot to start at in the next cycle
+
+	private long sentUpdates;
+	private long sentBytes;
+	private int overBudgetCycles;			// cycles that ran out of budget before sending every changed key
+
+	public synchronized void setDefaultOptions(Options _options)
+	{
+		defaultOptions = _options;
+	}
+
+	// settings for one key (takes effect the next time the channels are rebuilt)
+	public synchronized void setOptions(String _key, Options _options)
+	{
+		keyOptions.put(_key, _options);
+		slotMap.remove(_key);
+	}
+
+	// estimated bytes per second for all keys
+	public synchronized void setBudget(double _bytesPerSecond)
+	{
+		budget = _bytesPerSecond;
+	}
+
+	/*
+	 * Channels to publish, rebuilt by the DataLogController when its loggers or channels change
+	 */
+	synchronized void clearChannels()
+	{
+		slots.clear();
+		next = 0;
+	}
+
+	synchronized void addChannel(DataLogger.Channel _channel)
+	{
+		Slot slot = slotMap.get(_channel.name);
+		if (slot == null || slot.channel != _channel)
+		{
+			Options options = keyOptions.get(_channel.name);
+			slot = new Slot(_channel, SmartDashboard.getEntry(_channel.name), (options != null) ? options : defaultOptions);
+			slotMap.put(_channel.name, slot);
+		}
+		slots.add(slot);
+	}
+
+	// send the channels that need to be sent, within the budget
+	synchronized void publish(long _nanos)
+	{
+		if (lastRefillNanos != Long.MIN_VALUE)
+			tokens = Math.min(tokens + (_nanos - lastRefillNanos) * 1e-9 * budget, budget * kMaxBurst);
+		lastRefillNanos = _nanos;
+
+		int n = slots.size();
+		for (int i = 0; i < n; i++)
+		{
+			int s = (next + i) % n;
+			Slot slot = slots.get(s);
+			if (!slot.channel.isPresent())
+				continue;
+			if (slot.sent && (_nanos - slot.sentNanos) < slot.periodNanos)
+				continue;
+			if (!isChanged(slot))
+				continue;
+
+			int cost = kUpdateOverhead + slot.keyBytes + getValueBytes(slot.channel);
+			if (cost > tokens && tokens < budget * kMaxBurst)
+			{
+				// out of budget: this key and the rest wait for the next cycle
+				// (an update bigger than kMaxBurst of budget is sent once the budget is full, or it would never be sent)
+				next = s;
+				overBudgetCycles++;
+				return;
+			}
+
+			send(slot);
+			slot.sent = true;
+			slot.sentNanos = _nanos;
+			tokens -= cost;
+			sentUpdates++;
+			sentBytes += cost;
+		}
+	}
+
+	private boolean isChanged(Slot _slot)
+	{
+		if (!_slot.sent)
+			return true;
+
+		DataLogger.Channel channel = _slot.channel;
+		switch (channel.type)
+		{
+		case LogRecord.kDouble:  return !(Math.abs(((DataLogger.DoubleChannel) channel).get() - _slot.sentValue) <= _slot.tolerance);	// NaN counts as changed
+		case LogRecord.kInt:     return ((DataLogger.IntChannel) channel).get() != _slot.sentValue;
+		case LogRecord.kBoolean: return (((DataLogger.BooleanChannel) channel).get() ? 1 : 0) != _slot.sentValue;
+		case LogRecord.kEnum:    return ((DataLogger.EnumChannel<?>) channel).get().ordinal() != _slot.sentValue;
+		case LogRecord.kString:  return !((DataLogger.StringChannel) channel).get().equals(_slot.sentString);
+		default:                 return false;
+		}
+	}
+
+	private int getValueBytes(DataLogger.Channel _channel)
+	{
+		switch (_channel.type)
+		{
+		case LogRecord.kBoolean: return 1;
+		case LogRecord.kEnum:    return ((DataLogger.EnumChannel<?>) _channel).get().name().length();
+		case LogRecord.kString:  return ((DataLogger.StringChannel) _channel).get().length();
+		default:                 return 8;
+		}
+	}
+
+	private void send(Slot _slot)
+	{
+		DataLogger.Channel channel = _slot.channel;
+		switch (channel.type)
+		{
+		case LogRecord.kDouble:
+			_slot.sentValue = ((DataLogger.DoubleChannel) channel).get();
+			_slot.entry.setDouble(_slot.sentValue);
+			break;
+		case LogRecord.kInt:
+			_slot.sentValue = ((DataLogger.IntChannel) channel).get();
+			_slot.entry.setDouble(_slot.sentValue);
+			break;
+		case LogRecord.kBoolean:
+			boolean b = ((DataLogger.BooleanChannel) channel).get();
+			_slot.sentValue = b ? 1 : 0;
+			_slot.entry.setBoolean(b);
+			break;
+		case LogRecord.kEnum:
+			Enum<?> e = ((DataLogger.EnumChannel<?>) channel).get();
+			_slot.sentValue = e.ordinal();
+			_slot.entry.setString(e.name());
+			break;
+		case LogRecord.kString:
+			_slot.sentString = ((DataLogger.StringChannel) channel).get();
+			_slot.entry.setString(_slot.sentString);
+			break;
+		default:
+			break;
+		}
+	}
+
+	public synchronized long getSentUpdates()     { return sentUpdates; }
+	public synchronized long getSentBytes()       { return sentBytes; }
+	public synchronized int  getOverBudgetCycles() { return overBudgetCycles; }
+}
@@ -1,20 +1,42 @@
 package frc.robot.lib.util;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.PrintStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.lib.logging.BinaryLogFormat;
+import frc.robot.lib.logging.BinaryLogSink;
+import frc.robot.lib.logging.CsvLogSink;
+import frc.robot.lib.logging.FlightRecorder;
+import frc.robot.lib.logging.LogSink;
+import frc.robot.lib.logging.LogRecord;
+import frc.robot.lib.logging.LogRingBuffer;
+import frc.robot.lib.logging.LogSchema;
+import frc.robot.lib.logging.LogWriter;
+import frc.robot.lib.logging.MappedBinaryLogSink;
 
 //Adapted from FRC Team 3620, The Average Joes
 //https://github.com/FRC3620/FRC3620_2015_AverageJava/blob/master/FRC3620_2015_AverageJava/src/org/usfirst/frc3620/DataLogger.java
 
+/*
+ * log() is called from the control thread.  It only copies the logged values
+ * into a preallocated LogRingBuffer; a LogWriter thread formats them and writes
+ * them to the file in batches, so the control thread never waits on the USB stick.
+ * If the writer falls behind and the ring fills up, rows are dropped and counted.
+ * close() stops the writer, and the next log() starts a new file.  Once the
+ * program is exiting (the shutdown hook has run), log() does not open
+ * another file, even if it races with the hook.
+ *
+ * Each channel's DataLogger.Policy decides whether its value goes into a row
+ * or is held from the last row that logged it.  A row in which nothing changed
+ * is not written at all.  Every kDefaultKeyframeInterval a full row is logged
+ * so that a reader does not have to go far back for a held value, and burst()
+ * logs full rows for a while around an event worth a close look.
+ */
+
 public class DataLogController
 {
 	// define separate static instances for each thread
@@ -94,6 +116,11 @@ public class DataLogController
 	public void setFileBase(String _fileBase)
 	{
 		fileBase = _fileBase;
+		droppedKey   = "Log/" + fileBase + "/dropped";
+		overflowsKey = "Log/" + fileBase + "/overflows";
+		maxDepthKey  = "Log/" + fileBase + "/maxDepth";
+		skippedKey   = "Log/" + fileBase + "/skipped";
+		sdOverBudgetKey = "Log/" + fileBase + "/sdOverBudget";
 	}
 
 	public boolean fileOutput = false;
@@ -105,6 +132,18 @@ public class DataLogController
 		sdOutput = _sd;
 	}
 
+	// CSV is the default, for the analysis scripts.
+	// BINARY files are much smaller and cheaper to write.  convert them to CSV with BinaryLogConverter
+	// MAPPED_BINARY writes the same format into preallocated, memory-mapped segment files
+	public enum FileFormat { CSV, BINARY, MAPPED_BINARY }
+	public FileFormat fileFormat = FileFormat.CSV;
+
+	// must be called before the first log() to take effect
+	public void setFileFormat(FileFormat _format)
+	{
+		fileFormat = _format;
+	}
+
 	private final List<DataLogger> loggers = new ArrayList<>();
 
 	public void register(DataLogger logger)
@@ -118,20 +157,25 @@ public class DataLogController
 		loggers.clear();
 		writeHeader = true; // write a new header to indicate start of new
 							// action (autonomous mode only)
+		newSchema = true;
+		publisherRebuild = true;
 	}
 
 	public void log()
 	{
-		for (DataLogger logger : loggers)
+		for (int j = 0; j < loggers.size(); j++)
 		{
-			logger.log(); // collect values to log
+			loggers.get(j).log(); // collect values to log
 		}
 		saveDataItems(); // write to file / SmartDashboard
 	}
 
-	PrintStream ps;
-	long startTime;
-	long timeUpdated;
+	private final LogRingBuffer ring = new LogRingBuffer();
+	private LogSchema schema;
+	private int schemaVersion;
+	private boolean newSchema = true;	// rebuild the schema even if the loggers' versions add up the same
+	private volatile LogWriter writer;
+	private volatile boolean shutdown = false;	// set by the shutdown hook: log() does not open another file after it
 	long timeSinceLog;
 	boolean writeHeader = true;
 
@@ -139,61 +183,36 @@ public class DataLogController
 	{
 		boolean retVal = false;
 
-		if (ps == null)
+		if (writer == null)
 			retVal = true;
 
 		long now = System.currentTimeMillis();
 		if ((now - timeSinceLog) > minimumInterval)
 			retVal = true;
 
+		if (System.nanoTime() < burstUntilNanos)
+			retVal = true;
+
 		return retVal;
 	}
 
 	private void saveDataItems()
 	{
+		if (recorder != null)
+			recordValues();		// at full rate, whether or not anything else is logged
+
 		if (shouldLogData())
 		{
-			try
+			if (fileOutput && !shutdown)
 			{
-				if (fileOutput && (ps == null))
-				{
-					// file stream has not yet been initialized
-					String timestampString = getTimestampString();
-					if (timestampString != null)
-					{
-						String filename = timestampString + "_" + fileBase + ".csv";
-						System.out.println("Opening log file: " + filename);
-						File logFile = new File(parentDirectory, filename);
-						ps = new PrintStream(new FileOutputStream(logFile));
-						startTime = System.currentTimeMillis();
-					}
-				} else
-				{
-					if (fileOutput)
-					{
-						if (writeHeader)
-						{
-							ps.print("time,timeSinceStart");
-							writeNames();
-							writeHeader = false;
-						}
-
-						timeUpdated = (System.currentTimeMillis() - startTime);
-						ps.print(getDate());
-						ps.print(',');
-						ps.print(timeUpdated);
-						writeValues();
-						ps.flush();
-						timeSinceLog = System.currentTimeMillis();
-					}
-					if (sdOutput)
-					{
-						putValues();
-					}
-				}
-			} catch (IOException e)
+				if (writer == null)
+					openWriter();
+				enqueueValues();
+				timeSinceLog = System.currentTimeMillis();
+			}
+			if (sdOutput)
 			{
-				e.printStackTrace();
+				putValues();
 			}
 		}
 
@@ -201,6 +220,61 @@ public class DataLogController
 
 	}
 
+	// start the writer thread (it opens the file), unless close() or the shutdown hook got here first
+	private synchronized void openWriter()
+	{
+		if (shutdown || writer != null)
+			return;
+
+		String filename = getTimestampString() + "_" + fileBase;
+		LogSink sink;
+		if (fileFormat == FileFormat.MAPPED_BINARY)
+			sink = new MappedBinaryLogSink(new File(parentDirectory, filename + BinaryLogFormat.kFileExtension));
+		else if (fileFormat == FileFormat.BINARY)
+			sink = new BinaryLogSink(new File(parentDirectory, filename + BinaryLogFormat.kFileExtension));
+		else
+			sink = new CsvLogSink(new File(parentDirectory, filename + ".csv"));
+		writer = new LogWriter(fileBase, ring, sink);
+		writer.start();
+		addShutdownHook();
+	}
+
+	private boolean shutdownHookAdded = false;
+
+	// close the log file cleanly if the robot program exits (e.g. on a new deploy)
+	private void addShutdownHook()
+	{
+		if (shutdownHookAdded)
+			return;
+		shutdownHookAdded = true;
+		Runtime.getRuntime().addShutdownHook(new Thread()
+		{
+			@Override
+			public void run()
+			{
+				shutdown();
+			}
+		});
+	}
+
+	// close the file for good: the program is exiting
+	private synchronized void shutdown()
+	{
+		shutdown = true;
+		close();
+	}
+
+	// stop the writer thread after it has written everything logged so far
+	public synchronized void close()
+	{
+		if (writer != null)
+		{
+			writer.stop();
+			writer = null;
+			writeHeader = true;		// a new file gets a new header
+		}
+	}
+
 	private final static long SOME_TIME_AFTER_1970 = 523980000000L;
 
 	public static String getTimestampString() 
@@ -217,106 +291,334 @@ public class DataLogController
 	}
 	
 	
-	private void writeNames()
+	/*
+	 * The loggers' channels, in column order: each registered logger's channels, followed by its children's
+	 */
+	private int countChannels(DataLogger logger)
+	{
+		int n = logger.getNumChannels();
+		for (int c = 0; c < logger.getNumChildren(); c++)
+			n += countChannels(logger.getChild(c));
+		return n;
+	}
+
+	private int getSchemaVersion()
+	{
+		int v = 0;
+		for (int k = 0; k < loggers.size(); k++)
+			v += loggers.get(k).getVersion();
+		return v;
+	}
+
+	private int addNames(DataLogger logger, String[] names, byte[] types, String[] units, int k)
 	{
-		for (DataLogger logger : loggers)
+		synchronized (logger)
 		{
-			synchronized (logger)
+			for (int c = 0; c < logger.getNumChannels(); c++)
 			{
-				for (String name : logger.logMap.keySet())
-				{
-					// remove SmartDashboard folder hierarchy
-				    int index = name.lastIndexOf('/');
-			    	name = name.substring(index+1);				
-					
-					ps.print(',');
-					ps.print(name);
-				}
+				names[k] = logger.getChannel(c).name;
+				types[k] = logger.getChannel(c).type;
+				units[k] = logger.getChannel(c).getUnits();
+				k++;
 			}
+			for (int c = 0; c < logger.getNumChildren(); c++)
+				k = addNames(logger.getChild(c), names, types, units, k);
 		}
-		ps.println();
+		return k;
+	}
+
+	// build the columns (only when a new header is needed)
+	private LogSchema buildSchema()
+	{
+		int n = 0;
+		for (int k = 0; k < loggers.size(); k++)
+			n += countChannels(loggers.get(k));
+		String[] names = new String[n];
+		byte[] types = new byte[n];
+		String[] units = new String[n];
+		int k = 0;
+		for (int j = 0; j < loggers.size(); j++)
+			k = addNames(loggers.get(j), names, types, units, k);
+		return new LogSchema(Arrays.copyOf(names, k), Arrays.copyOf(types, k), Arrays.copyOf(units, k));
+	}
+
+	/*
+	 * Per-column logging state (for the channels' Policies), allocated with the schema
+	 */
+	private static final byte kNotLogged = 0, kLoggedValue = 1, kLoggedMissing = 2;
+
+	public static final double kDefaultKeyframeInterval = 1.0;	// seconds between full rows
+
+	private byte[]   logState = new byte[0];
+	private double[] loggedValues = new double[0];
+	private String[] loggedStrings = new String[0];
+	private long[]   loggedNanos = new long[0];
+	private long     keyframeIntervalNanos = (long)(kDefaultKeyframeInterval * 1e9);
+	private long     lastKeyframeNanos;
+	private volatile long burstUntilNanos = Long.MIN_VALUE;
+	private long     rowNanos;
+	private boolean  fullRow;			// log every column in this row, whatever its policy
+	private int      rowChanges;		// columns logged (or newly missing) in this row
+	private long     skippedRows;		// rows not written because nothing changed
+
+	private void resetLogState(int n)
+	{
+		logState      = new byte[n];
+		loggedValues  = new double[n];
+		loggedStrings = new String[n];
+		loggedNanos   = new long[n];
+	}
+
+	// full rows are logged at least this often (_seconds <= 0: only after a new header)
+	public void setKeyframeInterval(double _seconds)
+	{
+		keyframeIntervalNanos = (_seconds > 0) ? (long)(_seconds * 1e9) : Long.MAX_VALUE;
 	}
 
-	private void writeValues()
+	// log every channel in every row for the next _seconds, ignoring the channels' policies
+	// (and the minimum interval).  call when something happens that is worth a close look
+	public void burst(double _seconds)
 	{
-		for (DataLogger logger : loggers)
+		burstUntilNanos = System.nanoTime() + (long)(_seconds * 1e9);
+	}
+
+	// is the value in column k of the record different enough from the last logged value to log it?
+	private boolean isChanged(DataLogger.Policy policy, LogRecord record, int k)
+	{
+		switch (policy.getMode())
 		{
-			synchronized (logger)
-			{
-				for (Object value : logger.logMap.values())
-				{
-					ps.print(',');
-					ps.print(value.toString());
-				}
-			}
+		case FIXED_RATE:
+			return (rowNanos - loggedNanos[k]) >= policy.getPeriodNanos();
+
+		case DEADBAND:
+		case CHANGE_ONLY:
+			if (record.types[k] == LogRecord.kString)
+				return !record.strings[k].equals(loggedStrings[k]);
+			double deadband = (policy.getMode() == DataLogger.Policy.Mode.DEADBAND) ? policy.getParam() : 0;
+			return !(Math.abs(record.values[k] - loggedValues[k]) <= deadband);	// NaN counts as changed
+
+		case EVERY_ROW:
+		default:
+			return true;
 		}
-		ps.println();
 	}
 
-	private void putValues()
+	private int copyValues(DataLogger logger, LogRecord record, int k)
 	{
-		for (DataLogger logger : loggers)
+		synchronized (logger)
 		{
-			synchronized (logger)
+			for (int c = 0; c < logger.getNumChannels(); c++, k++)
 			{
-				for (Map.Entry<String, Object> entry : logger.logMap.entrySet())
+				if (k >= logState.length)
+					break;		// channel added since the schema was built: logged from the next row
+
+				DataLogger.Channel channel = logger.getChannel(c);
+				if (!channel.isPresent())
+				{
+					record.setMissing(k);
+					if (logState[k] != kLoggedMissing)
+						rowChanges++;
+					logState[k] = kLoggedMissing;
+					continue;
+				}
+
+				channel.copyTo(record, k);
+				if (fullRow || logState[k] != kLoggedValue || isChanged(channel.getPolicy(), record, k))
 				{
-					String key = entry.getKey();
-					Object value = entry.getValue();
-
-					if (value.getClass().equals(Boolean.class))
-						putValue(key, (Boolean) value);
-					else if (value.getClass().equals(Integer.class))
-						putValue(key, (Integer) value);
-					else if (value.getClass().equals(Double.class))
-						putValue(key, (Double) value);
-					else if (value.getClass().equals(Float.class))
-						putValue(key, (Double) value);
-					else if (value.getClass().equals(String.class))
-						putValue(key, (String) value);
-					else
-						putValue(key, "ERROR");
+					logState[k]      = kLoggedValue;
+					loggedValues[k]  = record.values[k];
+					loggedStrings[k] = record.strings[k];
+					loggedNanos[k]   = rowNanos;
+					rowChanges++;
 				}
+				else
+					record.setHeld(k);
 			}
+			for (int c = 0; c < logger.getNumChildren(); c++)
+				k = copyValues(logger.getChild(c), record, k);
+		}
+		return k;
+	}
+
+	private void updateSchema()
+	{
+		int version = getSchemaVersion();
+		if (newSchema || version != schemaVersion || schema == null)
+		{
+			schema = buildSchema();		// only allocates when loggers or channels are added
+			schemaVersion = version;
+			resetLogState(schema.size());
+			newSchema = false;
+			writeHeader = true;
+		}
+	}
+
+	// copy the current values into the next free slot of the ring buffer
+	private void enqueueValues()
+	{
+		updateSchema();
+
+		LogRecord record = ring.claim();
+		if (record == null)
+			return;		// writer has fallen behind: drop this row (counted by the ring)
+
+		rowNanos = System.nanoTime();
+		fullRow = writeHeader || (rowNanos < burstUntilNanos) || (rowNanos - lastKeyframeNanos >= keyframeIntervalNanos);
+		if (fullRow)
+			lastKeyframeNanos = rowNanos;
+		rowChanges = 0;
+
+		record.ensureCapacity(schema.size());
+		int k = 0;
+		for (int j = 0; j < loggers.size(); j++)
+			k = copyValues(loggers.get(j), record, k);
+		for (int m = k; m < schema.size(); m++)
+			record.setMissing(m);		// channels that are no longer there (not expected)
+
+		if (rowChanges == 0 && !fullRow)
+		{
+			skippedRows++;
+			return;		// nothing changed: leave the slot for the next row
+		}
+
+		record.wallMillis = System.currentTimeMillis();
+		record.timestampNanos = rowNanos;
+		record.header = null;
+		if (writeHeader)
+		{
+			record.header = schema;
+			writeHeader = false;
 		}
+		record.numValues = schema.size();
+		ring.publish();
 	}
 
-	private void putValue(String key, boolean val)
+	/*
+	 * Flight recorder
+	 */
+	private FlightRecorder recorder;
+
+	// keep the last _seconds of every channel in memory (log() is called every _period seconds),
+	// and write them to a file only when FlightRecorder.triggerAll() or dumpAll() is called.
+	// cheap enough to leave on when file output is off
+	public void enableFlightRecorder(double _seconds, double _period)
 	{
-		SmartDashboard.putBoolean(key, val);
+		int rows = (int)Math.ceil(_seconds / _period);
+		int postTriggerRows = (int)Math.ceil(Math.min(FlightRecorder.kDefaultPostTrigger, _seconds / 2) / _period);
+		recorder = new FlightRecorder(fileBase, parentDirectory, rows, postTriggerRows);
 	}
 
-	private void putValue(String key, int val)
+	public FlightRecorder getFlightRecorder() { return recorder; }
+
+	// full rows (the channels' policies don't apply)
+	private int copyAllValues(DataLogger logger, LogRecord record, int k)
 	{
-		SmartDashboard.putNumber(key, val);
+		synchronized (logger)
+		{
+			for (int c = 0; c < logger.getNumChannels() && k < schema.size(); c++, k++)
+			{
+				DataLogger.Channel channel = logger.getChannel(c);
+				if (channel.isPresent())
+					channel.copyTo(record, k);
+				else
+					record.setMissing(k);
+			}
+			for (int c = 0; c < logger.getNumChildren(); c++)
+				k = copyAllValues(logger.getChild(c), record, k);
+		}
+		return k;
 	}
 
-	private void putValue(String key, double val)
+	private void recordValues()
 	{
-		SmartDashboard.putNumber(key, val);
+		updateSchema();
+
+		LogRecord record = recorder.claim();
+		record.ensureCapacity(schema.size());	// only allocates the first time round the ring, or when the columns grow
+		int k = 0;
+		for (int j = 0; j < loggers.size(); j++)
+			k = copyAllValues(loggers.get(j), record, k);
+		for (int m = k; m < schema.size(); m++)
+			record.setMissing(m);
+		record.wallMillis = System.currentTimeMillis();
+		record.timestampNanos = System.nanoTime();
+		record.header = schema;
+		record.numValues = schema.size();
+		recorder.publish();
 	}
 
-	private void putValue(String key, String val)
+	public long getLoggedRows()   { return ring.getPublished(); }
+	public long getDroppedRows()  { return ring.getDropped(); }
+	public long getOverflows()    { return ring.getOverflows(); }
+	public int  getQueueDepth()   { return ring.getDepth(); }
+	public int  getMaxQueueDepth(){ return ring.getMaxDepth(); }
+	public long getSkippedRows()  { return skippedRows; }
+
+	private String droppedKey = "Log/dropped", overflowsKey = "Log/overflows", maxDepthKey = "Log/maxDepth", skippedKey = "Log/skipped", sdOverBudgetKey = "Log/sdOverBudget";
+
+	private final DataLogger statsLogger = new DataLogger()
+	{
+		@Override
+		public void log()
+		{
+			put(droppedKey,   (int)ring.getDropped());
+			put(overflowsKey, (int)ring.getOverflows());
+			put(maxDepthKey,  ring.getMaxDepth());
+			put(skippedKey,   (int)skippedRows);
+			put(sdOverBudgetKey, publisher.getOverBudgetCycles());
+		}
+	};
+
+	// reports the logging pipeline's own drop and overflow counts
+	public DataLogger getStatsLogger() { return statsLogger; }
+
+	private final DashboardPublisher publisher = new DashboardPublisher();
+	private int publisherVersion;
+	private boolean publisherRebuild = true;
+
+	// sends the values to SmartDashboard (set its per-key options and budget here)
+	public DashboardPublisher getDashboardPublisher() { return publisher; }
+
+	private void putValues()
 	{
-		SmartDashboard.putString(key, val);
+		int version = getSchemaVersion();
+		if (publisherRebuild || version != publisherVersion)
+		{
+			publisher.clearChannels();
+			for (int j = 0; j < loggers.size(); j++)
+				addPublisherChannels(loggers.get(j));
+			publisherVersion = version;
+			publisherRebuild = false;
+		}
+		publisher.publish(System.nanoTime());
 	}
 
-	private void clearLogs()
+	private void addPublisherChannels(DataLogger logger)
 	{
-		for (DataLogger logger : loggers)
+		synchronized (logger)
 		{
-			logger.logMap.clear();
+			for (int c = 0; c < logger.getNumChannels(); c++)
+				publisher.addChannel(logger.getChannel(c));
+			for (int c = 0; c < logger.getNumChildren(); c++)
+				addPublisherChannels(logger.getChild(c));
 		}
 	}
 
-	private String getDate()
+	private void clearLogs()
 	{
-		Date curDate = new Date();
-		String DateToStr = format.format(curDate);
-		return DateToStr;
+		for (int j = 0; j < loggers.size(); j++)
+			clearLogs(loggers.get(j));
 	}
 
-	SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy HH:mm:ss.SS");
+	private void clearLogs(DataLogger logger)
+	{
+		synchronized (logger)
+		{
+			logger.clear();
+			for (int c = 0; c < logger.getNumChildren(); c++)
+				clearLogs(logger.getChild(c));
+		}
+	}
 
 	public void setMinimumInterval(long minimumInterval)
 	{
@@ -3,37 +3,326 @@ package frc.robot.lib.util;
 
 import java.util.*;
 
+import frc.robot.lib.logging.LogRecord;
 
 
+
+/**
+ * Collects values to be logged by a DataLogController.
+ *
+ * Each value is a typed channel.  Loggers should declare their channels once
+ * (addDouble(), addInt(), addBoolean(), addEnum(), addString()) and set them
+ * in log() through the returned handle: the value is stored in the channel's
+ * primitive field, so logging does not box or allocate.
+ *
+ * put(name, value) still works: the first put() of a name registers a channel
+ * of that type, and later calls look it up by name.
+ *
+ * The channels are cleared after every DataLogController.log().  A channel that
+ * was not set during a cycle is logged as missing (an empty CSV field).
+ *
+ * Each channel can be registered with a Policy that says how often its value
+ * needs to be written to the log file: every row (the default), at a fixed
+ * rate, when it moves by more than a deadband, or only when it changes.
+ * In between, the column is written as held (unchanged since the last value
+ * logged), which costs nothing in the binary log.
+ */
 public abstract class DataLogger 
 {
-	public Map<String, Object> logMap = new LinkedHashMap<String, Object>();
-
 	public abstract void log();	
-	
+
+	private final ArrayList<Channel> channels = new ArrayList<Channel>();
+	private final HashMap<String, Channel> channelMap = new HashMap<String, Channel>();
+	private final ArrayList<DataLogger> children = new ArrayList<DataLogger>();
+	private volatile int version = 0;		// incremented when channels or children are added
+
+	/*
+	 * How often a channel's value is written to the log file
+	 */
+	public static class Policy
+	{
+		public enum Mode
+		{
+			EVERY_ROW,		// log the value in every row
+			FIXED_RATE,		// log the value at most once every param seconds
+			DEADBAND,		// log the value when it has moved more than param from the last logged value
+			CHANGE_ONLY		// log the value when it changes
+		}
+
+		public static final Policy kEveryRow   = new Policy(Mode.EVERY_ROW, 0);
+		public static final Policy kChangeOnly = new Policy(Mode.CHANGE_ONLY, 0);
+
+		protected Mode mode;
+		protected double param;			// FIXED_RATE: period in seconds, DEADBAND: deadband in the channel's units
+		protected long periodNanos;
+
+		// constructor
+		public Policy(Mode _mode, double _param)
+		{
+			mode = _mode;
+			param = _param;
+			periodNanos = (long)(_param * 1e9);
+		}
+
+		public Mode getMode()          { return mode; }
+		public double getParam()       { return param; }
+		public long getPeriodNanos()   { return periodNanos; }
+
+		public String toString()
+		{
+			return String.format("%s %.3f", mode, param);
+		}
+	}
+
+	/*
+	 * Channel handles
+	 */
+	public static abstract class Channel
+	{
+		public final String name;
+		public final byte type;		// LogRecord type
+		String units = "";
+		Policy policy = Policy.kEveryRow;
+		volatile boolean present = false;
+
+		Channel(String _name, byte _type)
+		{
+			name = _name;
+			type = _type;
+		}
+
+		public String getUnits() { return units; }
+
+		public Policy getPolicy() { return policy; }
+
+		public boolean isPresent() { return present; }
+
+		// copy the current value into column _k of a LogRecord
+		abstract void copyTo(LogRecord _record, int _k);
+	}
+
+	public static class DoubleChannel extends Channel
+	{
+		volatile double value;
+		DoubleChannel(String _name) { super(_name, LogRecord.kDouble); }
+		public void set(double _value) { value = _value; present = true; }
+		public double get() { return value; }
+		void copyTo(LogRecord _record, int _k) { _record.setDouble(_k, value); }
+	}
+
+	public static class IntChannel extends Channel
+	{
+		volatile int value;
+		IntChannel(String _name) { super(_name, LogRecord.kInt); }
+		public void set(int _value) { value = _value; present = true; }
+		public int get() { return value; }
+		void copyTo(LogRecord _record, int _k) { _record.setInt(_k, value); }
+	}
+
+	public static class BooleanChannel extends Channel
+	{
+		volatile boolean value;
+		BooleanChannel(String _name) { super(_name, LogRecord.kBoolean); }
+		public void set(boolean _value) { value = _value; present = true; }
+		public boolean get() { return value; }
+		void copyTo(LogRecord _record, int _k) { _record.setBoolean(_k, value); }
+	}
+
+	public static class EnumChannel<E extends Enum<E>> extends Channel
+	{
+		volatile E value;
+		public final E[] constants;		// indexed by ordinal
+		EnumChannel(String _name, Class<E> _enumClass) { super(_name, LogRecord.kEnum); constants = _enumClass.getEnumConstants(); }
+		public void set(E _value) { value = _value; present = (_value != null); }
+		public E get() { return value; }
+		void copyTo(LogRecord _record, int _k) { _record.setEnum(_k, value); }
+	}
+
+	public static class StringChannel extends Channel
+	{
+		volatile String value;
+		StringChannel(String _name) { super(_name, LogRecord.kString); }
+		public void set(String _value) { value = _value; present = (_value != null); }
+		public String get() { return value; }
+		void copyTo(LogRecord _record, int _k) { _record.setString(_k, value); }
+	}
+
+	/*
+	 * Channel registration
+	 */
+	public synchronized DoubleChannel addDouble(String name)
+	{
+		Channel channel = channelMap.get(name);
+		if (channel instanceof DoubleChannel)
+			return (DoubleChannel) channel;
+		return addChannel(new DoubleChannel(name));
+	}
+
+	// _units are written to the binary log header (e.g. "in", "in/s", "deg")
+	public synchronized DoubleChannel addDouble(String name, String units)
+	{
+		DoubleChannel channel = addDouble(name);
+		channel.units = units;
+		return channel;
+	}
+
+	public synchronized DoubleChannel addDouble(String name, Policy policy)
+	{
+		DoubleChannel channel = addDouble(name);
+		channel.policy = policy;
+		return channel;
+	}
+
+	public synchronized DoubleChannel addDouble(String name, String units, Policy policy)
+	{
+		DoubleChannel channel = addDouble(name, units);
+		channel.policy = policy;
+		return channel;
+	}
+
+	public synchronized IntChannel addInt(String name)
+	{
+		Channel channel = channelMap.get(name);
+		if (channel instanceof IntChannel)
+			return (IntChannel) channel;
+		return addChannel(new IntChannel(name));
+	}
+
+	public synchronized IntChannel addInt(String name, String units)
+	{
+		IntChannel channel = addInt(name);
+		channel.units = units;
+		return channel;
+	}
+
+	public synchronized IntChannel addInt(String name, Policy policy)
+	{
+		IntChannel channel = addInt(name);
+		channel.policy = policy;
+		return channel;
+	}
+
+	public synchronized IntChannel addInt(String name, String units, Policy policy)
+	{
+		IntChannel channel = addInt(name, units);
+		channel.policy = policy;
+		return channel;
+	}
+
+	public synchronized BooleanChannel addBoolean(String name)
+	{
+		Channel channel = channelMap.get(name);
+		if (channel instanceof BooleanChannel)
+			return (BooleanChannel) channel;
+		return addChannel(new BooleanChannel(name));
+	}
+
+	public synchronized BooleanChannel addBoolean(String name, Policy policy)
+	{
+		BooleanChannel channel = addBoolean(name);
+		channel.policy = policy;
+		return channel;
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized <E extends Enum<E>> EnumChannel<E> addEnum(String name, Class<E> enumClass)
+	{
+		Channel channel = channelMap.get(name);
+		if (channel instanceof EnumChannel)
+			return (EnumChannel<E>) channel;
+		return addChannel(new EnumChannel<E>(name, enumClass));
+	}
+
+	public synchronized <E extends Enum<E>> EnumChannel<E> addEnum(String name, Class<E> enumClass, Policy policy)
+	{
+		EnumChannel<E> channel = addEnum(name, enumClass);
+		channel.policy = policy;
+		return channel;
+	}
+
+	public synchronized StringChannel addString(String name)
+	{
+		Channel channel = channelMap.get(name);
+		if (channel instanceof StringChannel)
+			return (StringChannel) channel;
+		return addChannel(new StringChannel(name));
+	}
+
+	public synchronized StringChannel addString(String name, Policy policy)
+	{
+		StringChannel channel = addString(name);
+		channel.policy = policy;
+		return channel;
+	}
+
+	private <C extends Channel> C addChannel(C channel)
+	{
+		if (channelMap.containsKey(channel.name))
+		{
+			// keep the first channel (the columns are already in the header), don't log the new one
+			System.out.println("DataLogger: " + channel.name + " already registered with a different type");
+			return channel;
+		}
+		channels.add(channel);
+		channelMap.put(channel.name, channel);
+		version++;
+		return channel;
+	}
+
+	// include another logger's channels after this logger's (e.g. the sub-actions of a composite action)
+	public synchronized void addChild(DataLogger child)
+	{
+		children.add(child);
+		version++;
+	}
+
+	/*
+	 * Legacy interface: registers a channel the first time a name is used
+	 */
 	public synchronized void put(String name, boolean value)
 	{
-		logMap.put(name, Boolean.valueOf(value));
+		addBoolean(name).set(value);
 	}
 	
 	public synchronized void put(String name, double value)
 	{
-		logMap.put(name, Double.valueOf(value));
+		addDouble(name).set(value);
 	}
 	
 	public synchronized void put(String name, float value)
 	{
-		logMap.put(name, Double.valueOf((double)value));
+		addDouble(name).set(value);
 	}
 	
 	public synchronized void put(String name, int value)
 	{
-		logMap.put(name, Integer.valueOf(value));
+		addInt(name).set(value);
 	}
 	
 	public synchronized void put(String name, String value)
 	{
-		logMap.put(name, value);
+		addString(name).set(value);
+	}
+
+	/*
+	 * Used by DataLogController
+	 */
+	int getVersion()
+	{
+		int v = version;
+		for (int k = 0; k < children.size(); k++)
+			v += children.get(k).getVersion();
+		return v;
+	}
+
+	int getNumChannels()               { return channels.size(); }
+	Channel getChannel(int k)          { return channels.get(k); }
+	int getNumChildren()               { return children.size(); }
+	DataLogger getChild(int k)         { return children.get(k); }
+
+	void clear()
+	{
+		for (int k = 0; k < channels.size(); k++)
+			channels.get(k).present = false;
 	}
-	
 }
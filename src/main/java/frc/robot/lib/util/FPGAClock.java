@@ -0,0 +1,58 @@
+package frc.robot.lib.util;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Real-time Clock using the roboRIO's FPGA timestamp and WPILib Notifiers
+ */
+public class FPGAClock extends Clock
+{
+	// singleton class
+	private static FPGAClock instance = null;
+	public static FPGAClock getInstance()
+	{
+		if (instance == null) {
+			instance = new FPGAClock();
+		}
+		return instance;
+	}
+
+	private FPGAClock() {}
+
+	@Override
+	public double getTime()
+	{
+		return Timer.getFPGATimestamp();
+	}
+
+	@Override
+	public void sleep(double _seconds)
+	{
+		long waitTime = (long)(_seconds * 1000.0);
+		if (waitTime <= 0)
+			return;
+		try
+		{
+			Thread.sleep(waitTime);
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public PeriodicTask createPeriodic(Runnable _task)
+	{
+		final Notifier notifier = new Notifier(_task);
+		return new PeriodicTask()
+		{
+			@Override
+			public void startPeriodic(double _period) { notifier.startPeriodic(_period); }
+
+			@Override
+			public void stop() { notifier.stop(); }
+		};
+	}
+}
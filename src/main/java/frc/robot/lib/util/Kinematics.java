@@ -45,6 +45,14 @@ public class Kinematics
             left = _left;
             right = _right;
         }
+
+        // fill in without allocating
+        public WheelSpeed set(double _left, double _right)
+        {
+            left = _left;
+            right = _right;
+            return this;
+        }
         
 		public void scale(double _scale)
         {
@@ -95,25 +103,44 @@ public class Kinematics
     	LinearAngularSpeed speed = forwardKinematics(_lSpeed, _rSpeed, _gyroAngle - _currentPose.getHeading());
         return travelArc(_currentPose, speed);
     }
+
+    // fills in _finalPose (which may be _currentPose) instead of allocating
+    public static Pose integrateForwardKinematics(Pose _currentPose, double _lSpeed, double _rSpeed, double _gyroAngle, Pose _finalPose)
+    {
+        return travelArc(_currentPose, (_lSpeed + _rSpeed)/2, _gyroAngle - _currentPose.getHeading(), _finalPose);
+    }
     
+    // below this half-angle (radians), travelArc() uses the series 1 - x^2/6 + x^4/120 for sin(x)/x (within x^6/5040 < 2e-10)
+    private static final double kSmallAngle = 0.1;
+
     // Obtain a new Pose from travel along a constant curvature path.
     public static Pose travelArc(Pose _initialPose, LinearAngularSpeed _speed)
     {
-		double D = _speed.linearSpeed;				// distance traveled = arc-length of circle
-		double L = D;							// chord-length
+    	return travelArc(_initialPose, _speed.linearSpeed, _speed.angularSpeed, new Pose());
+    }
+
+    // fills in _finalPose (which may be _initialPose) instead of allocating
+    public static Pose travelArc(Pose _initialPose, double _distance, double _dTheta, Pose _finalPose)
+    {
+		double D = _distance;					// distance traveled = arc-length of circle
+		double L;								// chord-length
 		
-		double dTheta = _speed.angularSpeed;
-		if (Math.abs(dTheta) > 1e-9)
-			L = 2*D*Math.sin(dTheta/2)/dTheta;			// chord-length given change in heading
+		double dTheta = _dTheta;
+		Trig trig = Trig.getDefault();
+		double halfTheta = dTheta/2;
+		if (Math.abs(halfTheta) < kSmallAngle)
+		{
+			// sin(x)/x by its series: dividing by a small angle would magnify the error of a table sin
+			double x2 = halfTheta*halfTheta;
+			L = D*(1 - x2/6*(1 - x2/20));
+		}
+		else
+			L = D*trig.sin(halfTheta)/halfTheta;		// chord-length given change in heading
 				
-		double avgHeading = _initialPose.getHeading() + dTheta/2;	// mean of current and final headings
+		double avgHeading = _initialPose.getHeading() + halfTheta;	// mean of current and final headings
 
-		Vector2d translation = Vector2d.magnitudeAngle(L, avgHeading);	// calculate change in position
-		
-		// update pose
-		Pose finalPose = _initialPose.add(translation).turn(_speed.angularSpeed);
-		
-		return finalPose;
+		// update pose: translate by the chord, then turn
+		return _finalPose.set(_initialPose.getX() + L*trig.cos(avgHeading), _initialPose.getY() + L*trig.sin(avgHeading), _initialPose.getHeading() + dTheta);
     }
 
     
@@ -142,13 +169,24 @@ public class Kinematics
 
     public static WheelSpeed inverseKinematicsFromSpeedCurvature(double _linearSpeed, double _curvature)
     {
-    	double angularSpeed = _linearSpeed * _curvature;
-    	return inverseKinematics(_linearSpeed, angularSpeed);
+    	return inverseKinematicsFromSpeedCurvature(_linearSpeed, _curvature, new WheelSpeed());
     }
     
     public static WheelSpeed inverseKinematics(double _linearSpeed, double _angularSpeed) 
+    {
+        return inverseKinematics(_linearSpeed, _angularSpeed, new WheelSpeed());
+    }
+
+    // scratch variants: fill in _wheelSpeed instead of allocating, and return it
+    public static WheelSpeed inverseKinematicsFromSpeedCurvature(double _linearSpeed, double _curvature, WheelSpeed _wheelSpeed)
+    {
+    	double angularSpeed = _linearSpeed * _curvature;
+    	return inverseKinematics(_linearSpeed, angularSpeed, _wheelSpeed);
+    }
+    
+    public static WheelSpeed inverseKinematics(double _linearSpeed, double _angularSpeed, WheelSpeed _wheelSpeed) 
     {
         double dSpeed = _angularSpeed * DriveLoop.kTrackEffectiveDiameter / (2 * DriveLoop.kTrackScrubFactor);
-        return new WheelSpeed(_linearSpeed - dSpeed, _linearSpeed + dSpeed); 
+        return _wheelSpeed.set(_linearSpeed - dSpeed, _linearSpeed + dSpeed); 
     }
 }
@@ -0,0 +1,28 @@
+package frc.robot.lib.util;
+
+/**
+ * Trig using java.lang.Math (the default)
+ */
+public class MathTrig extends Trig
+{
+	// singleton class
+	private static MathTrig instance = null;
+	public static MathTrig getInstance()
+	{
+		if (instance == null) {
+			instance = new MathTrig();
+		}
+		return instance;
+	}
+
+	private MathTrig() {}
+
+	@Override
+	public double sin(double _angle) { return Math.sin(_angle); }
+
+	@Override
+	public double cos(double _angle) { return Math.cos(_angle); }
+
+	@Override
+	public double atan2(double _y, double _x) { return Math.atan2(_y, _x); }
+}
@@ -0,0 +1,247 @@
+package frc.robot.lib.util;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import frc.robot.lib.util.PathSegment.Options;
+
+/**
+ * Progress along a CompiledPath: the current segment, and the arc length
+ * reached along the path (the start of the current segment, moved up to the
+ * closest point to the robot).  Progress only moves forward.
+ *
+ * Each PathFollower has its own cursor, so any number of them can follow the
+ * same CompiledPath.  reset() starts again from the beginning of the path.
+ * Not thread safe: use a cursor from one thread at a time.
+ */
+public class PathCursor
+{
+	protected static final double kSegmentCompletePercentage = .99;
+
+	private final CompiledPath path;
+	private int segment = 0;				// current segment (path.numSegments when the path is complete)
+	private double position = 0;			// arc length of the progress point
+	private double lookaheadDistance;		// used by the last call to getLookaheadPoint()
+	private final Set<String> markersCrossed = new HashSet<String>();
+
+	// results of project()
+	private double projIndex;
+	private double projAlong;
+	private double projDistance;
+
+	public PathCursor(CompiledPath _path)
+	{
+		path = _path;
+	}
+
+	// start again from the beginning of the path
+	public void reset()
+	{
+		segment = 0;
+		position = 0;
+		markersCrossed.clear();
+	}
+
+	public CompiledPath getPath()      { return path; }
+	public int     getSegmentIndex()   { return segment; }		// path.getNumSegments() when complete
+	public boolean isComplete()        { return segment >= path.numSegments; }
+	public double  getPosition()       { return position; }
+	public double  getRemainingLength(){ return isComplete() ? 0 : path.getTotalLength() - position; }
+	public double  getLookaheadDistance() { return lookaheadDistance; }	// lookahead distance used by last call to getLookaheadPoint()
+	public boolean getReverseDirection()  { return path.getReverseDirection(); }
+	public Set<String> getMarkersCrossed() { return markersCrossed; }
+
+	// fills in the (moved up) start of the current segment
+	public Vector2d getSegmentStart(Vector2d _start)
+	{
+		if (isComplete())
+			return _start.set(0, 0);
+		return path.pointAt(segment, position - path.arcLength[segment], _start);
+	}
+
+	public Vector2d getSegmentEnd(Vector2d _end)
+	{
+		if (isComplete())
+			return _end.set(0, 0);
+		return _end.set(path.endX[segment], path.endY[segment]);
+	}
+
+	public double getSegmentFinalSpeed()
+	{
+		if (segment+1 >= path.numSegments)
+			return path.getFinalSpeed();						// final speed at the end of the last segment on this path
+		else
+			return path.options[segment+1].getMaxSpeed();		// final speed of this segment is the next segments max speed
+	}
+
+	public double getSegmentMaxSpeed()
+	{
+		return isComplete() ? 0 : path.options[segment].getMaxSpeed();
+	}
+
+	public double getSegmentMaxAccel()
+	{
+		return isComplete() ? 0 : path.options[segment].getMaxAccel();
+	}
+
+	public boolean getSegmentVisionEnable()
+	{
+		return isComplete() ? true : path.options[segment].getVisionEnable();		// vision-only mode doesn't require a path
+	}
+
+	/*
+	 * projects (_x,_y) onto segment _k, starting _offset along it.  sets
+	 *   projIndex:    fraction of the way from that start to the end (not clamped)
+	 *   projAlong:    distance along the segment from its original start
+	 *   projDistance: distance from the closest point on the segment
+	 */
+	private void project(int _k, double _offset, double _x, double _y)
+	{
+		double ax = path.startX[_k] + _offset*path.dirX[_k];
+		double ay = path.startY[_k] + _offset*path.dirY[_k];
+		double remaining = path.length[_k] - _offset;
+		if (remaining*remaining < Util.kEpsilon)
+		{
+			// segment is very small.  return its start
+			projIndex = 0;
+			projAlong = _offset;
+			projDistance = Math.hypot(_x - ax, _y - ay);
+			return;
+		}
+		double along = (_x - ax)*path.dirX[_k] + (_y - ay)*path.dirY[_k];
+		projIndex = along / remaining;
+		projAlong = _offset + along;
+		double clamped = Util.limit(along, 0.0, remaining);		// closest point on the segment
+		projDistance = Math.hypot(_x - (ax + clamped*path.dirX[_k]), _y - (ay + clamped*path.dirY[_k]));
+	}
+
+	/*
+	 *  update() takes the current robot position, and moves the cursor forward along the path:
+	 *  past completed segments (adding markersCrossed), and up to the closest point on the current one
+	 *
+	 *  update() returns the distance off of the path
+	 */
+	public double update(Vector2d _position)
+	{
+		double x = _position.x;
+		double y = _position.y;
+		double distOffPath = 0.0;
+
+		while (segment < path.numSegments)
+		{
+			project(segment, position - path.arcLength[segment], x, y);
+
+			// check if segment has been completed
+			if (projIndex >= kSegmentCompletePercentage)
+			{
+				markerCrossed(segment);
+				segment++;
+				position = path.arcLength[segment];
+				continue;
+			}
+
+			// segment not complete: move up to closest point
+			if (projIndex > 0.0)
+				position = path.arcLength[segment] + projAlong;
+			distOffPath = projDistance;
+
+			// check if next segment is closer than this one
+			if (segment+1 < path.numSegments)
+			{
+				project(segment+1, 0, x, y);
+				if (projIndex > 0 &&
+					projIndex < kSegmentCompletePercentage &&
+					projDistance < distOffPath)
+				{
+					// next segment is closer: drop current segment and move to next
+					markerCrossed(segment);
+					segment++;
+					position = path.arcLength[segment] + projAlong;
+					distOffPath = projDistance;
+				}
+			}
+
+			// stop once we've found a segment not yet completed
+			break;
+		}
+		return distOffPath;
+	}
+
+	private void markerCrossed(int _k)
+	{
+		Optional<String> marker = path.options[_k].getMarker();
+		if (marker.isPresent())
+			markersCrossed.add( marker.get() );
+	}
+
+	// getLookaheadPoint() fills in the point which is lookaheadDistance ahead along path from current position
+	//   The lookahead point will be at the intersection of that path and
+	//   a circle centered at _position with radius _lookaheadDistance
+	public Vector2d getLookaheadPoint(Vector2d _position, double _distanceFromPath, Vector2d _lookaheadPoint)
+	{
+		if (isComplete())
+		{
+			// already finished path.  this shouldn't happen.
+			return _lookaheadPoint.set(0, 0);
+		}
+
+		int numSegments = path.numSegments;
+		Options[] options = path.options;
+		double x = _position.x;
+		double y = _position.y;
+		lookaheadDistance = options[segment].getLookaheadDist() + _distanceFromPath;
+		getSegmentStart(_lookaheadPoint);
+		double distanceToStart = Math.hypot(_lookaheadPoint.x - x, _lookaheadPoint.y - y);
+		if (distanceToStart >= lookaheadDistance)
+		{
+			// Special case:
+			// not within range of start, so first attempt to to get back to start
+			return _lookaheadPoint;
+		}
+
+		// segment ends less than the smallest lookahead distance along the path from the start
+		// are inside every lookahead circle: skip them (the distance to an end is at most
+		// the distance to the start plus the arc length from the start to the end)
+		double inside = position + (path.minLookaheadDist + _distanceFromPath) - distanceToStart;
+		int lo = segment;
+		int hi = numSegments;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (path.arcLength[mid+1] < inside)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		// find first segment whose endpoint is outside of lookahead circle
+		for (int k = lo; k < numSegments; k++)
+		{
+			double distanceToEnd = Math.hypot(path.endX[k] - x, path.endY[k] - y);
+			lookaheadDistance = options[k].getLookaheadDist() + _distanceFromPath;
+			if (distanceToEnd >= lookaheadDistance)
+			{
+				// This segment contains the lookahead point
+				if (path.getLineCircleIntersection(k, x, y, lookaheadDistance, _lookaheadPoint))
+					return _lookaheadPoint;
+
+				// shouldn't happen unless path is discontiguous
+				// Path() constructor always makes contiguous paths
+				System.out.println("ERROR: No intersection point?");
+			}
+		}
+
+		// Special case:
+		// Last point has moved inside lookahead circle
+		// Extrapolate last segment forward and return intersection with extrapolated segment
+		int last = numSegments - 1;
+		lookaheadDistance = options[last].getLookaheadDist() + _distanceFromPath;
+		if (path.getLineCircleIntersection(last, x, y, lookaheadDistance, _lookaheadPoint))
+			return _lookaheadPoint;
+
+		// shouldn't happen.  drive towards endpoint
+		System.out.println("ERROR: No intersection point anywhere on line?");
+		return _lookaheadPoint.set(path.endX[last], path.endY[last]);
+	}
+}
@@ -9,7 +9,8 @@ import frc.robot.loops.DriveLoop;
 import frc.robot.subsystems.Drive;
 
 import edu.wpi.first.wpilibj.Relay;
-import edu.wpi.first.wpilibj.Timer;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
 
 
 /**
@@ -32,9 +33,16 @@ public class PathFollower
 	public Drive drive = Drive.getInstance();
 	public RobotState robotState = RobotState.getInstance();
 	public VisionStatus visionStatus = VisionStatus.getInstance();
-	private Relay ledRelay = LedRelay.getInstance();
+	private Relay ledRelay = null;		// looked up when first used: constructing it needs the robot's HAL
+	private boolean ledControl = true;
+	private Clock clock;
 	
-	Path path;
+	CompiledPath path;
+	PathCursor cursor;		// progress along path
+	Trajectory trajectory;	// speed profile for path following (null: limit acceleration as we go)
+	private Trajectory.Sample sample = new Trajectory.Sample();
+	private Vector2d segmentStart = new Vector2d();		// for logging
+	private Vector2d segmentEnd = new Vector2d();
 	
 	public Vector2d avgTargetLocation = new Vector2d(0,0);
 
@@ -62,21 +70,60 @@ public class PathFollower
 	public double speed;
 	public double curvature;
 
-	public WheelSpeed wheelSpeed;
+	public WheelSpeed wheelSpeed = new WheelSpeed();		// filled in by each pathVisionDrive()
+
+	// scratch for pathVisionDrive(), so that following a path doesn't allocate
+	private Vector2d robotToTarget = new Vector2d();
+	private Vector2d prevToTarget = new Vector2d();
+	private Pose cameraPose_Field = new Pose();
 	
 	private double prevSpeed;
 	private double prevTime;
+	private double startTime;
+	private double lastImageTimestamp = 0;		// last image passed to RobotState
+
+	private static final double kMinSpeed = 4.0;		// Talons can't track low speeds well
 
 	
     public PathFollower(Path _path, PathVisionState _initialState) 
+    {
+    	this(_path.compile(), _initialState, Clock.getDefault());
+    }
+
+    public PathFollower(Path _path, PathVisionState _initialState, Clock _clock) 
+    {
+    	this(_path.compile(), _initialState, _clock);
+    }
+
+    public PathFollower(CompiledPath _path, PathVisionState _initialState) 
+    {
+    	this(_path, _initialState, Clock.getDefault());
+    }
+
+    public PathFollower(CompiledPath _path, PathVisionState _initialState, Clock _clock) 
+    {
+    	this(_path, null, _initialState, _clock);
+    }
+
+    // follows _path at the speeds in _trajectory (made from _path by TrajectoryGenerator)
+    public PathFollower(CompiledPath _path, Trajectory _trajectory, PathVisionState _initialState) 
+    {
+    	this(_path, _trajectory, _initialState, Clock.getDefault());
+    }
+
+    public PathFollower(CompiledPath _path, Trajectory _trajectory, PathVisionState _initialState, Clock _clock) 
     {
         drive = Drive.getInstance();
         path = _path;
+        cursor = new PathCursor(_path);
+        trajectory = _trajectory;
         state = _initialState;
+        clock = _clock;
     }
 
     public void start() 
     {
+		cursor.reset();					// start from the beginning of the path (again)
 		prevSpeed = robotState.getSpeed();
 		prevTime  = -1;		
         remainingDistance = Double.MAX_VALUE;	// make sure we run update() at least once before finishing
@@ -84,6 +131,19 @@ public class PathFollower
 
 
     public void update() 
+    {
+		wheelSpeed = calcWheelSpeed();
+
+		//---------------------------------------------------
+		// Output: Send drive control
+		//---------------------------------------------------
+        drive.setVelocitySetpoint(wheelSpeed);
+	}
+
+    
+    // reads the inputs from RobotState, VisionStatus and the clock, and returns the wheel speeds to command
+    // (without sending them to the drive, so that LogReplay can run this off the robot)
+    public WheelSpeed calcWheelSpeed() 
     {
 		//---------------------------------------------------
 		// Get inputs
@@ -94,31 +154,39 @@ public class PathFollower
 		double normalizedTargetX 	 = visionStatus.getNormalizedTargetX();
 		double normalizedTargetWidth = visionStatus.getNormalizedTargetWidth();
 
-		currentPose = robotState.getLatestFieldToVehicle();		
-		currentTime = Timer.getFPGATimestamp();
+		robotState.getLatestFieldToVehicle(currentPose);		
+		currentTime = clock.getTime();
 
-//FIXME: add timestamp synchronization to timestamps.  Using adjusted current timestamp for now			
-imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camera latency
+		// VisionLoop timestamps images with the latency reported by the camera
+		if (imageTimestamp <= 0)
+			imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// no image yet: assume the nominal latency
 		
 		// calculate target location based on *previous* robot pose
-		previousPose = robotState.getFieldToVehicle(imageTimestamp);
+		robotState.getFieldToVehicle(imageTimestamp, previousPose);
 
 		//---------------------------------------------------
 		// Process
 		//---------------------------------------------------
-		wheelSpeed = pathVisionDrive(currentTime, currentPose, previousPose, imageTimestamp, normalizedTargetX, normalizedTargetWidth);	// sets speed, curvature to follow path
-
-		//---------------------------------------------------
-		// Output: Send drive control
-		//---------------------------------------------------
-        drive.setVelocitySetpoint(wheelSpeed);
+		return pathVisionDrive(currentTime, currentPose, previousPose, imageTimestamp, normalizedTargetX, normalizedTargetWidth);	// sets speed, curvature to follow path
 	}
 
     
+	// The vision target is steered to from RobotState's filtered target location: each new image with a target
+	// is passed on to RobotState here (on the robot, VisionLoop has already added it, and the same image again
+	// just replaces it), so the vision arguments are all that is needed off the robot.
 	public WheelSpeed pathVisionDrive(double _currentTime, Pose _currentPose, Pose _previousPose, double _imageTimestamp, double _normalizedTargetX, double _normalizedTargetWidth)
 	{
 		if (prevTime < 0)				// initial setting of prevTime is important to limit initial acceleration
-			prevTime = _currentTime;	// avoid calling Timer.getFPGATimestamp() in this function to allow off-robot testing
+		{
+			prevTime = _currentTime;	// avoid calling clock.getTime() in this function to allow off-robot testing
+			startTime = _currentTime;	// trajectory time is measured from here
+		}
+
+		if (_normalizedTargetWidth > 0 && _imageTimestamp != lastImageTimestamp)
+		{
+			lastImageTimestamp = _imageTimestamp;
+			robotState.addVisionObservation(_imageTimestamp, _normalizedTargetX, _normalizedTargetWidth);
+		}
 		
 		//System.out.println("At " + _currentPose + "  Driving to " + path.getSegmentEnd());
 		
@@ -127,7 +195,7 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 		double maxSpeed = 0;
 		double maxAccel = 0;
 		
-		boolean visionEnabledSegment = path.getSegmentVisionEnable(); 
+		boolean visionEnabledSegment = cursor.getSegmentVisionEnable(); 
 		if (visionEnabledSegment)
 			visionDrive(_currentTime, _currentPose, _previousPose, _imageTimestamp, _normalizedTargetX, _normalizedTargetWidth);
 		else
@@ -135,20 +203,23 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 			
 		if (state == PathVisionState.PATH_FOLLOWING)	 
 		{
-			remainingDistance = path.getRemainingLength();		// TODO: address stopping when past final segment
-			finalSpeed = path.getSegmentFinalSpeed();
-			maxSpeed = path.getSegmentMaxSpeed();
-			maxAccel = path.getSegmentMaxAccel();
+			remainingDistance = cursor.getRemainingLength();		// TODO: address stopping when past final segment
+			finalSpeed = cursor.getSegmentFinalSpeed();
+			maxSpeed = cursor.getSegmentMaxSpeed();
+			maxAccel = cursor.getSegmentMaxAccel();
 		}
 		else
 		{
 			remainingDistance = distanceToTargetInches - Constants.kPegTargetDistanceThresholdFromCameraInches;
-			finalSpeed = path.getSegmentFinalSpeed();
+			finalSpeed = cursor.getSegmentFinalSpeed();
 			maxSpeed = Constants.kVisionMaxVel;
 			maxAccel = Constants.kVisionMaxAccel;
 		}
 		
-		speedControl(_currentTime, remainingDistance, finalSpeed, maxSpeed, maxAccel);
+		if (state == PathVisionState.PATH_FOLLOWING && trajectory != null)
+			trajectorySpeedControl(_currentTime, maxSpeed);
+		else
+			speedControl(_currentTime, remainingDistance, finalSpeed, maxSpeed, maxAccel);
 
 		if (path.getReverseDirection())
 		{
@@ -156,13 +227,15 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 			curvature = -curvature;	// TODO: simplify by removing this, and removing flipping heading 180 degrees below?
 		}
 		
-		wheelSpeed = Kinematics.inverseKinematicsFromSpeedCurvature(speed, curvature);
+		Kinematics.inverseKinematicsFromSpeedCurvature(speed, curvature, wheelSpeed);
 		wheelSpeed.limit(maxSpeed);
 		return wheelSpeed;
 	}
 	
-	public WheelSpeed getWheelVelocity() { return getWheelVelocity(); }
-	public Path   getPath() { return path; }	// warning: not returning a defensive copy
+	public WheelSpeed getWheelVelocity() { return wheelSpeed; }
+	public CompiledPath getPath() { return path; }
+	public PathCursor getCursor() { return cursor; }
+	public Trajectory getTrajectory() { return trajectory; }
 	public double getDistanceFromPath() { return distanceFromPath; }
 	public PathVisionState getPathVisionState() { return state; }
 
@@ -173,13 +246,13 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 		//---------------------------------------------------
 		// Find Lookahead Point
 		//---------------------------------------------------
-		distanceFromPath = path.update(_currentPose.getPosition());
-		lookaheadPoint = path.getLookaheadPoint(_currentPose.getPosition(), distanceFromPath);
+		distanceFromPath = cursor.update(_currentPose.getPosition());
+		cursor.getLookaheadPoint(_currentPose.getPosition(), distanceFromPath, lookaheadPoint);
 		
 		//---------------------------------------------------
 		// Find arc to travel to Lookahead Point
 		//---------------------------------------------------
-		Vector2d robotToTarget = lookaheadPoint.sub(_currentPose.getPosition());
+		lookaheadPoint.sub(_currentPose.getPosition(), robotToTarget);
 		lookaheadDist = robotToTarget.length();
 		headingToTarget = robotToTarget.angle() - _currentPose.getHeading();
 		if (path.getReverseDirection())
@@ -193,7 +266,7 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 	// drive towards vision target (or follow path if no target acquired)
 	public void visionDrive(double _currentTime, Pose _currentPose, Pose _previousPose, double _imageTimestamp, double _normalizedTargetX, double _normalizedTargetWidth)
 	{
-		ledRelay.set(Relay.Value.kOn); 		// turn on LEDs during Vision-enabled segments
+		setLeds(Relay.Value.kOn); 		// turn on LEDs during Vision-enabled segments
 		distanceToTargetInches = Double.MAX_VALUE;
 		
 		// If we get a valid message from the Vision co-processor, update our estimate of the target location
@@ -203,32 +276,23 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 			// Estimate target location based on previous location,
 			// to compensate for latency in processing image
 			//-----------------------------------------------------
-			Pose cameraPose_Field = cameraPose_Robot.transformBy(_previousPose);
+			cameraPose_Robot.transformBy(_previousPose, cameraPose_Field);
 			prevDistanceToTargetInches = Constants.kTargetWidthInches / (2.0*_normalizedTargetWidth*Constants.kTangentCameraHalfFOV);
 			prevHeadingToTarget = _previousPose.getHeading() + (-_normalizedTargetX*Constants.kCameraHalfFOVRadians);
-			Vector2d prevToTarget = Vector2d.magnitudeAngle(prevDistanceToTargetInches, prevHeadingToTarget);
-			targetLocation = cameraPose_Field.getPosition().add(prevToTarget); 	
+			Vector2d.magnitudeAngle(prevDistanceToTargetInches, prevHeadingToTarget, prevToTarget);
+			cameraPose_Field.getPosition().add(prevToTarget, targetLocation); 	
 			
-			// filter target location with exponential averaging
-
-			if (prevDistanceToTargetInches < Constants.kVisionMaxDistanceInches)	// ignore bogus targets
-			{
-				if (state == PathVisionState.PATH_FOLLOWING)
-				{
-					avgTargetLocation = targetLocation;
-					state = PathVisionState.VISION;			
-				}
-				else
-				{
-					avgTargetLocation = avgTargetLocation.expAverage(targetLocation, Constants.kTargetLocationFilterConstant);
-				}
-			}
 		}
+
+		// steer towards the filtered target location from RobotState, which fuses each image
+		// once, with the robot pose when it was taken (targetLocation above is just the latest image)
+		if (robotState.getTargetLocation(_currentTime, avgTargetLocation))
+			state = PathVisionState.VISION;
 		
 		// Drive towards target, even if we didn't get a valid Vision co-processor message this time
 		if (state == PathVisionState.VISION)
 		{
-			Vector2d robotToTarget = avgTargetLocation.sub(_currentPose.getPosition());
+			avgTargetLocation.sub(_currentPose.getPosition(), robotToTarget);
 			distanceToTargetInches = robotToTarget.length();
 			headingToTarget = robotToTarget.angle() - _currentPose.getHeading();
 			
@@ -273,7 +337,6 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 			speed = maxBrakingSpeed;
 
 		// apply minimum velocity limit (Talons can't track low speeds well)
-		final double kMinSpeed = 4.0;
 		if (speed < kMinSpeed)
 			speed = kMinSpeed;
 
@@ -281,6 +344,19 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
 		prevTime = _currentTime;
 		prevSpeed = speed;
 	}
+	
+	// follow the trajectory's speed profile: the planned speed for this time, corrected
+	// by how far we are behind (or ahead of) where the trajectory expects us to be
+	public void trajectorySpeedControl(double _currentTime, double _maxSpeed)
+	{
+		trajectory.sample(_currentTime - startTime, sample);
+		speed = sample.velocity + DriveLoop.kPathFollowingDistanceGain * (sample.distance - cursor.getPosition());
+		speed = Util.limit(speed, kMinSpeed, Math.max(_maxSpeed, kMinSpeed));
+
+		// store for next time through loop (in case we switch to vision)
+		prevTime = _currentTime;
+		prevSpeed = speed;
+	}
 		
 	
     public boolean isFinished() 
@@ -295,11 +371,26 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
      	return done;
     }
 
+    // turn off to follow paths without the LED relay (e.g. when replaying logs or benchmarking off the robot)
+    public void setLedControl(boolean _enabled)
+    {
+    	ledControl = _enabled;
+    }
+
+    private void setLeds(Relay.Value _value)
+    {
+    	if (!ledControl)
+    		return;
+    	if (ledRelay == null)
+    		ledRelay = LedRelay.getInstance();
+    	ledRelay.set(_value);
+    }
+
     public void done() 
     {
 		// cleanup code, if any
-    	ledRelay.set(Relay.Value.kOff); 		// turn off LEDs when done
-    	drive.setVelocitySetpoint(new WheelSpeed(path.finalSpeed, path.finalSpeed));
+    	setLeds(Relay.Value.kOff); 		// turn off LEDs when done
+    	drive.setVelocitySetpoint(new WheelSpeed(path.getFinalSpeed(), path.getFinalSpeed()));
     }
 
  
@@ -307,58 +398,110 @@ imageTimestamp = currentTime - Constants.kCameraLatencySeconds;		// remove camer
     
     private final DataLogger logger = new DataLogger()
     {
+    	final DoubleChannel currentTimeCh              = addDouble("PathVision/currentTime", "s");
+    	final EnumChannel<DriveCommand.DriveControlMode> driveModeCh = addEnum("PathVision/driveMode", DriveCommand.DriveControlMode.class, Policy.kChangeOnly);
+    	final EnumChannel<ControlMode> talonModeCh     = addEnum("PathVision/talonMode", ControlMode.class, Policy.kChangeOnly);
+    	final DoubleChannel leftCh                     = addDouble("PathVision/left");
+    	final DoubleChannel rightCh                    = addDouble("PathVision/right");
+    	final EnumChannel<NeutralMode> neutralModeCh   = addEnum("PathVision/neutralMode", NeutralMode.class, Policy.kChangeOnly);
+
+    	final DoubleChannel positionXCh                = addDouble("PathVision/positionX");
+    	final DoubleChannel positionYCh                = addDouble("PathVision/positionY");
+    	final DoubleChannel headingDegCh               = addDouble("PathVision/headingDeg");
+
+    	final DoubleChannel imageTimestampCh           = addDouble("PathVision/imageTimestamp");
+    	final DoubleChannel normalizedTargetXCh        = addDouble("PathVision/normalizedTargetX");
+    	final DoubleChannel normalizedTargetWidthCh    = addDouble("PathVision/normalizedTargetWidth");
+
+    	final BooleanChannel reversedCh                = addBoolean("PathVision/reversed", Policy.kChangeOnly);
+    	final EnumChannel<PathVisionState> stateCh     = addEnum("PathVision/state", PathVisionState.class, Policy.kChangeOnly);
+
+    	final DoubleChannel segmentStartXCh            = addDouble("PathVision/segmentStartX", Policy.kChangeOnly);
+    	final DoubleChannel segmentStartYCh            = addDouble("PathVision/segmentStartY", Policy.kChangeOnly);
+    	final DoubleChannel segmentEndXCh              = addDouble("PathVision/segmentEndX", Policy.kChangeOnly);
+    	final DoubleChannel segmentEndYCh              = addDouble("PathVision/segmentEndY", Policy.kChangeOnly);
+    	final DoubleChannel segmentFinalSpeedCh        = addDouble("PathVision/segmentFinalSpeed", Policy.kChangeOnly);
+    	final DoubleChannel segmentMaxSpeedCh          = addDouble("PathVision/segmentMaxSpeed", Policy.kChangeOnly);
+    	final BooleanChannel segmentVisionEnableCh     = addBoolean("PathVision/segmentVisionEnable", Policy.kChangeOnly);
+
+    	final DoubleChannel distanceFromPathCh         = addDouble("PathVision/distanceFromPath");
+    	final DoubleChannel lookaheadDistCh            = addDouble("PathVision/lookaheadDist");
+    	final DoubleChannel lookaheadPointXCh          = addDouble("PathVision/lookaheadPointX");
+    	final DoubleChannel lookaheadPointYCh          = addDouble("PathVision/lookaheadPointY");
+
+    	final DoubleChannel prevPoseXCh                = addDouble("PathVision/prevPoseX");
+    	final DoubleChannel prevPoseYCh                = addDouble("PathVision/prevPoseY");
+
+    	final DoubleChannel targetLocationXCh          = addDouble("PathVision/targetLocationX");
+    	final DoubleChannel targetLocationYCh          = addDouble("PathVision/targetLocationY");
+    	final DoubleChannel avgTargetLocationXCh       = addDouble("PathVision/avgTargetLocationX");
+    	final DoubleChannel avgTargetLocationYCh       = addDouble("PathVision/avgTargetLocationY");
+    	final DoubleChannel distanceToTargetInchesCh   = addDouble("PathVision/distanceToTargetInches");
+    	final DoubleChannel headingToTargetCh          = addDouble("PathVision/headingToTarget");
+
+    	final DoubleChannel remainingDistanceCh        = addDouble("PathVision/remainingDistance");
+
+    	final DoubleChannel speedCh                    = addDouble("PathVision/speed");
+    	final DoubleChannel curvatureCh                = addDouble("PathVision/curvature");
+    	final DoubleChannel lSpeedCh                   = addDouble("PathVision/lSpeed");
+    	final DoubleChannel rSpeedCh                   = addDouble("PathVision/rSpeed");
+    	final Pose odometry = new Pose();
+
         @Override
         public void log()
         {            
+			currentTimeCh.set( currentTime );		// clock time of the last update(), for LogReplay
+
 			DriveCommand cmd = drive.getCommand();
-    		put("PathVision/driveMode", cmd.getDriveControlMode().toString() );
-    		put("PathVision/talonMode", cmd.getTalonControlMode().toString() );
-    		put("PathVision/left",  cmd.getLeftMotor() );
-       		put("PathVision/right", cmd.getRightMotor() );
-      		put("PathVision/neutralMode", DriveCommand.getNeutralMode().toString() );
+			driveModeCh.set( cmd.getDriveControlMode() );
+			talonModeCh.set( cmd.getTalonControlMode() );
+			leftCh.set( cmd.getLeftMotor() );
+			rightCh.set( cmd.getRightMotor() );
+			neutralModeCh.set( DriveCommand.getNeutralMode() );
       		
-       		Pose odometry = robotState.getLatestFieldToVehicle();
-            put("PathVision/positionX",  odometry.getX());
-            put("PathVision/positionY",  odometry.getY());
-            put("PathVision/headingDeg", odometry.getHeadingDeg());
+       		robotState.getLatestFieldToVehicle(odometry);
+       		positionXCh.set( odometry.getX() );
+       		positionYCh.set( odometry.getY() );
+       		headingDegCh.set( odometry.getHeadingDeg() );
         	
-    		put("PathVision/imageTimestamp", visionStatus.getImageTimestamp() );
-    		put("PathVision/normalizedTargetX", visionStatus.getNormalizedTargetX() );
-    		put("PathVision/normalizedTargetWidth", visionStatus.getNormalizedTargetWidth() );
+       		imageTimestampCh.set( visionStatus.getImageTimestamp() );
+       		normalizedTargetXCh.set( visionStatus.getNormalizedTargetX() );
+       		normalizedTargetWidthCh.set( visionStatus.getNormalizedTargetWidth() );
             
-			put("PathVision/reversed", path.getReverseDirection());
-			put("PathVision/state", state.toString());
-
-			put("PathVision/segmentStartX", path.getSegmentStart().getX());
-			put("PathVision/segmentStartY", path.getSegmentStart().getY());
-			put("PathVision/segmentEndX", path.getSegmentEnd().getX());
-			put("PathVision/segmentEndY", path.getSegmentEnd().getY());
-			put("PathVision/segmentFinalSpeed", path.getSegmentFinalSpeed());
-			put("PathVision/segmentMaxSpeed", path.getSegmentMaxSpeed());
-			put("PathVision/segmentVisionEnable", path.getSegmentVisionEnable());
-			
-			put("PathVision/distanceFromPath", distanceFromPath );
-			put("PathVision/lookaheadDist", lookaheadDist );
-			put("PathVision/lookaheadPointX",  lookaheadPoint.getX() );
-			put("PathVision/lookaheadPointY",  lookaheadPoint.getY());
+       		reversedCh.set( path.getReverseDirection() );
+       		stateCh.set( state );
 
-			put("PathVision/prevPoseX", previousPose.getX());
-			put("PathVision/prevPoseY", previousPose.getY());
+       		cursor.getSegmentStart(segmentStart);
+       		cursor.getSegmentEnd(segmentEnd);
+       		segmentStartXCh.set( segmentStart.getX() );
+       		segmentStartYCh.set( segmentStart.getY() );
+       		segmentEndXCh.set( segmentEnd.getX() );
+       		segmentEndYCh.set( segmentEnd.getY() );
+       		segmentFinalSpeedCh.set( cursor.getSegmentFinalSpeed() );
+       		segmentMaxSpeedCh.set( cursor.getSegmentMaxSpeed() );
+       		segmentVisionEnableCh.set( cursor.getSegmentVisionEnable() );
 			
-			put("PathVision/targetLocationX", targetLocation.getX());
-			put("PathVision/targetLocationY", targetLocation.getY());
-			put("PathVision/avgTargetLocationX", avgTargetLocation.getX());
-			put("PathVision/avgTargetLocationY", avgTargetLocation.getY());
-			put("PathVision/distanceToTargetInches", distanceToTargetInches);
-			put("PathVision/headingToTarget", headingToTarget);
-
-			put("PathVision/remainingDistance",  remainingDistance );
+       		distanceFromPathCh.set( distanceFromPath );
+       		lookaheadDistCh.set( lookaheadDist );
+       		lookaheadPointXCh.set( lookaheadPoint.getX() );
+       		lookaheadPointYCh.set( lookaheadPoint.getY() );
+
+       		prevPoseXCh.set( previousPose.getX() );
+       		prevPoseYCh.set( previousPose.getY() );
 			
-			put("PathVision/speed", 	speed);
-			put("PathVision/curvature", curvature );
-			put("PathVision/lSpeed", 	wheelSpeed.left);
-			put("PathVision/rSpeed", 	wheelSpeed.right);
+       		targetLocationXCh.set( targetLocation.getX() );
+       		targetLocationYCh.set( targetLocation.getY() );
+       		avgTargetLocationXCh.set( avgTargetLocation.getX() );
+       		avgTargetLocationYCh.set( avgTargetLocation.getY() );
+       		distanceToTargetInchesCh.set( distanceToTargetInches );
+       		headingToTargetCh.set( headingToTarget );
+
+       		remainingDistanceCh.set( remainingDistance );
 			
+       		speedCh.set( speed );
+       		curvatureCh.set( curvature );
+       		lSpeedCh.set( wheelSpeed.left );
+       		rSpeedCh.set( wheelSpeed.right );
         }
     };
 	
@@ -48,6 +48,7 @@ public class PathSegment
 	    public Options(Options _options)
 	    {
 	    	this(_options.maxSpeed, _options.maxAccel, _options.lookaheadDist, _options.visionEnable);
+	    	marker = _options.marker;
 	    }
 	    
 	    public double   getMaxSpeed()   		{ return maxSpeed; }		
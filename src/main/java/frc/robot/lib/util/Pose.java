@@ -34,11 +34,26 @@ public class Pose implements Interpolable<Pose>
 		heading  = _heading;
     }
 
-    public Pose(Pose that) 
+    public Pose(Pose that)
     {
     	this(that.position, that.heading);
     }
 
+    // setters, to fill in a Pose without allocating (e.g. PoseHistory.get())
+    // only use on Poses you own: other code may be holding on to this one, or its getPosition()
+    public Pose set(double _x, double _y, double _heading)
+    {
+    	position.x = _x;
+    	position.y = _y;
+    	heading = _heading;
+    	return this;
+    }
+
+    public Pose set(Pose that)
+    {
+    	return set(that.position.x, that.position.y, that.heading);
+    }
+
     
 	/** multiply by this to convert from radians to degrees */
 	static public final double radiansToDegrees = 180 / Math.PI;
@@ -59,7 +74,8 @@ public class Pose implements Interpolable<Pose>
     public Vector2d getPosition() { return position; }
     public double getHeading() { return heading; }
     public double getHeadingDeg() { return heading * radiansToDegrees; }
-    public Vector2d getHeadingUnitVector() { return new Vector2d(Math.cos(heading), Math.sin(heading)); }
+    public Vector2d getHeadingUnitVector() { return getHeadingUnitVector(new Vector2d()); }
+    public Vector2d getHeadingUnitVector(Vector2d _result) { return _result.set(Trig.getDefault().cos(heading), Trig.getDefault().sin(heading)); }
 
     // for when the Pose represents a translation/rotation
     public Vector2d getTranslation() { return position; }
@@ -70,7 +86,13 @@ public class Pose implements Interpolable<Pose>
     // add performs vector translation.  The original heading is not changed
     public Pose add(Vector2d _translation)
     {
-    	return new Pose(position.add(_translation), heading);
+    	return add(_translation, new Pose());
+    }
+
+    // scratch variants below fill in _result (which may be this) instead of allocating, and return it
+    public Pose add(Vector2d _translation, Pose _result)
+    {
+    	return _result.set(position.x + _translation.x, position.y + _translation.y, heading);
     }
     
     // returns vector from that to this.position
@@ -95,7 +117,15 @@ public class Pose implements Interpolable<Pose>
     // rotates position about origin, and adjusts heading by _theta
     public Pose rotate(double _theta)
     {
-    	return new Pose(position.rotate(_theta), heading+_theta);
+    	return rotate(_theta, new Pose());
+    }
+
+    public Pose rotate(double _theta, Pose _result)
+    {
+    	Trig trig = Trig.getDefault();
+    	double cos = trig.cos(_theta);
+    	double sin = trig.sin(_theta);
+    	return _result.set(position.x * cos - position.y * sin, position.x * sin + position.y * cos, heading+_theta);
     }
 
     // get distance from this pose to vector v
@@ -121,6 +151,11 @@ public class Pose implements Interpolable<Pose>
      // Linear interpolation of poses
     @Override
     public Pose interpolate(Pose _that, double _u)
+    {
+    	return interpolate(_that, _u, new Pose());
+    }
+
+    public Pose interpolate(Pose _that, double _u, Pose _result)
     {
     	double u = _u;
         if (u < 0)
@@ -128,10 +163,11 @@ public class Pose implements Interpolable<Pose>
         if (u > 1) 
             u = 1;
         
-    	Vector2d iPosition = position.interpolate(_that.position, u);		// interpolate position
-    	double  iHeading = this.heading + u*(_that.heading - this.heading);	// interpolate heading
+    	double iX = position.x + u*(_that.position.x - position.x);			// interpolate position
+    	double iY = position.y + u*(_that.position.y - position.y);
+    	double iHeading = this.heading + u*(_that.heading - this.heading);	// interpolate heading
     	 
-        return new Pose(iPosition, iHeading);
+        return _result.set(iX, iY, iHeading);
     }
 
     
@@ -148,11 +184,17 @@ public class Pose implements Interpolable<Pose>
     //              this would be the pose of the camera with respect to the robot's center of rotation and heading
     //              that would give the pose of the robot with respect to the field
 	public Pose transformBy(Pose _that)
+	{
+		return transformBy(_that, new Pose());
+	}
+
+	public Pose transformBy(Pose _that, Pose _result)
 	{
 																// assume robot's center of rotation is (0,0)
-		Pose transformedPose = this.rotate(_that.heading);	// first, rotate by that.heading
-		transformedPose = transformedPose.add(_that.position);	// then translate by that.position
-		return transformedPose;
+		double tx = _that.position.x;							// _result may be _that
+		double ty = _that.position.y;
+		this.rotate(_that.heading, _result);					// first, rotate by that.heading
+		return _result.set(_result.position.x + tx, _result.position.y + ty, _result.heading);	// then translate by that.position
 	}
 	
 	// Returns the inverse transform
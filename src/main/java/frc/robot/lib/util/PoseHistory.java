@@ -0,0 +1,183 @@
+package frc.robot.lib.util;
+
+/**
+ * Fixed-size history of timestamped poses, for looking up where the robot was
+ * at some recent time (e.g. when a camera image was taken).
+ *
+ * Replaces InterpolatingTreeMap<InterpolatingDouble, Pose> for odometry: the
+ * poses are kept in parallel double[] arrays used as a circular buffer, so
+ * adding a pose (and dropping the oldest) is O(1), a lookup is a binary
+ * search, and neither allocates.  Lookups fill in a Pose supplied by the
+ * caller.
+ *
+ * Lookups between two entries are interpolated as Pose.interpolate() does;
+ * lookups before the first or after the last entry return that entry.
+ *
+ * Not synchronized: the owner (RobotState) does that.
+ */
+public class PoseHistory
+{
+	private final int capacity;
+	private final double[] t;
+	private final double[] x;
+	private final double[] y;
+	private final double[] heading;
+	private int first = 0;		// array index of the oldest entry
+	private int size = 0;
+
+	public PoseHistory(int _capacity)
+	{
+		capacity = _capacity;
+		t       = new double[_capacity];
+		x       = new double[_capacity];
+		y       = new double[_capacity];
+		heading = new double[_capacity];
+	}
+
+	public int size()         { return size; }
+	public int getCapacity()  { return capacity; }
+	public boolean isEmpty()  { return size == 0; }
+
+	public void clear()
+	{
+		first = 0;
+		size = 0;
+	}
+
+	// array index of the _k'th oldest entry
+	private int index(int _k)
+	{
+		int k = first + _k;
+		return (k < capacity) ? k : k - capacity;
+	}
+
+	/*
+	 * Adds a pose at time _t, dropping the oldest one if full.
+	 * Times are expected to increase: a pose at the same time as the last replaces it,
+	 * and an older one is inserted in order (slower, but still no allocation).
+	 */
+	public void add(double _t, double _x, double _y, double _heading)
+	{
+		if (size > 0)
+		{
+			int last = index(size-1);
+			if (_t == t[last])
+			{
+				set(last, _t, _x, _y, _heading);
+				return;
+			}
+			if (_t < t[last])
+			{
+				insert(_t, _x, _y, _heading);
+				return;
+			}
+		}
+
+		if (size == capacity)
+		{
+			first = index(1);	// drop the oldest
+			size--;
+		}
+		set(index(size), _t, _x, _y, _heading);
+		size++;
+	}
+
+	public void add(double _t, Pose _pose)
+	{
+		add(_t, _pose.getX(), _pose.getY(), _pose.getHeading());
+	}
+
+	private void set(int _i, double _t, double _x, double _y, double _heading)
+	{
+		t[_i] = _t;
+		x[_i] = _x;
+		y[_i] = _y;
+		heading[_i] = _heading;
+	}
+
+	// out of order add: shift the newer entries up to make room
+	private void insert(double _t, double _x, double _y, double _heading)
+	{
+		int k = search(_t);		// entries 0..k are at or before _t
+		if (k >= 0 && t[index(k)] == _t)
+		{
+			set(index(k), _t, _x, _y, _heading);
+			return;
+		}
+		if (size == capacity)
+		{
+			if (k < 0)
+				return;			// older than everything kept
+			first = index(1);	// drop the oldest
+			size--;
+			k--;
+		}
+		for (int j = size; j > k+1; j--)
+		{
+			int to = index(j);
+			int from = index(j-1);
+			set(to, t[from], x[from], y[from], heading[from]);
+		}
+		set(index(k+1), _t, _x, _y, _heading);
+		size++;
+	}
+
+	// returns the last entry with time <= _t (-1 if none)
+	private int search(double _t)
+	{
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (t[index(mid)] <= _t)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		return hi;
+	}
+
+	/*
+	 * Fills in _pose with the pose at time _t, and returns it.
+	 * returns null (and leaves _pose alone) if the history is empty
+	 */
+	public Pose get(double _t, Pose _pose)
+	{
+		if (size == 0)
+			return null;
+
+		int k = search(_t);
+		if (k < 0)
+			k = 0;				// before the first entry
+		int i = index(k);
+		if (k == size-1 || t[i] == _t)
+			return _pose.set(x[i], y[i], heading[i]);
+
+		int j = index(k+1);
+		if (_t < t[i])
+			return _pose.set(x[i], y[i], heading[i]);
+
+		double u = (_t - t[i]) / (t[j] - t[i]);
+		return _pose.set(x[i] + u*(x[j] - x[i]), y[i] + u*(y[j] - y[i]), heading[i] + u*(heading[j] - heading[i]));
+	}
+
+	// fills in _pose with the newest pose, and returns it (null if empty)
+	public Pose getLatest(Pose _pose)
+	{
+		if (size == 0)
+			return null;
+		int i = index(size-1);
+		return _pose.set(x[i], y[i], heading[i]);
+	}
+
+	public double getLatestTime()
+	{
+		return (size == 0) ? Double.NaN : t[index(size-1)];
+	}
+
+	public double getOldestTime()
+	{
+		return (size == 0) ? Double.NaN : t[first];
+	}
+}
@@ -0,0 +1,96 @@
+package frc.robot.lib.util;
+
+/**
+ * Trig by table lookup, with linear interpolation between entries.
+ *
+ * sin and cos share a table of one period of sin (kSinTableSize intervals).
+ * Linear interpolation is off by at most h^2/8 * max|sin''| = h^2/8, for
+ * intervals of h = 2*pi/kSinTableSize radians:
+ *   |sin(x) - Math.sin(x)| <= 3.0e-7, |cos(x) - Math.cos(x)| <= 3.0e-7
+ * for |x| up to 1e6 radians (beyond that, the rounding of x itself grows past it).
+ *
+ * atan2 reduces (_y,_x) to atan(z) for z = min/max of |_x|,|_y| in [0,1], then
+ * fixes up the octant.  The table of atan on [0,1] has kAtanTableSize
+ * intervals, so the error is at most h^2/8 * max|atan''| = (1/1024)^2/8 * 0.65:
+ *   |atan2(y,x) - Math.atan2(y,x)| <= 1.0e-7 radians
+ * Zero, infinite and NaN arguments are passed to Math.atan2().
+ *
+ * TableTrigTest checks these bounds, and the odometry drift over long
+ * synthetic runs: run it after changing the table sizes.
+ */
+public class TableTrig extends Trig
+{
+	// singleton class
+	private static TableTrig instance = null;
+	public static TableTrig getInstance()
+	{
+		if (instance == null) {
+			instance = new TableTrig();
+		}
+		return instance;
+	}
+
+	public static final int kSinTableSize = 4096;		// intervals per period (power of 2)
+	public static final int kAtanTableSize = 1024;		// intervals from atan(0) to atan(1)
+	public static final double kMaxSinError = 3.0e-7;
+	public static final double kMaxAtanError = 1.0e-7;
+
+	private static final int kSinMask = kSinTableSize - 1;
+	private static final double kSinScale = kSinTableSize / (2*Math.PI);
+	private static final double kQuarterPeriod = kSinTableSize / 4;
+
+	private final double[] sinTable = new double[kSinTableSize + 1];		// last entry repeats the first, so i+1 is always in the table
+	private final double[] atanTable = new double[kAtanTableSize + 1];
+
+	private TableTrig()
+	{
+		for (int i = 0; i <= kSinTableSize; i++)
+			sinTable[i] = Math.sin(i / kSinScale);
+		for (int i = 0; i <= kAtanTableSize; i++)
+			atanTable[i] = Math.atan((double)i / kAtanTableSize);
+	}
+
+	// interpolates the sin table at _t intervals from 0
+	private double lookupSin(double _t)
+	{
+		double f = Math.floor(_t);
+		int i = (int)((long)f & kSinMask);
+		double u = _t - f;					// NaN for NaN or infinite angles, which makes the result NaN
+		double a = sinTable[i];
+		return a + u*(sinTable[i+1] - a);
+	}
+
+	@Override
+	public double sin(double _angle)
+	{
+		return lookupSin(_angle * kSinScale);
+	}
+
+	@Override
+	public double cos(double _angle)
+	{
+		return lookupSin(_angle * kSinScale + kQuarterPeriod);
+	}
+
+	@Override
+	public double atan2(double _y, double _x)
+	{
+		double ax = Math.abs(_x);
+		double ay = Math.abs(_y);
+		if (!(ax < Double.POSITIVE_INFINITY && ay < Double.POSITIVE_INFINITY) || (ax == 0 && ay == 0))
+			return Math.atan2(_y, _x);		// NaN, infinite, or zero: leave the special cases to Math
+
+		boolean steep = (ay > ax);
+		double t = (steep ? ax/ay : ay/ax) * kAtanTableSize;
+		int i = Math.min((int)t, kAtanTableSize - 1);
+		double u = t - i;
+		double a = atanTable[i];
+		double angle = a + u*(atanTable[i+1] - a);		// in [0, pi/4]
+
+		if (steep)
+			angle = Math.PI/2 - angle;
+		if (_x < 0)
+			angle = Math.PI - angle;
+		return Math.copySign(angle, _y);				// copySign keeps the sign of -0.0, as Math.atan2() does
+	}
+}
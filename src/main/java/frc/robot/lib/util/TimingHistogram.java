@@ -0,0 +1,118 @@
+package frc.robot.lib.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of durations (in seconds), used to track how long
+ * periodic code takes to run.
+ *
+ * All storage is allocated in the constructor, so record() and the
+ * percentile queries do not allocate.  Durations are binned with a fixed
+ * bin width; anything beyond the last bin is counted in an overflow bin.
+ * Percentiles are reported as the upper edge of the bin they fall in
+ * (i.e. they are rounded up by at most one bin width).
+ *
+ * record() is not synchronized: it must only be called by one thread at a
+ * time (the thread running the loop), so that it never waits on a reader.
+ * The bins and totals are published through an AtomicLongArray and volatile
+ * fields, so the getters can be called from any thread without locking.
+ * They may see a sample that is only partly recorded, which can move a
+ * percentile by one sample.
+ */
+public class TimingHistogram
+{
+	public static final double kDefaultBinWidth = 25e-6;	// 25 us
+	public static final int    kDefaultNumBins  = 800;		// 800 * 25 us = 20 ms range
+
+	private final double binWidth;
+	private final AtomicLongArray bins;	// last bin is the overflow bin
+	private final double overrunThreshold;
+
+	// written only by the recording thread
+	private volatile long count;
+	private volatile long overruns;
+	private volatile double max;
+	private volatile double last;
+	private volatile double sum;
+
+	public TimingHistogram(double _overrunThreshold)
+	{
+		this(_overrunThreshold, kDefaultBinWidth, kDefaultNumBins);
+	}
+
+	public TimingHistogram(double _overrunThreshold, double _binWidth, int _numBins)
+	{
+		overrunThreshold = _overrunThreshold;
+		binWidth = _binWidth;
+		bins = new AtomicLongArray(_numBins + 1);
+	}
+
+	// single writer: only call from one thread at a time
+	public void record(double _duration)
+	{
+		int bin = (int)(_duration / binWidth);
+		if (bin < 0)
+			bin = 0;
+		if (bin >= bins.length())
+			bin = bins.length() - 1;
+		bins.lazySet(bin, bins.get(bin) + 1);	// no other writer, so no need for a CAS
+
+		sum += _duration;
+		last = _duration;
+		if (_duration > max)
+			max = _duration;
+		if (_duration > overrunThreshold)
+			overruns++;
+		count++;
+	}
+
+	// returns the duration below which _percentile (0 to 1) of the samples fall
+	public double getPercentile(double _percentile)
+	{
+		long n = count;
+		if (n == 0)
+			return 0;
+
+		long target = (long)Math.ceil(Util.limit(_percentile, 0.0, 1.0) * n);
+		if (target < 1)
+			target = 1;
+
+		long cumulative = 0;
+		for (int bin = 0; bin < bins.length() - 1; bin++)
+		{
+			cumulative += bins.get(bin);
+			if (cumulative >= target)
+				return Math.min((bin + 1) * binWidth, max);
+		}
+		return max;		// percentile is in the overflow bin
+	}
+
+	public double getMedian() { return getPercentile(0.50); }
+	public double getP99()    { return getPercentile(0.99); }
+
+	public double getMax()      { return max; }
+	public double getLast()     { return last; }
+	public double getMean()     { long n = count; return (n > 0) ? sum / n : 0; }
+	public long   getCount()    { return count; }
+	public long   getOverruns() { return overruns; }
+	public double getOverrunThreshold() { return overrunThreshold; }
+
+	// may be called from another thread: a sample recorded at the same time may be only partly cleared
+	public void reset()
+	{
+		for (int bin = 0; bin < bins.length(); bin++)
+			bins.set(bin, 0);
+		count = 0;
+		overruns = 0;
+		max = 0;
+		last = 0;
+		sum = 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("n: %d, p50: %.3f ms, p99: %.3f ms, max: %.3f ms, overruns: %d",
+				count, getMedian()*1000, getP99()*1000, max*1000, overruns);
+	}
+}
@@ -0,0 +1,194 @@
+package frc.robot.lib.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A path's velocity profile, sampled at a fixed time step: the distance along
+ * the path, position, heading, curvature, velocity and acceleration the robot
+ * should have at each multiple of dt from the start.  Made by
+ * TrajectoryGenerator before the match, so that PathFollower only has to look
+ * up the sample for the current time.
+ *
+ * The samples are kept in the same binary layout in memory as in the file, so
+ * a saved trajectory is just memory-mapped by load() and used in place.  All
+ * values are floats (to a few thousandths of an inch over a field).
+ *
+ * File layout (big-endian):
+ *   magic "TRAJ", version byte, 3 bytes reserved
+ *   long   pathHash     (TrajectoryGenerator.hash() of the path and options it was made from)
+ *   double dt
+ *   double finalSpeed
+ *   int    numSamples
+ *   int    flags        (bit 0: reverse direction)
+ *   numSamples records of 7 floats: distance, x, y, heading, curvature, velocity, acceleration
+ *
+ * Immutable: share between threads as needed.
+ */
+public class Trajectory
+{
+	public static final String kFileExtension = ".traj";
+	static final byte[] kMagic = { 'T', 'R', 'A', 'J' };
+	static final byte kVersion = 1;
+	static final int kHeaderSize = 40;
+	static final int kNumFields = 7;
+	static final int kRecordSize = kNumFields * 4;
+	static final int kDistance = 0, kX = 1, kY = 2, kHeading = 3, kCurvature = 4, kVelocity = 5, kAcceleration = 6;
+	static final int kFlagReverse = 1;
+
+	/**
+	 * One sample, interpolated to a time (filled in by sample())
+	 */
+	public static class Sample
+	{
+		public double time;				// seconds from the start of the path
+		public double distance;			// along the path (inches)
+		public double x, y;				// position (inches)
+		public double heading;			// radians
+		public double curvature;		// 1/inches (positive: turning left)
+		public double velocity;			// inches/sec (always positive: see getReverseDirection())
+		public double acceleration;		// inches/sec^2
+	}
+
+	private final ByteBuffer buf;
+	private final long pathHash;
+	private final double dt;
+	private final double finalSpeed;
+	private final int numSamples;
+	private final boolean reverseDirection;
+
+	// _buf holds a whole trajectory, in the file layout
+	Trajectory(ByteBuffer _buf) throws IOException
+	{
+		buf = _buf.duplicate();		// only absolute gets from here on
+		if (buf.capacity() < kHeaderSize)
+			throw new IOException("not a trajectory file");
+		for (int k = 0; k < kMagic.length; k++)
+			if (buf.get(k) != kMagic[k])
+				throw new IOException("not a trajectory file");
+		if (buf.get(kMagic.length) != kVersion)
+			throw new IOException("unsupported trajectory version " + buf.get(kMagic.length));
+		pathHash   = buf.getLong(8);
+		dt         = buf.getDouble(16);
+		finalSpeed = buf.getDouble(24);
+		numSamples = buf.getInt(32);
+		reverseDirection = (buf.getInt(36) & kFlagReverse) != 0;
+		if (numSamples < 1 || buf.capacity() < kHeaderSize + (long)numSamples * kRecordSize)
+			throw new IOException("truncated trajectory file");
+	}
+
+	// an empty buffer for _numSamples samples, with the header filled in
+	static ByteBuffer allocate(long _pathHash, double _dt, double _finalSpeed, int _numSamples, boolean _reverseDirection)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(kHeaderSize + _numSamples * kRecordSize);
+		buf.put(kMagic);
+		buf.put(kVersion);
+		buf.putLong(8, _pathHash);
+		buf.putDouble(16, _dt);
+		buf.putDouble(24, _finalSpeed);
+		buf.putInt(32, _numSamples);
+		buf.putInt(36, _reverseDirection ? kFlagReverse : 0);
+		return buf;
+	}
+
+	static void put(ByteBuffer _buf, int _index, int _field, double _value)
+	{
+		_buf.putFloat(kHeaderSize + _index * kRecordSize + _field * 4, (float)_value);
+	}
+
+	// memory-maps a file written by save()
+	public static Trajectory load(File _file) throws IOException
+	{
+		try (RandomAccessFile file = new RandomAccessFile(_file, "r"))
+		{
+			return new Trajectory(file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));	// the mapping outlives the file
+		}
+	}
+
+	// writes to a temporary file first, so a trajectory is never left half written
+	public void save(File _file) throws IOException
+	{
+		File tmp = new File(_file.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(tmp))
+		{
+			ByteBuffer data = buf.duplicate();
+			data.clear();
+			data.limit(kHeaderSize + numSamples * kRecordSize);
+			FileChannel channel = out.getChannel();
+			while (data.hasRemaining())
+				channel.write(data);
+		}
+		if (!tmp.renameTo(_file))
+		{
+			_file.delete();
+			if (!tmp.renameTo(_file))
+				throw new IOException("can't rename " + tmp + " to " + _file);
+		}
+	}
+
+	public long    getPathHash()        { return pathHash; }
+	public double  getDt()              { return dt; }
+	public int     getNumSamples()      { return numSamples; }
+	public double  getDuration()        { return (numSamples - 1) * dt; }
+	public double  getFinalSpeed()      { return finalSpeed; }
+	public boolean getReverseDirection(){ return reverseDirection; }
+
+	private double get(int _index, int _field)
+	{
+		return buf.getFloat(kHeaderSize + _index * kRecordSize + _field * 4);
+	}
+
+	public double getDistance(int _index)     { return get(_index, kDistance); }
+	public double getX(int _index)            { return get(_index, kX); }
+	public double getY(int _index)            { return get(_index, kY); }
+	public double getHeading(int _index)      { return get(_index, kHeading); }
+	public double getCurvature(int _index)    { return get(_index, kCurvature); }
+	public double getVelocity(int _index)     { return get(_index, kVelocity); }
+	public double getAcceleration(int _index) { return get(_index, kAcceleration); }
+	public double getTotalDistance()          { return getDistance(numSamples-1); }
+
+	// index of the last sample at or before _time (limited to the trajectory)
+	public int getIndex(double _time)
+	{
+		if (!(_time > 0))
+			return 0;
+		return (int)Math.min(_time / dt, numSamples - 1);
+	}
+
+	/*
+	 * Fills in _sample with the trajectory at _time (seconds from the start), interpolating
+	 * between the samples either side.  Before the start it is the first sample, after the end
+	 * the last.  Doesn't allocate.
+	 */
+	public Sample sample(double _time, Sample _sample)
+	{
+		int i = getIndex(_time);
+		int j = Math.min(i + 1, numSamples - 1);
+		double u = Util.limit(_time / dt - i, 0.0, 1.0);
+		_sample.time         = Util.limit(_time, 0.0, getDuration());
+		_sample.distance     = lerp(i, j, kDistance, u);
+		_sample.x            = lerp(i, j, kX, u);
+		_sample.y            = lerp(i, j, kY, u);
+		_sample.heading      = lerp(i, j, kHeading, u);
+		_sample.curvature    = lerp(i, j, kCurvature, u);
+		_sample.velocity     = lerp(i, j, kVelocity, u);
+		_sample.acceleration = get(i, kAcceleration);
+		return _sample;
+	}
+
+	private double lerp(int _i, int _j, int _field, double _u)
+	{
+		double a = get(_i, _field);
+		return a + _u * (get(_j, _field) - a);
+	}
+
+	public String toString()
+	{
+		return String.format("Trajectory: %d samples, dt = %.3f s, %.2f s, %.1f in, finalSpeed = %.1f, reversed = %b",
+				numSamples, dt, getDuration(), getTotalDistance(), finalSpeed, reverseDirection);
+	}
+}
@@ -0,0 +1,301 @@
+package frc.robot.lib.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import frc.robot.Constants;
+import frc.robot.loops.DriveLoop;
+
+/**
+ * Turns a CompiledPath into a Trajectory: a velocity profile sampled every dt
+ * seconds, which respects each segment's maximum speed and acceleration, the
+ * path's final speed, and a lateral acceleration limit on curves.
+ *
+ * Paths are polylines, but PathFollower doesn't drive the corners: it cuts
+ * them, steering to a lookahead point.  Each corner is modelled as the arc
+ * tangent to both segments a lookahead distance from the corner (less if a
+ * segment is shorter than twice that), with curvature tan(turn/2)/distance.
+ * Distances, and positions, are measured along the polyline, so that they
+ * compare directly with PathCursor.getPosition(); the heading turns evenly
+ * along the cut corner.
+ *
+ * The profile is made on a fine grid of distances (ds), in the usual three
+ * passes: the speed limit at each point (segment maximum speed, and
+ * sqrt(maxLateralAccel/curvature)), then forward accelerating from the
+ * initial speed, then backward braking to the final speed.  It is then
+ * resampled in time, every dt.
+ *
+ * Generating takes milliseconds: do it at robotInit (getCached() saves the
+ * result, and loads it at the next startup if the path hasn't changed).
+ */
+public class TrajectoryGenerator
+{
+	public static class Options
+	{
+		public final double dt;					// time between samples (seconds)
+		public final double ds;					// distance between points of the speed profile (inches)
+		public final double maxLateralAccel;	// limits speed on curves (inches/sec^2)
+		public final double initialSpeed;		// speed at the start of the path (inches/sec)
+
+		public Options(double _dt, double _ds, double _maxLateralAccel, double _initialSpeed)
+		{
+			dt = _dt;
+			ds = _ds;
+			maxLateralAccel = _maxLateralAccel;
+			initialSpeed = _initialSpeed;
+		}
+	}
+
+	public static final double kDefaultDs = 0.5;
+	public static Options getDefaultOptions()
+	{
+		return new Options(Constants.kLoopDt, kDefaultDs, DriveLoop.kPathFollowingMaxLateralAccel, 0.0);
+	}
+
+	public static Trajectory generate(CompiledPath _path)
+	{
+		return generate(_path, getDefaultOptions());
+	}
+
+	public static Trajectory generate(CompiledPath _path, Options _options)
+	{
+		int numSegments = _path.numSegments;
+		double totalLength = _path.getTotalLength();
+		if (numSegments == 0)
+			return wrap(Trajectory.allocate(hash(_path, _options), _options.dt, _path.getFinalSpeed(), 1, _path.getReverseDirection()));	// nowhere to go
+
+		// corners: the turn at the start of each segment, and how far either side of it the robot turns
+		double[] turn = new double[numSegments+1];
+		double[] halfWidth = new double[numSegments+1];
+		double[] segmentHeading = new double[numSegments];
+		double heading = 0;
+		boolean first = true;
+		for (int k = 0; k < numSegments; k++)
+		{
+			if (_path.length[k] > 0)
+			{
+				double h = Math.atan2(_path.dirY[k], _path.dirX[k]);
+				if (first)
+					heading = h;
+				else
+				{
+					turn[k] = Vector2d.normalizeAngle(h - heading);		// keep heading continuous
+					heading += turn[k];
+				}
+				first = false;
+			}
+			segmentHeading[k] = heading;
+		}
+		for (int k = 1; k < numSegments; k++)
+		{
+			double d = _path.options[k-1].getLookaheadDist();
+			d = Math.min(d, _path.length[k-1] / 2);
+			d = Math.min(d, _path.length[k] / 2);
+			halfWidth[k] = d;
+		}
+
+		// speed limits on a grid of distances
+		int n = Math.max((int)Math.ceil(totalLength / _options.ds), 1) + 1;
+		double ds = totalLength / (n - 1);
+		double[] s = new double[n];
+		double[] curvature = new double[n];
+		double[] velocity = new double[n];
+		double[] accel = new double[n];			// limit over the step from point i to i+1
+		int k = 0;
+		for (int i = 0; i < n; i++)
+		{
+			s[i] = i * ds;
+			k = segmentAt(_path, s[i], k);
+			curvature[i] = curvatureAt(_path, s[i], k, turn, halfWidth);
+			velocity[i] = _path.options[k].getMaxSpeed();
+			accel[i] = _path.options[k].getMaxAccel();
+		}
+		for (int i = 0; i < n; i++)
+		{
+			// the robot is on a curve between this point and the next or previous one
+			double c = Math.abs(curvature[i]);
+			if (i > 0)   c = Math.max(c, Math.abs(curvature[i-1]));
+			if (i < n-1) c = Math.max(c, Math.abs(curvature[i+1]));
+			if (c > 0)
+				velocity[i] = Math.min(velocity[i], Math.sqrt(_options.maxLateralAccel / c));
+		}
+
+		// forward pass: accelerate from the initial speed
+		velocity[0] = Math.min(velocity[0], _options.initialSpeed);
+		for (int i = 1; i < n; i++)
+			velocity[i] = Math.min(velocity[i], Math.sqrt(velocity[i-1]*velocity[i-1] + 2*accel[i-1]*ds));
+
+		// backward pass: brake to the final speed
+		velocity[n-1] = Math.min(velocity[n-1], _path.getFinalSpeed());
+		for (int i = n-2; i >= 0; i--)
+			velocity[i] = Math.min(velocity[i], Math.sqrt(velocity[i+1]*velocity[i+1] + 2*accel[i]*ds));
+
+		// time at each point (constant acceleration between points)
+		double[] t = new double[n];
+		for (int i = 1; i < n; i++)
+			t[i] = t[i-1] + 2*ds / Math.max(velocity[i-1] + velocity[i], 1e-6);
+		double duration = t[n-1];
+
+		// resample every dt
+		int numSamples = (int)Math.ceil(duration / _options.dt - 1e-9) + 1;
+		ByteBuffer buf = Trajectory.allocate(hash(_path, _options), _options.dt, _path.getFinalSpeed(), numSamples, _path.getReverseDirection());
+		Vector2d position = new Vector2d();
+		int i = 0;
+		k = 0;
+		for (int j = 0; j < numSamples; j++)
+		{
+			double time = Math.min(j * _options.dt, duration);
+			while (i < n-2 && t[i+1] <= time)
+				i++;
+			double a = (ds > 0) ? (velocity[i+1]*velocity[i+1] - velocity[i]*velocity[i]) / (2*ds) : 0;
+			double u = time - t[i];
+			double dist = Util.limit(s[i] + velocity[i]*u + 0.5*a*u*u, s[i], s[i+1]);
+			double v = velocity[i] + a*u;
+
+			k = segmentAt(_path, dist, k);
+			_path.pointAt(k, dist - _path.arcLength[k], position);
+			Trajectory.put(buf, j, Trajectory.kDistance, dist);
+			Trajectory.put(buf, j, Trajectory.kX, position.x);
+			Trajectory.put(buf, j, Trajectory.kY, position.y);
+			Trajectory.put(buf, j, Trajectory.kHeading, headingAt(_path, dist, k, segmentHeading, turn, halfWidth));
+			Trajectory.put(buf, j, Trajectory.kCurvature, curvatureAt(_path, dist, k, turn, halfWidth));
+			Trajectory.put(buf, j, Trajectory.kVelocity, v);
+			Trajectory.put(buf, j, Trajectory.kAcceleration, a);
+		}
+
+		return wrap(buf);
+	}
+
+	private static Trajectory wrap(ByteBuffer _buf)
+	{
+		try
+		{
+			return new Trajectory(_buf);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);		// can't happen: we just wrote the header
+		}
+	}
+
+	// segment containing distance _s, searching forward from _k
+	private static int segmentAt(CompiledPath _path, double _s, int _k)
+	{
+		int k = _k;
+		while (k < _path.numSegments-1 && _s >= _path.arcLength[k+1])
+			k++;
+		return k;
+	}
+
+	// curvature of the cut corner at the start (k) or end (k+1) of segment _k, if _s is on it
+	private static double curvatureAt(CompiledPath _path, double _s, int _k, double[] _turn, double[] _halfWidth)
+	{
+		for (int c = _k; c <= _k+1 && c < _path.numSegments; c++)
+		{
+			double d = _halfWidth[c];
+			if (d > 0 && Math.abs(_s - _path.arcLength[c]) < d)
+				return Math.tan(Math.abs(_turn[c]) / 2) / d * Math.signum(_turn[c]);
+		}
+		return 0;
+	}
+
+	// heading, turning evenly across each cut corner
+	private static double headingAt(CompiledPath _path, double _s, int _k, double[] _segmentHeading, double[] _turn, double[] _halfWidth)
+	{
+		double heading = _segmentHeading[_k];
+		double d = _halfWidth[_k];
+		if (d > 0 && _s - _path.arcLength[_k] < d)
+			heading -= _turn[_k] * (0.5 - 0.5 * (_s - _path.arcLength[_k]) / d);		// still turning onto this segment
+		if (_k+1 < _path.numSegments)
+		{
+			d = _halfWidth[_k+1];
+			if (d > 0 && _path.arcLength[_k+1] - _s < d)
+				heading += _turn[_k+1] * (0.5 - 0.5 * (_path.arcLength[_k+1] - _s) / d);	// starting the turn onto the next
+		}
+		return heading;
+	}
+
+
+	/*
+	 * Hash of everything a trajectory is made from: the path, its options, and the generator
+	 * options (FNV-1a of the bits of each value).  Saved in the file to tell whether it is stale.
+	 */
+	public static long hash(CompiledPath _path, Options _options)
+	{
+		long h = 0xcbf29ce484222325L;
+		h = hash(h, Trajectory.kVersion);
+		h = hash(h, _path.numSegments);
+		for (int k = 0; k < _path.numSegments; k++)
+		{
+			h = hash(h, _path.startX[k]);
+			h = hash(h, _path.startY[k]);
+			h = hash(h, _path.endX[k]);
+			h = hash(h, _path.endY[k]);
+			h = hash(h, _path.options[k].getMaxSpeed());
+			h = hash(h, _path.options[k].getMaxAccel());
+			h = hash(h, _path.options[k].getLookaheadDist());
+		}
+		h = hash(h, _path.getFinalSpeed());
+		h = hash(h, _path.getReverseDirection() ? 1 : 0);
+		h = hash(h, _options.dt);
+		h = hash(h, _options.ds);
+		h = hash(h, _options.maxLateralAccel);
+		h = hash(h, _options.initialSpeed);
+		return h;
+	}
+
+	private static long hash(long _h, double _value)
+	{
+		long bits = Double.doubleToLongBits(_value);
+		long h = _h;
+		for (int b = 0; b < 8; b++)
+		{
+			h ^= (bits >>> (8*b)) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+
+	/*
+	 * Returns the trajectory for _path saved in _file, if it was made from the same path and
+	 * options, otherwise generates it and saves it there for next time.
+	 */
+	public static Trajectory getCached(CompiledPath _path, File _file)
+	{
+		return getCached(_path, getDefaultOptions(), _file);
+	}
+
+	public static Trajectory getCached(CompiledPath _path, Options _options, File _file)
+	{
+		long hash = hash(_path, _options);
+		if (_file.isFile())
+		{
+			try
+			{
+				Trajectory trajectory = Trajectory.load(_file);
+				if (trajectory.getPathHash() == hash)
+					return trajectory;
+			}
+			catch (IOException e)
+			{
+				System.out.println("TrajectoryGenerator: can't load " + _file + ": " + e);
+			}
+		}
+
+		Trajectory trajectory = generate(_path, _options);
+		try
+		{
+			File directory = _file.getAbsoluteFile().getParentFile();
+			if (directory != null && !directory.isDirectory())
+				directory.mkdirs();
+			trajectory.save(_file);
+		}
+		catch (IOException e)
+		{
+			System.out.println("TrajectoryGenerator: can't save " + _file + ": " + e);
+		}
+		return trajectory;
+	}
+}
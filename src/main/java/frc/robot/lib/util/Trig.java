@@ -0,0 +1,45 @@
+package frc.robot.lib.util;
+
+/**
+ * Source of sin, cos and atan2 for the per-loop geometry (Kinematics, Pose,
+ * Vector2d).
+ *
+ * MathTrig uses java.lang.Math, and is the default.  TableTrig looks them up in
+ * tables, which is faster on the roboRIO's ARM core, to within the error bounds
+ * documented there: small enough for odometry and path following (see
+ * TableTrigTest for the drift it causes over long runs).
+ *
+ * Switch with Trig.setDefault() at the start of robotInit (or of an off-robot
+ * tool), before any loop threads are started.  getDefault() is read on every
+ * call, so it isn't synchronized: don't change it while loops are running.
+ */
+public abstract class Trig
+{
+	private static Trig defaultTrig = MathTrig.getInstance();
+
+	public static Trig getDefault()
+	{
+		return defaultTrig;
+	}
+
+	public static void setDefault(Trig _trig)
+	{
+		defaultTrig = _trig;
+	}
+
+
+	/**
+	 * Returns the sine of _angle (radians)
+	 */
+	public abstract double sin(double _angle);
+
+	/**
+	 * Returns the cosine of _angle (radians)
+	 */
+	public abstract double cos(double _angle);
+
+	/**
+	 * Returns the angle (radians, -pi to pi) of the point (_x,_y), like Math.atan2()
+	 */
+	public abstract double atan2(double _y, double _x);
+}
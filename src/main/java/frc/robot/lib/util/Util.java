@@ -37,31 +37,37 @@ public class Util
     {
         public double index; 			// Index of the point on the path segment (not clamped to [0, 1])
         public double clampedIndex; 	// As above, but clamped to [0, 1]
-        public Vector2d point; 	// The result of interpolate(clamped_index)
+        public Vector2d point = new Vector2d(); 	// The result of interpolate(clamped_index)
         public double distance; 		// The distance from closest_point to the query point
     }
     
     // find closest point on segment AB to point P
     public static ClosestPointOnSegment getClosestPointOnSegment(Vector2d _a, Vector2d _b, Vector2d _p) 
     {
-    	ClosestPointOnSegment rv = new ClosestPointOnSegment();
+    	return getClosestPointOnSegment(_a, _b, _p, new ClosestPointOnSegment());
+    }
+
+    // fills in _rv (reusing its point) instead of allocating
+    public static ClosestPointOnSegment getClosestPointOnSegment(Vector2d _a, Vector2d _b, Vector2d _p, ClosestPointOnSegment _rv) 
+    {
+    	ClosestPointOnSegment rv = _rv;
     	
-    	Vector2d ab = _b.sub(_a);				// line segment AB
-    	double abLengthSqr = ab.lengthSqr();	// |AB|^2
+    	double abX = _b.x - _a.x;				// line segment AB
+    	double abY = _b.y - _a.y;
+    	double abLengthSqr = abX*abX + abY*abY;	// |AB|^2
     	
         if (abLengthSqr < kEpsilon)
         {
         	// segment is very small.  return A (which is near B)
             rv.index = rv.clampedIndex = 0.0;
-            rv.point = new Vector2d(_a);
+            rv.point.set(_a.x, _a.y);
         }
         else
         {
-        	Vector2d ap = _p.sub(_a);
-        	double dot = ap.dot(ab);
+        	double dot = (_p.x - _a.x)*abX + (_p.y - _a.y)*abY;
             rv.index = dot / abLengthSqr;						// index = |AP|/|AB| cos(angle between AP & AB)   
             rv.clampedIndex = Util.limit(rv.index, 0.0, 1.0);	// clamp in case nearest point is outside segment
-            rv.point = _a.interpolate(_b, rv.index);			// point on AB closest to P
+            _a.interpolate(_b, rv.index, rv.point);				// point on AB closest to P
         } 
 
         rv.distance = _p.distance(rv.point);
@@ -122,6 +128,20 @@ public class Util
     
     
     public static Optional<Vector2d[]> getLineCircleIntersection(Vector2d _p1, Vector2d _p2, Vector2d _center, double _radius)
+    {
+    	Vector2d soln0 = new Vector2d();
+    	Vector2d soln1 = new Vector2d();
+    	int numSolutions = getLineCircleIntersection(_p1, _p2, _center, _radius, soln0, soln1);
+    	if (numSolutions == 0)
+    		return Optional.empty();
+    	else if (numSolutions == 1)
+    		return Optional.of(new Vector2d[] {soln0});
+    	else
+    		return Optional.of(new Vector2d[] {soln0, soln1});
+    }
+
+    // fills in _soln0 (and _soln1, if there are two) instead of allocating.  returns the number of solutions
+    public static int getLineCircleIntersection(Vector2d _p1, Vector2d _p2, Vector2d _center, double _radius, Vector2d _soln0, Vector2d _soln1)
     {
     	// points of intersection are at 
     	// x = {  D*dy +/- sign(dy)*dx*sqrt(R^2*dr^2-D^2) } / dr^2
@@ -129,42 +149,40 @@ public class Util
     	// where D is the determinant
 
     	// shift everything so that center of circle is at (0,0)
-    	Vector2d p1 = new Vector2d(_p1).sub(_center); 
-    	Vector2d p2 = new Vector2d(_p2).sub(_center);
+    	double x1 = _p1.x - _center.x; 
+    	double y1 = _p1.y - _center.y; 
+    	double x2 = _p2.x - _center.x; 
+    	double y2 = _p2.y - _center.y; 
     	
-    	Vector2d d = p2.sub(p1);
-    	double dx = d.getX();				// dx = x2-x1
-    	double dy = d.getY();				// dy = y2-y1
-    	double drSqr = d.lengthSqr();		// drSqr = dx^2 + dy^2
+    	double dx = x2 - x1;				// dx = x2-x1
+    	double dy = y2 - y1;				// dy = y2-y1
+    	double drSqr = dx*dx + dy*dy;		// drSqr = dx^2 + dy^2
     	
-    	double det = p1.cross(p2);			// D = determinant = x1*y2 - x2*y1  
+    	double det = x1*y2 - y1*x2;			// D = determinant = x1*y2 - x2*y1  
     	double disc = (_radius * _radius * drSqr - det * det);	// discriminant = (R^2*dr^2-D^2)		
     	
         if (disc < 0) 
         {
             // no real solutions --> no intersection
-            return Optional.empty();
+            return 0;
         }
 
+        double cx = _center.x;				// _center may be one of the solutions
+        double cy = _center.y;
         if (disc == 0)
         {
         	// single solution
-        	Vector2d[] soln = new Vector2d[1];
-        	soln[0] = new Vector2d( det * dy / drSqr, -det * dx / drSqr);
-        	soln[0] = soln[0].add(_center);
-        	return Optional.of(soln);
+        	_soln0.set( det * dy / drSqr + cx, -det * dx / drSqr + cy);
+        	return 1;
         }
 
         // discriminant > 0: two solutions
         double sqrtDisc = Math.sqrt(disc);
         double sy = (dy<0 ? -1 : 1);
 
-    	Vector2d[] soln = new Vector2d[2];
-    	soln[0] = new Vector2d( (det * dy + sy * dx * sqrtDisc) / drSqr, (-det * dx + sy * dy * sqrtDisc) / drSqr);
-    	soln[1] = new Vector2d( (det * dy - sy * dx * sqrtDisc) / drSqr, (-det * dx - sy * dy * sqrtDisc) / drSqr);
-    	soln[0] = soln[0].add(_center);
-    	soln[1] = soln[1].add(_center);
-    	return Optional.of(soln);
+    	_soln0.set( (det * dy + sy * dx * sqrtDisc) / drSqr + cx, (-det * dx + sy * dy * sqrtDisc) / drSqr + cy);
+    	_soln1.set( (det * dy - sy * dx * sqrtDisc) / drSqr + cx, (-det * dx - sy * dy * sqrtDisc) / drSqr + cy);
+    	return 2;
     }
     
     
@@ -30,7 +30,8 @@ public class Vector2d implements Interpolable<Vector2d>
 	// sets/gets
 	public void setX(double x) { this.x = x; }
 	public void setY(double y) { this.y = y; }
-	
+	public Vector2d set(double _x, double _y) { x = _x; y = _y; return this; }		// fill in without allocating (see Pose.set())
+
     public double getX() { return x; }
 	public double getY() { return y; }
 
@@ -44,10 +45,14 @@ public class Vector2d implements Interpolable<Vector2d>
 	
 	
 	// arithmetic
-	public Vector2d add(Vector2d _v) { return new Vector2d(x + _v.x, y + _v.y); }
-    public Vector2d sub(Vector2d _v) { return new Vector2d(x - _v.x, y - _v.y); }
+	public Vector2d add(Vector2d _v) { return add(_v, new Vector2d()); }
+    public Vector2d sub(Vector2d _v) { return sub(_v, new Vector2d()); }
     public Vector2d neg() { return new Vector2d(-x, -y); }
 
+    // scratch variants: fill in _result (which may be this or _v) instead of allocating, and return it
+	public Vector2d add(Vector2d _v, Vector2d _result) { return _result.set(x + _v.x, y + _v.y); }
+    public Vector2d sub(Vector2d _v, Vector2d _result) { return _result.set(x - _v.x, y - _v.y); }
+
     // absolute value (length) of vector
     public double abs()
     {
@@ -57,7 +62,7 @@ public class Vector2d implements Interpolable<Vector2d>
     // angle from origin to this
     public double angle()
     {
-    	return Math.atan2(y, x);
+    	return Trig.getDefault().atan2(y, x);
     }
 
     // angle from this to _v
@@ -65,7 +70,7 @@ public class Vector2d implements Interpolable<Vector2d>
     {
     	double dx = _v.x - this.x;
     	double dy = _v.y - this.y;
-    	return Math.atan2(dy, dx);
+    	return Trig.getDefault().atan2(dy, dx);
     }
 
     // vector cross product
@@ -125,8 +130,13 @@ public class Vector2d implements Interpolable<Vector2d>
     
     static public Vector2d magnitudeAngle(double _mag, double _angle)
     {
-    	return new Vector2d(_mag*Math.cos(_angle), _mag*Math.sin(_angle));
+    	return magnitudeAngle(_mag, _angle, new Vector2d());
+    }
 
+    static public Vector2d magnitudeAngle(double _mag, double _angle, Vector2d _result)
+    {
+    	Trig trig = Trig.getDefault();
+    	return _result.set(_mag*trig.cos(_angle), _mag*trig.sin(_angle));
     }
 
     // normalize angle to within [-pi, pi)
@@ -153,12 +163,18 @@ public class Vector2d implements Interpolable<Vector2d>
 	// Rotates Vector by the given angle
 	public Vector2d rotate(double _angle)
 	{
-		double cos = Math.cos(_angle);
-		double sin = Math.sin(_angle);
+		return rotate(_angle, new Vector2d());
+	}
+
+	public Vector2d rotate(double _angle, Vector2d _result)
+	{
+		Trig trig = Trig.getDefault();
+		double cos = trig.cos(_angle);
+		double sin = trig.sin(_angle);
 
 		double x = this.x * cos - this.y * sin;
 		double y = this.x * sin + this.y * cos;
-		return new Vector2d(x,y);
+		return _result.set(x,y);
 	}
     
 	// Rotates Vector by the given angle
@@ -177,6 +193,11 @@ public class Vector2d implements Interpolable<Vector2d>
     // linearly interpolate between this (for u=0) and that (for u=1)
     @Override
     public Vector2d interpolate(Vector2d that, double _u)
+    {
+    	return interpolate(that, _u, new Vector2d());
+    }
+
+    public Vector2d interpolate(Vector2d that, double _u, Vector2d _result)
     {
     	double u = _u;
         if (u < 0)
@@ -186,7 +207,7 @@ public class Vector2d implements Interpolable<Vector2d>
         
         double x = this.x + u*(that.x - this.x);
         double y = this.y + u*(that.y - this.y);
-		return new Vector2d(x,y);
+		return _result.set(x,y);
     }
     
 	
@@ -0,0 +1,127 @@
+package frc.robot.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic Clock for running robot code off the robot.
+ *
+ * Time only moves forward when sleep() or advance() is called.  Periodic
+ * tasks that come due are run in the calling thread, in time order (ties are
+ * run in the order the tasks were created), before the call returns.  There
+ * is no waiting, so a 15 second autonomous mode runs as fast as the CPU
+ * allows.
+ *
+ * Example:
+ *   VirtualClock clock = new VirtualClock();
+ *   Clock.setDefault(clock);
+ *   LoopController loopController = new LoopController();	// runs on virtual time
+ *   ...
+ *   loopController.start();
+ *   autoMode.run();			// runAction() sleeps, which runs the loops
+ */
+public class VirtualClock extends Clock
+{
+	private volatile double time;
+	private final List<VirtualPeriodicTask> tasks = new ArrayList<>();
+
+	private class VirtualPeriodicTask implements PeriodicTask
+	{
+		final Runnable task;
+		boolean running = false;
+		double startTime;
+		double period;
+		long count;			// number of times run since started
+
+		VirtualPeriodicTask(Runnable _task)
+		{
+			task = _task;
+		}
+
+		// computed from the start time, so that the period doesn't accumulate rounding errors
+		double getNextTime() { return startTime + (count + 1) * period; }
+
+		@Override
+		public void startPeriodic(double _period)
+		{
+			synchronized (VirtualClock.this)
+			{
+				startTime = time;
+				period = _period;
+				count = 0;
+				running = true;
+			}
+		}
+
+		@Override
+		public void stop()
+		{
+			synchronized (VirtualClock.this)
+			{
+				running = false;
+			}
+		}
+	}
+
+
+	public VirtualClock()
+	{
+		this(0);
+	}
+
+	public VirtualClock(double _startTime)
+	{
+		time = _startTime;
+	}
+
+	@Override
+	public double getTime()
+	{
+		return time;
+	}
+
+	@Override
+	public void sleep(double _seconds)
+	{
+		advance(_seconds);
+	}
+
+	@Override
+	public synchronized PeriodicTask createPeriodic(Runnable _task)
+	{
+		VirtualPeriodicTask periodicTask = new VirtualPeriodicTask(_task);
+		tasks.add(periodicTask);
+		return periodicTask;
+	}
+
+	public void advance(double _seconds)
+	{
+		advanceTo(time + Math.max(_seconds, 0));
+	}
+
+	// run all periodic tasks that come due up to and including _endTime
+	public synchronized void advanceTo(double _endTime)
+	{
+		while (true)
+		{
+			VirtualPeriodicTask next = null;
+			for (VirtualPeriodicTask task : tasks)
+			{
+				if (task.running && task.getNextTime() <= _endTime &&
+					(next == null || task.getNextTime() < next.getNextTime()))
+				{
+					next = task;
+				}
+			}
+			if (next == null)
+				break;
+
+			time = next.getNextTime();
+			next.count++;
+			next.task.run();
+		}
+
+		if (_endTime > time)
+			time = _endTime;
+	}
+}
@@ -10,7 +10,7 @@ import frc.robot.lib.sensors.TCS34725ColorSensor.TCSColor;
  * traveled (compares two waypoints), gyroscope orientation, and velocity, among
  * various other factors. Similar to a car's odometer.
  */
-public class ColorSensorLoop implements Loop 
+public class ColorSensorLoop implements PhasedLoop 
 {
     static ColorSensorLoop instance = new ColorSensorLoop();
     public static ColorSensorLoop getInstance() { return instance; }
@@ -22,6 +22,13 @@ public class ColorSensorLoop implements Loop
     public Servo colorServo;
     public final int colorServoPort = 3;
     public int redCntr = 0;
+    double servoAngle = 63;
+
+    // run at the sensor's integration rate (TCS34725_INTEGRATIONTIME_50MS),
+    // polling faster only re-reads the same colors over I2C
+    public static final double kPeriod = 0.050;
+    public static final double kRedHoldTime = 0.250;    // seconds to hold the servo after red is detected
+    public static final double kBudget = 0.005;         // an I2C color read normally takes ~1 ms
    // public DoubleSolenoid colorSolenoid;
     
 
@@ -49,10 +56,15 @@ public class ColorSensorLoop implements Loop
     int loopCnt = 0;
 
     @Override
-    public void onLoop() 
+    public void onRead()
     {
         // read values from sensors
         color = colorSensor.readColors();
+    }
+
+    @Override
+    public void onLoop() 
+    {
         foundRed = true;
         //foundBlue = true;
         if ((color.getH() >= 42) && (color.getH() <= 205))
@@ -71,20 +83,26 @@ public class ColorSensorLoop implements Loop
            // colorServo.setAngle(50);
             if (foundRed)
             {
-                redCntr = 25;
+                redCntr = (int)Math.round(kRedHoldTime / kPeriod);
             }
             if(redCntr > 0)
             {
                 redCntr--;
-                colorServo.setAngle(120); //120
+                servoAngle = 120; //120
             }
             else
             {
-                colorServo.setAngle(63); //63
+                servoAngle = 63; //63
             }
 
     }
 
+    @Override
+    public void onWrite()
+    {
+        colorServo.setAngle(servoAngle);
+    }
+
     @Override
     public void onStop() 
     {
@@ -12,11 +12,10 @@ import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 
-import edu.wpi.first.wpilibj.Timer;
-
 import frc.robot.Constants;
 import frc.robot.command_status.DriveCommand;
 import frc.robot.command_status.DriveState;
+import frc.robot.lib.util.Clock;
 import frc.robot.lib.sensors.BNO055;
 import frc.robot.lib.sensors.GyroBase;
 import frc.robot.lib.sensors.NavX;
@@ -28,9 +27,13 @@ import frc.robot.subsystems.Drive;
  * In this way, Drive.java does not access the hardware directly.  The benefits of this partition are: 
  * 1) Changes to drive hardware only requires changes to DriveLoop, not Drive
  * 2) DriveLoop can be easily replaced for simulation purposes.
+ *
+ * DriveLoop is a PhasedLoop: status is read from the Talons and gyro in the read phase
+ * (in parallel with other sensor reads), and commands are sent in the write phase,
+ * after the compute phase loops (e.g. the velocity heading loop) have updated Drive.
  */
 
-public class DriveLoop implements Loop 
+public class DriveLoop implements PhasedLoop 
 {
  	// singleton class
 	 private static DriveLoop instance = null;
@@ -116,6 +119,8 @@ public class DriveLoop implements Loop
     public static double kPathFollowingMaxAccel  = kPathFollowingMaxVel / kPathFollowingAccelTime; // inches/sec^2
     public static double kPathFollowingLookahead = 24.0; // inches
     public static double kPathFollowingCompletionTolerance = 4.0; 
+    public static double kPathFollowingMaxLateralAccel = 100.0;	// inches/sec^2, limits speed on curves (see TrajectoryGenerator)
+    public static double kPathFollowingDistanceGain = 2.0;		// 1/sec, speed correction per inch behind the trajectory
 
 
 
@@ -242,11 +247,19 @@ public class DriveLoop implements Loop
 		// nothing
 	}
 
-	@Override public void onLoop()
+	@Override public void onRead()
 	{
 		// get status from hardware
 		getStatus();
-		
+	}
+
+	@Override public void onLoop()
+	{
+		// nothing to compute
+	}
+
+	@Override public void onWrite()
+	{
 		// send new commands to hardware
 		sendCommands();
 	}
@@ -315,7 +328,7 @@ public class DriveLoop implements Loop
 		DriveCommand newCmd = drive.getCommand();
 		
 		// Watchdog timer  
-		double currentTime = Timer.getFPGATimestamp();
+		double currentTime = Clock.getDefault().getTime();
 		if (currentTime - newCmd.getCommandTime() > Constants.kDriveWatchdogTimerThreshold)
 		{
 			// Halt robot if new command hasn't been sent in a while
@@ -429,6 +442,26 @@ public class DriveLoop implements Loop
 	private static double encoderUnitsPerFrameToInchesPerSecond(int _encoderEdgesPerFrame) { return encoderUnitsToInches(_encoderEdgesPerFrame) / kQuadEncoderStatusFramePeriod; }
 	private static int inchesPerSecondToEncoderUnitsPerFrame(double _inchesPerSecond) { return (int)(inchesToEncoderUnits(_inchesPerSecond) * kQuadEncoderStatusFramePeriod); }
 
+
+
+	// raw encoder and gyro values for OdometryEngine, read straight from the hardware on its own thread
+	// (not through DriveState, which is only updated once per loop)
+	private final OdometryEngine.Sensors odometrySensors = new OdometryEngine.Sensors()
+	{
+		@Override
+		public double getLeftDistanceInches()     { return encoderUnitsToInches( lMotorMaster.getSelectedSensorPosition( Constants.kTalonPidIdx ) ); }
+		@Override
+		public double getRightDistanceInches()    { return encoderUnitsToInches( rMotorMaster.getSelectedSensorPosition( Constants.kTalonPidIdx ) ); }
+		@Override
+		public double getLeftSpeedInchesPerSec()  { return encoderUnitsPerFrameToInchesPerSecond( lMotorMaster.getSelectedSensorVelocity( Constants.kTalonPidIdx ) ); }
+		@Override
+		public double getRightSpeedInchesPerSec() { return encoderUnitsPerFrameToInchesPerSecond( rMotorMaster.getSelectedSensorVelocity( Constants.kTalonPidIdx ) ); }
+		@Override
+		public double getHeading()                { return gyro.getHeadingDeg() * Math.PI / 180.0; }		// as DriveState.setHeadingDeg()
+	};
+
+	public OdometryEngine.Sensors getOdometrySensors() { return odometrySensors; }
+
 	
 	
 
@@ -1,110 +1,976 @@
 package frc.robot.loops;
 
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+import frc.robot.lib.util.Clock;
 import frc.robot.lib.util.CrashTrackingRunnable;
+import frc.robot.lib.logging.FlightRecorder;
+import frc.robot.lib.util.DataLogger;
+import frc.robot.lib.util.TimingHistogram;
 import frc.robot.Constants;
 
-import edu.wpi.first.wpilibj.Notifier;
-import edu.wpi.first.wpilibj.Timer;
-
 /**
  * This code runs all of the robot's loops. Loop objects are stored in a List
  * object. They are started when the robot powers up and stopped after the
  * match.
+ *
+ * The time taken by each loop's onLoop(), by the complete tick, and the
+ * jitter in the notifier's wake-up period are recorded in TimingHistograms
+ * so that we can see which loop is using up the kPeriod budget.
+ *
+ * The notifier ticks every kPeriod seconds.  Each loop can be registered
+ * with its own period (a multiple of kPeriod) and phase offset, so that
+ * slow loops only run on some ticks, and are spread across different ticks.
+ *
+ * Time and the periodic tick come from a Clock (a Notifier on the robot),
+ * so the loops can also be run off the robot on a VirtualClock.
+ *
+ * In DEDICATED_THREAD mode, the loops are instead run by a high priority
+ * thread that sleeps until an absolute deadline and then spins for the last
+ * kSpinThreshold seconds, to reduce wake-up jitter.  On a normal tick this
+ * thread does not take any locks: the registered loops are kept in an
+ * immutable array that is replaced (copy-on-write) when a loop is registered,
+ * and the TimingHistograms are written without locking.  (The read worker
+ * barriers, and the LoopDegradationLog when a loop's degradation changes,
+ * do lock.)  Compare getWakeupJitter() in the two modes to see which is
+ * better under load.  DEDICATED_THREAD mode always runs in real time, even
+ * with a VirtualClock.
+ *
+ * Each tick is run in three phases: read, compute and write (see PhasedLoop).
+ * The onRead() calls are shared between the ticking thread and a small pool
+ * of read worker threads, and a barrier makes sure all reads are finished
+ * before any onLoop() is called.
+ *
+ * Each loop has a time budget and a criticality.  A NON_CRITICAL loop that
+ * runs over its budget is degraded according to its Degradation policy: its
+ * next runs are skipped (with backoff), it is decimated to a lower rate, or it
+ * is moved to a background lane thread that the tick never waits for.  Loops
+ * return to normal after kRecoveryRuns runs within budget.  CRITICAL loops
+ * (e.g. DriveLoop) are never degraded, so that a stalled sensor does not
+ * keep delaying the drive output.  Every degradation is recorded in a
+ * LoopDegradationLog.
  */
-public class LoopController 
+public class LoopController
 {
-    public final double kPeriod = Constants.kLoopDt;
+    public final double kPeriod;
+    public static final double kSpinThreshold = 0.0005;	// spin for the last 0.5 ms before a deadline in DEDICATED_THREAD mode
+
+    public enum ExecutionMode { NOTIFIER, DEDICATED_THREAD }
+
+    private ExecutionMode mode_ = ExecutionMode.NOTIFIER;
+    private volatile boolean running_;
+
+    private final Clock clock_;
+    private final Clock.PeriodicTask notifier_;	// the Notifier will run the function runCrashTracked() with a period of kPeriod
+
+    private Thread thread_;						// used in DEDICATED_THREAD mode
+
+    public static final int kDefaultReadWorkers = 2;
+    private int numReadWorkers_ = kDefaultReadWorkers;
+    private Thread[] readWorkers_ = new Thread[0];
+    private CyclicBarrier readStartBarrier_;	// workers wait here for the next read phase
+    private CyclicBarrier readEndBarrier_;		// ... and here until all reads are finished
+    private LoopEntry[] dueReads_ = new LoopEntry[0];	// PhasedLoops to be read this tick
+    private int numDueReads_;
+    private final AtomicInteger nextRead_ = new AtomicInteger();
+    private volatile Throwable readFailure_;
 
-    private boolean running_;
+    public static final int kRecoveryRuns = 50;		// runs within budget before a degraded loop is restored (one step)
+    public static final int kMaxSkipRuns = 32;		// longest backoff for Degradation.SKIP
+    public static final int kMaxDecimation = 8;		// lowest rate for Degradation.DECIMATE is 1/kMaxDecimation
 
-    private final Notifier notifier_;	// the Notifier will run the function runCrashTracked() with a period of kPeriod
-    
-    private final List<Loop> loops_;
+    private Thread lane_;						// background lane for degraded BACKGROUND loops
+    private final Semaphore laneSignal_ = new Semaphore(0);
+    private final LoopDegradationLog degradationLog_ = new LoopDegradationLog();
+
+    private volatile LoopEntry[] loops_;		// immutable, replaced when a loop is registered
     private final Object taskRunningLock_ = new Object();
     private double prev_time_ = 0;
 	protected double dt_;
-   
-    
-    private final CrashTrackingRunnable runnable_ = new CrashTrackingRunnable() 
+	private long tick_ = 0;
+
+	private final TimingHistogram tickTiming_;		// time to run all loops
+	private final TimingHistogram wakeupJitter_;	// |dt - kPeriod|
+	private final ExceptionReport tickExceptions_ = new ExceptionReport();	// DEDICATED_THREAD mode
+
+	/*
+	 * Scheduling options for a registered loop
+	 */
+	static public class Options
+	{
+		public static final double kAutoPhase = -1;	// let the LoopController pick the least loaded phase
+		public static final double kTickBudget = -1;	// budget is the LoopController's kPeriod
+
+		public enum Criticality { CRITICAL, NON_CRITICAL }
+		public enum Degradation { SKIP, DECIMATE, BACKGROUND }
+
+		protected double period;		// seconds between calls to onLoop() (rounded to a multiple of kPeriod)
+		protected double phaseOffset;	// seconds after the start of the period to run onLoop()
+		protected double budget;		// seconds the loop may take each run (all phases)
+		protected Criticality criticality;
+		protected Degradation degradation;	// what to do when a NON_CRITICAL loop runs over budget
+
+		// constructor
+		public Options(double _period)
+		{
+			this(_period, kAutoPhase);
+		}
+
+		public Options(double _period, double _phaseOffset)
+		{
+			this(_period, _phaseOffset, kTickBudget, Criticality.CRITICAL, Degradation.SKIP);
+		}
+
+		public Options(double _period, double _budget, Criticality _criticality, Degradation _degradation)
+		{
+			this(_period, kAutoPhase, _budget, _criticality, _degradation);
+		}
+
+		public Options(double _period, double _phaseOffset, double _budget, Criticality _criticality, Degradation _degradation)
+		{
+			period = _period;
+			phaseOffset = _phaseOffset;
+			budget = _budget;
+			criticality = _criticality;
+			degradation = _degradation;
+		}
+
+		public double getPeriod()      { return period; }
+		public double getPhaseOffset() { return phaseOffset; }
+		public double getBudget()      { return budget; }
+		public Criticality getCriticality() { return criticality; }
+		public Degradation getDegradation() { return degradation; }
+
+		public String toString()
+		{
+			return String.format("Period: %5.3f, PhaseOffset: %5.3f, Budget: %5.3f, %s, %s", period, phaseOffset, budget, criticality, degradation);
+		}
+	}
+
+	/*
+	 * Prints exceptions thrown by a loop that keeps running after them.
+	 * A loop that throws every run would flood the console (and slow the
+	 * thread printing), so the stack trace is only printed the first time,
+	 * and then at most once per FlightRecorder.kTriggerHoldoff with the number
+	 * of exceptions not printed since.  All of them are counted.
+	 */
+	static class ExceptionReport
+	{
+		private volatile long count;			// all exceptions (written by one thread)
+		private long suppressed;				// ... since the last one printed
+		private long lastPrintNanos;
+		private boolean printed = false;
+
+		long getCount() { return count; }
+
+		// returns true if the stack trace was printed
+		boolean report(String _where, RuntimeException _e, long _nowNanos)
+		{
+			count++;
+			if (printed && _nowNanos - lastPrintNanos < (long)(FlightRecorder.kTriggerHoldoff * 1e9))
+			{
+				suppressed++;
+				return false;
+			}
+			System.out.println("LoopController: exception in " + _where + ": " + _e +
+					(suppressed > 0 ? " (" + suppressed + " more since the last one printed, " + count + " in all)" : ""));
+			_e.printStackTrace();
+			printed = true;
+			lastPrintNanos = _nowNanos;
+			suppressed = 0;
+			return true;
+		}
+	}
+
+	/*
+	 * A registered loop, along with its schedule and timing statistics
+	 */
+    private class LoopEntry
+    {
+    	final Loop loop;
+    	final PhasedLoop phasedLoop;	// null if loop is not a PhasedLoop
+    	final String name;
+    	final int periodTicks;		// run every periodTicks ticks
+    	final int phaseTicks;		// ... when (tick % periodTicks) == phaseTicks
+    	final double budget;
+    	final boolean critical;
+    	final Options.Degradation degradation;
+    	final TimingHistogram timing;	// overruns are counted against budget (recorded by the ticking thread, or the lane while inBackground)
+
+    	boolean due;				// runs on the current tick
+    	double duration;			// time spent in this loop during the current tick (all phases)
+
+    	// degradation state
+    	int consecutiveOverruns;
+    	int runsWithinBudget;
+    	int skipRuns;				// Degradation.SKIP: number of runs left to skip
+    	int decimation = 1;			// Degradation.DECIMATE: run 1 out of every decimation runs
+    	int decimationCount;
+    	volatile boolean inBackground;	// Degradation.BACKGROUND: run by the background lane
+    	final AtomicBoolean lanePending = new AtomicBoolean();	// waiting for (or being run by) the background lane
+    	volatile long skipped;		// runs skipped because of degradation
+    	final ExceptionReport exceptions = new ExceptionReport();	// thrown in the background lane
+
+    	// logger keys, built once so that logging doesn't build strings every cycle
+    	final String p50Key, p99Key, maxKey, overrunKey, skippedKey, stateKey, exceptionKey;
+
+    	LoopEntry(Loop _loop, String _name, int _periodTicks, int _phaseTicks, Options _options)
+    	{
+    		loop = _loop;
+    		phasedLoop = (_loop instanceof PhasedLoop) ? (PhasedLoop)_loop : null;
+    		name = _name;
+    		periodTicks = _periodTicks;
+    		phaseTicks = _phaseTicks;
+    		budget = (_options.getBudget() > 0) ? _options.getBudget() : kPeriod;
+    		critical = (_options.getCriticality() == Options.Criticality.CRITICAL);
+    		degradation = _options.getDegradation();
+    		timing = new TimingHistogram(budget);
+    		p50Key     = "Loops/" + name + "/p50Ms";
+    		p99Key     = "Loops/" + name + "/p99Ms";
+    		maxKey     = "Loops/" + name + "/maxMs";
+    		overrunKey = "Loops/" + name + "/overruns";
+    		skippedKey = "Loops/" + name + "/skipped";
+    		stateKey   = "Loops/" + name + "/state";
+    		exceptionKey = "Loops/" + name + "/exceptions";
+    	}
+
+    	void resetDegradation()
+    	{
+    		consecutiveOverruns = 0;
+    		runsWithinBudget = 0;
+    		skipRuns = 0;
+    		decimation = 1;
+    		decimationCount = 0;
+    		inBackground = false;
+    		lanePending.set(false);
+    	}
+
+    	String getState()
+    	{
+    		if (inBackground)   return "BACKGROUND";
+    		if (decimation > 1) return "DECIMATED";
+    		if (skipRuns > 0)   return "SKIPPING";
+    		return "NORMAL";
+    	}
+
+    	boolean runsOnTick(long _tick)
+    	{
+    		return (_tick % periodTicks) == phaseTicks;
+    	}
+    }
+
+    private final CrashTrackingRunnable runnable_ = new CrashTrackingRunnable()
     {
         @Override
-        public void runCrashTracked() 
+        public void runCrashTracked()
         {
-        	// lock during access to loop_ to avoid corruption from multiple threads
-            synchronized (taskRunningLock_) 
+        	// lock to avoid running loops while they are being started or stopped
+            synchronized (taskRunningLock_)
             {
-                if (running_) 
+                if (running_)
                 {
-                    double curr_time = Timer.getFPGATimestamp();
-                    for (Loop loop : loops_) 
-                    {
-                        loop.onLoop();
-                    }
-                    dt_ = curr_time - prev_time_;
-                    prev_time_ = curr_time;
+                	runTick();
                 }
             }
         }
     };
 
-    
-    public LoopController() 
+    /*
+     * Body of the DEDICATED_THREAD mode thread.
+     * Waits for each absolute deadline with parkNanos, then spins the rest of the way.
+     * If a tick runs past the next deadline, the missed deadlines are skipped.
+     * Wake-up jitter is measured with System.nanoTime(), the same clock as the deadlines.
+     * An exception thrown by a loop is logged (see ExceptionReport) and the thread keeps ticking.
+     */
+    private final CrashTrackingRunnable threadRunnable_ = new CrashTrackingRunnable()
     {
-        notifier_ = new Notifier(runnable_);
-        running_ = false;
-        loops_ = new ArrayList<>();
+        @Override
+        public void runCrashTracked()
+        {
+        	final long periodNanos = (long)(kPeriod * 1e9);
+        	final long spinNanos   = (long)(kSpinThreshold * 1e9);
+
+        	long deadline = System.nanoTime() + periodNanos;
+        	long prevWake = deadline - periodNanos;
+        	while (running_)
+        	{
+        		long remaining = deadline - System.nanoTime();
+        		while (remaining > spinNanos)
+        		{
+        			LockSupport.parkNanos(remaining - spinNanos);
+        			remaining = deadline - System.nanoTime();
+        		}
+        		while (System.nanoTime() < deadline)
+        		{
+        			// spin
+        		}
+
+        		if (!running_)
+        			break;
+
+        		long wake = System.nanoTime();
+        		wakeupJitter_.record(Math.abs(wake - prevWake - periodNanos) * 1e-9);
+        		prevWake = wake;
+
+        		try
+        		{
+        			runTick();
+        		}
+        		catch (RuntimeException e)
+        		{
+        			// don't let one bad tick stop the thread while running_ is still true
+        			tickExceptions_.report("tick " + tick_, e, System.nanoTime());
+        			FlightRecorder.triggerAll("loop exception");
+        		}
+
+        		deadline += periodNanos;
+        		long now = System.nanoTime();
+        		if (deadline < now)
+        			deadline += ((now - deadline) / periodNanos + 1) * periodNanos;
+        	}
+        }
+    };
+
+    /*
+     * Body of the read worker threads.
+     * Each read phase, the workers and the ticking thread take turns
+     * picking the next PhasedLoop to read until they have all been read.
+     */
+    private final CrashTrackingRunnable readWorkerRunnable_ = new CrashTrackingRunnable()
+    {
+        @Override
+        public void runCrashTracked()
+        {
+        	try
+        	{
+        		while (true)
+        		{
+        			readStartBarrier_.await();
+        			runReads();
+        			readEndBarrier_.await();
+        		}
+        	}
+        	catch (InterruptedException | BrokenBarrierException e)
+        	{
+        		// stopped
+        	}
+        }
+    };
+
+    /*
+     * Body of the background lane thread.
+     * Runs all phases of the loops that have been moved to the background,
+     * whenever the tick they are due on has signalled the lane.
+     * A loop that is still running when it is next due skips that run.
+     */
+    private final CrashTrackingRunnable laneRunnable_ = new CrashTrackingRunnable()
+    {
+        @Override
+        public void runCrashTracked()
+        {
+        	try
+        	{
+        		while (true)
+        		{
+        			laneSignal_.acquire();
+        			laneSignal_.drainPermits();
+        			for (LoopEntry entry : loops_)
+        				if (entry.lanePending.get())
+        					runInLane(entry);
+        		}
+        	}
+        	catch (InterruptedException e)
+        	{
+        		// stopped
+        	}
+        }
+    };
+
+    private void runInLane(LoopEntry entry)
+    {
+    	double start = clock_.getTime();
+    	try
+    	{
+    		if (entry.phasedLoop != null)
+    			entry.phasedLoop.onRead();
+    		entry.loop.onLoop();
+    		if (entry.phasedLoop != null)
+    			entry.phasedLoop.onWrite();
+    	}
+    	catch (RuntimeException e)
+    	{
+    		// a non-critical loop should not take down the lane (or write a crash dump, or a stack trace, every run)
+    		entry.exceptions.report(entry.name, e, System.nanoTime());
+    		FlightRecorder.triggerAll("loop exception");
+    	}
+    	double duration = clock_.getTime() - start;
+    	entry.timing.record(duration);
+
+    	if (duration <= entry.budget)
+    	{
+    		if (++entry.runsWithinBudget >= kRecoveryRuns)
+    		{
+    			entry.runsWithinBudget = 0;
+    			entry.consecutiveOverruns = 0;
+    			entry.inBackground = false;		// back to the ticking thread, starting on its next due tick
+    			degradationLog_.record(clock_.getTime(), entry.name, LoopDegradationLog.Action.RESTORE, duration);
+    		}
+    	}
+    	else
+    	{
+    		entry.runsWithinBudget = 0;
+    	}
+    	entry.lanePending.set(false);
+    }
+
+    // returns false if a degraded loop should not be run by the ticking thread on this (due) tick
+    private boolean admit(LoopEntry entry)
+    {
+    	if (entry.inBackground)
+    	{
+    		if (entry.lanePending.compareAndSet(false, true))
+    			laneSignal_.release();
+    		else
+    			entry.skipped++;		// still running from an earlier tick
+    		return false;
+    	}
+    	if (entry.skipRuns > 0)
+    	{
+    		entry.skipRuns--;
+    		entry.skipped++;
+    		return false;
+    	}
+    	if (entry.decimation > 1 && (entry.decimationCount++ % entry.decimation) != 0)
+    	{
+    		entry.skipped++;
+    		return false;
+    	}
+    	return true;
+    }
+
+    // called after each run of a loop on the ticking thread
+    private void checkBudget(LoopEntry entry, double now)
+    {
+    	if (entry.duration <= entry.budget)
+    	{
+    		entry.consecutiveOverruns = 0;
+    		if (entry.decimation > 1 && ++entry.runsWithinBudget >= kRecoveryRuns)
+    		{
+    			entry.runsWithinBudget = 0;
+    			entry.decimation /= 2;
+    			degradationLog_.record(now, entry.name, LoopDegradationLog.Action.RESTORE, entry.duration);
+    		}
+    		return;
+    	}
+
+    	entry.consecutiveOverruns++;
+    	entry.runsWithinBudget = 0;
+    	if (entry.critical)
+    	{
+    		degradationLog_.record(now, entry.name, LoopDegradationLog.Action.OVERRUN, entry.duration);
+    		FlightRecorder.triggerAll("overrun");
+    		return;
+    	}
+
+    	switch (entry.degradation)
+    	{
+    	case SKIP:
+    		// back off: 1, 2, 4, ... runs for repeated overruns
+    		entry.skipRuns = Math.min(1 << Math.min(entry.consecutiveOverruns - 1, 30), kMaxSkipRuns);
+    		degradationLog_.record(now, entry.name, LoopDegradationLog.Action.SKIP, entry.duration);
+    		break;
+
+    	case DECIMATE:
+    		if (entry.decimation < kMaxDecimation)
+    		{
+    			entry.decimation *= 2;
+    			entry.decimationCount = 1;
+    		}
+    		degradationLog_.record(now, entry.name, LoopDegradationLog.Action.DECIMATE, entry.duration);
+    		break;
+
+    	case BACKGROUND:
+    		if (lane_ != null)
+    		{
+    			entry.inBackground = true;
+    			degradationLog_.record(now, entry.name, LoopDegradationLog.Action.BACKGROUND, entry.duration);
+    		}
+    		break;
+    	}
+    }
+
+    private void runReads()
+    {
+    	int k;
+    	while ((k = nextRead_.getAndIncrement()) < numDueReads_)
+    	{
+    		LoopEntry entry = dueReads_[k];
+    		double start = clock_.getTime();
+    		try
+    		{
+    			entry.phasedLoop.onRead();
+    		}
+    		catch (Throwable t)
+    		{
+    			// rethrown by the ticking thread after the read phase
+    			readFailure_ = t;
+    		}
+    		entry.duration = clock_.getTime() - start;
+    	}
     }
 
-    public synchronized void register(Loop loop) 
+    // run all loops due on this tick (called from the Notifier or the dedicated thread)
+    private void runTick()
     {
-    	// lock during access to loop_ to avoid corruption from multiple threads
-        synchronized (taskRunningLock_) 
+        double curr_time = clock_.getTime();
+        LoopEntry[] loops = loops_;
+
+        //------------------------------------------
+        // Read phase (concurrent)
+        //------------------------------------------
+        if (dueReads_.length < loops.length)
+        	dueReads_ = new LoopEntry[loops.length];	// only after register()
+
+        numDueReads_ = 0;
+        for (LoopEntry entry : loops)
+        {
+        	entry.due = entry.runsOnTick(tick_) && admit(entry);
+        	entry.duration = 0;
+        	if (entry.due && entry.phasedLoop != null)
+        		dueReads_[numDueReads_++] = entry;
+        }
+        nextRead_.set(0);
+
+        if (numDueReads_ > 1 && readWorkers_.length > 0)
+        {
+        	try
+        	{
+        		readStartBarrier_.await();
+        		runReads();
+        		readEndBarrier_.await();
+        	}
+        	catch (InterruptedException | BrokenBarrierException e)
+        	{
+        		throw new IllegalStateException("LoopController read phase interrupted", e);
+        	}
+        }
+        else
+        {
+        	runReads();
+        }
+
+        if (readFailure_ != null)
+        {
+        	Throwable t = readFailure_;
+        	readFailure_ = null;
+        	if (t instanceof Error)
+        		throw (Error)t;
+        	throw (RuntimeException)t;
+        }
+
+        //------------------------------------------
+        // Compute phase
+        //------------------------------------------
+        double loop_start = clock_.getTime();
+        for (LoopEntry entry : loops)
         {
-            loops_.add(loop);
+        	if (!entry.due)
+        		continue;
+
+            entry.loop.onLoop();
+
+            double loop_end = clock_.getTime();
+            entry.duration += loop_end - loop_start;
+            loop_start = loop_end;
+        }
+
+        //------------------------------------------
+        // Write phase
+        //------------------------------------------
+        for (LoopEntry entry : loops)
+        {
+        	if (!entry.due)
+        		continue;
+
+        	if (entry.phasedLoop != null)
+        	{
+        		entry.phasedLoop.onWrite();
+
+        		double loop_end = clock_.getTime();
+        		entry.duration += loop_end - loop_start;
+        		loop_start = loop_end;
+        	}
+            entry.timing.record(entry.duration);
+            checkBudget(entry, loop_start);
         }
+
+        tickTiming_.record(loop_start - curr_time);
+        tick_++;
+
+        dt_ = curr_time - prev_time_;
+        prev_time_ = curr_time;
+        if (mode_ == ExecutionMode.NOTIFIER)
+        	wakeupJitter_.record(Math.abs(dt_ - kPeriod));	// (the dedicated thread measures its own, with nanoTime)
+    }
+
+
+    public LoopController()
+    {
+    	this(Constants.kLoopDt);
     }
 
-    public synchronized void start() 
+    // _period is the notifier period, and must be the shortest period of any registered loop
+    public LoopController(double _period)
     {
-        if (!running_) 
+    	this(Clock.getDefault(), _period);
+    }
+
+    public LoopController(Clock _clock, double _period)
+    {
+    	kPeriod = _period;
+    	clock_ = _clock;
+    	tickTiming_   = new TimingHistogram(kPeriod);
+    	wakeupJitter_ = new TimingHistogram(kPeriod);
+        notifier_ = clock_.createPeriodic(runnable_);
+        running_ = false;
+        loops_ = new LoopEntry[0];
+    }
+
+    // select how the loops are run.  must be called before start()
+    public synchronized void setExecutionMode(ExecutionMode _mode)
+    {
+    	if (running_)
+    		System.out.println("LoopController: cannot change execution mode while running");
+    	else
+    		mode_ = _mode;
+    }
+
+    public ExecutionMode getExecutionMode() { return mode_; }
+
+    // set the number of threads (in addition to the ticking thread) used to run onRead().  must be called before start()
+    public synchronized void setReadWorkers(int _numWorkers)
+    {
+    	if (running_)
+    		System.out.println("LoopController: cannot change read workers while running");
+    	else
+    		numReadWorkers_ = Math.max(_numWorkers, 0);
+    }
+
+    private void startReadWorkers()
+    {
+    	int numPhasedLoops = 0;
+    	for (LoopEntry entry : loops_)
+    		if (entry.phasedLoop != null)
+    			numPhasedLoops++;
+
+    	// no point in having more workers than reads to share with the ticking thread
+    	int numWorkers = Math.min(numReadWorkers_, numPhasedLoops - 1);
+    	if (numWorkers <= 0)
+    	{
+    		readWorkers_ = new Thread[0];
+    		return;
+    	}
+
+    	readStartBarrier_ = new CyclicBarrier(numWorkers + 1);
+    	readEndBarrier_   = new CyclicBarrier(numWorkers + 1);
+    	readWorkers_ = new Thread[numWorkers];
+    	for (int k = 0; k < numWorkers; k++)
+    	{
+    		readWorkers_[k] = new Thread(readWorkerRunnable_, "LoopController read " + k);
+    		readWorkers_[k].setPriority(Thread.MAX_PRIORITY);
+    		readWorkers_[k].setDaemon(true);
+    		readWorkers_[k].start();
+    	}
+    }
+
+    private void stopReadWorkers()
+    {
+    	for (Thread worker : readWorkers_)
+    		worker.interrupt();
+    	for (Thread worker : readWorkers_)
+    	{
+    		try
+    		{
+    			worker.join();
+    		}
+    		catch (InterruptedException e)
+    		{
+    			e.printStackTrace();
+    		}
+    	}
+    	readWorkers_ = new Thread[0];
+    }
+
+    private void startLane()
+    {
+    	lane_ = null;
+    	for (LoopEntry entry : loops_)
+    	{
+    		if (!entry.critical && entry.degradation == Options.Degradation.BACKGROUND)
+    		{
+    			laneSignal_.drainPermits();
+    			lane_ = new Thread(laneRunnable_, "LoopController background");
+    			lane_.setDaemon(true);
+    			lane_.start();
+    			return;
+    		}
+    	}
+    }
+
+    private void stopLane()
+    {
+    	if (lane_ == null)
+    		return;
+    	lane_.interrupt();
+    	try
+    	{
+    		lane_.join(100);	// don't wait forever on a stalled loop (that is why it is in the background)
+    	}
+    	catch (InterruptedException e)
+    	{
+    		e.printStackTrace();
+    	}
+    	lane_ = null;
+    }
+
+    public synchronized void register(Loop loop)
+    {
+    	register(loop, getDefaultName(loop));
+    }
+
+    public synchronized void register(Loop loop, String name)
+    {
+    	register(loop, name, new Options(kPeriod, 0));
+    }
+
+    public synchronized void register(Loop loop, Options options)
+    {
+    	register(loop, getDefaultName(loop), options);
+    }
+
+    public synchronized void register(Loop loop, String name, Options options)
+    {
+    	// loops_ is never modified in place, so the running loops don't need to lock it.
+    	// (register() is synchronized, so only one thread builds the new array at a time)
+    	int periodTicks = (int)Math.round(options.getPeriod() / kPeriod);
+    	if (periodTicks < 1)
+    		periodTicks = 1;
+    	if (Math.abs(periodTicks * kPeriod - options.getPeriod()) > 1e-6)
+    		System.out.printf("LoopController: %s period %.4f is not a multiple of %.4f, using %.4f\n", name, options.getPeriod(), kPeriod, periodTicks * kPeriod);
+
+    	int phaseTicks;
+    	if (options.getPhaseOffset() < 0)
+    		phaseTicks = getLeastLoadedPhase(periodTicks);
+    	else
+    		phaseTicks = (int)Math.round(options.getPhaseOffset() / kPeriod) % periodTicks;
+
+        LoopEntry[] newLoops = Arrays.copyOf(loops_, loops_.length + 1);
+        newLoops[newLoops.length - 1] = new LoopEntry(loop, name, periodTicks, phaseTicks, options);
+        loops_ = newLoops;
+    }
+
+    /*
+     * Pick the phase for a new loop that minimizes the number of loops
+     * run on the busiest tick that the new loop would run on.
+     * Ticks are checked over the hyperperiod (LCM of all loop periods).
+     */
+    private int getLeastLoadedPhase(int _periodTicks)
+    {
+    	long hyperperiod = _periodTicks;
+    	for (LoopEntry entry : loops_)
+    		hyperperiod = lcm(hyperperiod, entry.periodTicks);
+
+    	int bestPhase = 0;
+    	int bestLoad = Integer.MAX_VALUE;
+    	for (int phase = 0; phase < _periodTicks; phase++)
+    	{
+    		int maxLoad = 0;
+    		for (long tick = phase; tick < hyperperiod; tick += _periodTicks)
+    		{
+    			int load = 0;
+    			for (LoopEntry entry : loops_)
+    				if (entry.runsOnTick(tick))
+    					load++;
+    			maxLoad = Math.max(maxLoad, load);
+    		}
+
+    		if (maxLoad < bestLoad)
+    		{
+    			bestLoad = maxLoad;
+    			bestPhase = phase;
+    		}
+    	}
+    	return bestPhase;
+    }
+
+    private static long lcm(long a, long b)
+    {
+    	long x = a, y = b;
+    	while (y != 0)
+    	{
+    		long t = x % y;
+    		x = y;
+    		y = t;
+    	}
+    	return a / x * b;
+    }
+
+    public synchronized void start()
+    {
+        if (!running_)
         {
             System.out.println("Starting loops");
-        	// lock during access to loop_ to avoid corruption from multiple threads
-            synchronized (taskRunningLock_) 
+        	// lock to avoid running loops while they are being started
+            synchronized (taskRunningLock_)
             {
-                prev_time_ = Timer.getFPGATimestamp();
-                for (Loop loop : loops_) 
+                prev_time_ = clock_.getTime();
+                tick_ = 0;
+                startReadWorkers();
+                startLane();
+                for (LoopEntry entry : loops_)
                 {
-//                    System.out.println("Starting " + loop);
-                    loop.onStart();
+                    entry.resetDegradation();
+//                    System.out.println("Starting " + entry.name);
+                    entry.loop.onStart();
                 }
                 running_ = true;
             }
-            notifier_.startPeriodic(kPeriod);
+
+            if (mode_ == ExecutionMode.DEDICATED_THREAD)
+            {
+            	thread_ = new Thread(threadRunnable_, "LoopController");
+            	thread_.setPriority(Thread.MAX_PRIORITY);
+            	thread_.setDaemon(true);
+            	thread_.start();
+            }
+            else
+            {
+            	notifier_.startPeriodic(kPeriod);
+            }
         }
     }
 
-    public synchronized void stop() 
+    public synchronized void stop()
     {
-        if (running_) 
+        if (running_)
         {
             System.out.println("Stopping loops");
-            notifier_.stop();
-        	// lock during access to loop_ to avoid corruption from multiple threads
-            synchronized (taskRunningLock_) 
+            if (mode_ == ExecutionMode.DEDICATED_THREAD)
+            {
+            	running_ = false;
+            	try
+            	{
+            		thread_.join();		// wait for the last tick to finish before calling onStop()
+            	}
+            	catch (InterruptedException e)
+            	{
+            		e.printStackTrace();
+            	}
+            	thread_ = null;
+            }
+            else
+            {
+            	notifier_.stop();
+            }
+        	// lock to avoid running loops while they are being stopped
+            synchronized (taskRunningLock_)
             {
                 running_ = false;
-                for (Loop loop : loops_) 
+                stopReadWorkers();
+                stopLane();
+                for (LoopEntry entry : loops_)
                 {
-//                    System.out.println("Stopping " + loop);
-                    loop.onStop();
+//                    System.out.println("Stopping " + entry.name);
+                    entry.loop.onStop();
                 }
             }
         }
     }
 
+
+    /*
+     * Timing statistics
+     */
+
+    // returns the timing histogram for a registered loop, or null if the loop is not registered
+    public TimingHistogram getLoopTiming(Loop loop)
+    {
+    	for (LoopEntry entry : loops_)
+    		if (entry.loop == loop)
+    			return entry.timing;
+        return null;
+    }
+
+    public TimingHistogram getTickTiming()   { return tickTiming_; }
+    public TimingHistogram getWakeupJitter() { return wakeupJitter_; }
+    public LoopDegradationLog getDegradationLog() { return degradationLog_; }
+
+    public void resetTiming()
+    {
+    	for (LoopEntry entry : loops_)
+    		entry.timing.reset();
+    	tickTiming_.reset();
+    	wakeupJitter_.reset();
+    	degradationLog_.clear();
+    }
+
+    public void printTiming()
+    {
+    	for (LoopEntry entry : loops_)
+    		System.out.printf("%s (%.0f Hz, phase %d, %s, skipped %d): %s\n", entry.name, 1.0 / (entry.periodTicks * kPeriod), entry.phaseTicks, entry.getState(), entry.skipped, entry.timing);
+		System.out.println("Tick: " + tickTiming_);
+		System.out.println("Jitter (" + mode_ + "): " + wakeupJitter_);
+		degradationLog_.print();
+    }
+
+    private static String getDefaultName(Loop loop)
+    {
+    	String name = loop.getClass().getSimpleName();
+    	if (name.isEmpty())
+    	{
+    		// anonymous loops (e.g. Drive's velocityControlLoop) are named after the enclosing class
+    		name = loop.getClass().getName();
+    		name = name.substring(name.lastIndexOf('.') + 1);
+    	}
+    	return name;
+    }
+
+
+
+	private final DataLogger logger = new DataLogger()
+    {
+        @Override
+        public void log()
+        {
+        	for (LoopEntry entry : loops_)
+        	{
+        		put(entry.p50Key,     entry.timing.getMedian() * 1000 );
+        		put(entry.p99Key,     entry.timing.getP99() * 1000 );
+        		put(entry.maxKey,     entry.timing.getMax() * 1000 );
+        		put(entry.overrunKey, (int)entry.timing.getOverruns() );
+        		put(entry.skippedKey, (int)entry.skipped );
+        		put(entry.stateKey,   entry.getState() );
+        		put(entry.exceptionKey, (int)entry.exceptions.getCount() );
+        	}
+    		put("Loops/Tick/p50Ms",      tickTiming_.getMedian() * 1000 );
+    		put("Loops/Tick/p99Ms",      tickTiming_.getP99() * 1000 );
+    		put("Loops/Tick/maxMs",      tickTiming_.getMax() * 1000 );
+    		put("Loops/Tick/overruns",   (int)tickTiming_.getOverruns() );
+    		put("Loops/Jitter/p50Ms",    wakeupJitter_.getMedian() * 1000 );
+    		put("Loops/Jitter/p99Ms",    wakeupJitter_.getP99() * 1000 );
+    		put("Loops/Jitter/maxMs",    wakeupJitter_.getMax() * 1000 );
+    		put("Loops/Degradations",    (int)degradationLog_.getCount() );
+    		put("Loops/Tick/exceptions", (int)tickExceptions_.getCount() );
+        }
+    };
+
+    public DataLogger getLogger() { return logger; }
+
 }
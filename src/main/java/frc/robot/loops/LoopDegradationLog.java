@@ -0,0 +1,78 @@
+package frc.robot.loops;
+
+/**
+ * Records what the LoopController did when a loop ran over its time budget.
+ *
+ * Events are kept in a fixed-size ring (allocated in the constructor), so
+ * recording an event from the loop thread does not allocate.  The oldest
+ * events are overwritten once the ring is full, but the per-action counts
+ * keep counting.
+ */
+public class LoopDegradationLog
+{
+	public enum Action
+	{
+		OVERRUN,		// a critical loop ran over its budget (it is never degraded)
+		SKIP,			// the next runs of the loop will be skipped
+		DECIMATE,		// the loop will run at a lower rate
+		BACKGROUND,		// the loop was moved to the background lane
+		RESTORE			// the loop is back within budget and is returned to normal (or a less decimated) rate
+	}
+
+	public static final int kDefaultCapacity = 256;
+
+	private final double[] times;
+	private final String[] names;
+	private final Action[] actions;
+	private final double[] durations;
+	private final long[] actionCounts = new long[Action.values().length];
+	private long count;
+
+	public LoopDegradationLog()
+	{
+		this(kDefaultCapacity);
+	}
+
+	public LoopDegradationLog(int _capacity)
+	{
+		times     = new double[_capacity];
+		names     = new String[_capacity];
+		actions   = new Action[_capacity];
+		durations = new double[_capacity];
+	}
+
+	public synchronized void record(double _time, String _name, Action _action, double _duration)
+	{
+		int k = (int)(count % times.length);
+		times[k]     = _time;
+		names[k]     = _name;
+		actions[k]   = _action;
+		durations[k] = _duration;
+		count++;
+		actionCounts[_action.ordinal()]++;
+	}
+
+	public synchronized long getCount()                { return count; }
+	public synchronized long getCount(Action _action)  { return actionCounts[_action.ordinal()]; }
+
+	public synchronized void clear()
+	{
+		count = 0;
+		for (int k = 0; k < actionCounts.length; k++)
+			actionCounts[k] = 0;
+	}
+
+	// print the events still in the ring, oldest first
+	public synchronized void print()
+	{
+		long first = Math.max(0, count - times.length);
+		for (long n = first; n < count; n++)
+		{
+			int k = (int)(n % times.length);
+			System.out.printf("%8.3f  %-24s %-10s %6.3f ms\n", times[k], names[k], actions[k], durations[k] * 1000);
+		}
+		for (Action action : Action.values())
+			System.out.printf("%s: %d  ", action, actionCounts[action.ordinal()]);
+		System.out.println();
+	}
+}
@@ -0,0 +1,191 @@
+package frc.robot.loops;
+
+import frc.robot.command_status.RobotState;
+import frc.robot.lib.util.Clock;
+import frc.robot.lib.util.DataLogger;
+
+/**
+ * Integrates odometry on its own periodic task (a Notifier thread on the
+ * robot), at the rate the sensors produce data, instead of once per
+ * LoopController tick.  Neither thread waits for the other: the control loop
+ * only reads poses from RobotState, which never blocks the writer.
+ *
+ * The Talons only send new encoder values once per status frame (10 ms, set
+ * in DriveLoop), so most reads faster than that return the same frame again.
+ * Those are skipped: integrating a repeated frame and then a double-length
+ * step puts the encoder distance and gyro heading out of step.  But once the
+ * encoders haven't changed for longer than kMaxRepeatTime (a frame, plus
+ * margin for a late one), the wheels aren't turning, and the repeated frame is
+ * published anyway, so that the gyro heading (a robot turned or pushed in
+ * place, or a gyro settling) and RobotState.getLatestTime() keep up.  Reading at
+ * twice the frame rate means a new frame is seen on average a quarter frame
+ * after it arrives, rather than half a frame (or more, behind the control
+ * loop's other work).
+ *
+ * Each sample is timestamped with the time it was measured rather than the
+ * time it was read: encoder values are encoderLatency old when first seen
+ * (on average half a sample period), the gyro gyroLatency.  Encoder
+ * distances are integrated (Kinematics.integrateForwardKinematics(), in
+ * RobotState.generateOdometryFromSensors()) with the gyro heading
+ * interpolated to the encoder sample time, and the pose is published to
+ * RobotState at that time.  So the pose lags the robot by the sensor
+ * latency, not by where in the control loop it happens to be computed.
+ *
+ * Example:
+ *   OdometryEngine odometry = new OdometryEngine(DriveLoop.getInstance().getOdometrySensors());
+ *   odometry.start();
+ */
+public class OdometryEngine
+{
+	/**
+	 * Source of raw sensor values, read from the odometry thread (so must not depend on the control loop)
+	 */
+	public interface Sensors
+	{
+		public double getLeftDistanceInches();
+		public double getRightDistanceInches();
+		public double getLeftSpeedInchesPerSec();
+		public double getRightSpeedInchesPerSec();
+		public double getHeading();		// radians
+	}
+
+	/**
+	 * Sample rate and sensor latencies
+	 */
+	public static class Options
+	{
+		public final double period;				// seconds between samples
+		public final double encoderLatency;		// age of encoder values when read (seconds)
+		public final double gyroLatency;		// age of gyro values when read (seconds)
+
+		public Options(double _period, double _encoderLatency, double _gyroLatency)
+		{
+			period = _period;
+			encoderLatency = _encoderLatency;
+			gyroLatency = _gyroLatency;
+		}
+	}
+
+	public static final double kStatusFramePeriod = 0.010;			// Talon feedback status frame period (set in DriveLoop)
+	public static final double kMaxRepeatTime = 1.5 * kStatusFramePeriod;	// publish a repeated frame once the encoders have been still this long
+	public static final double kDefaultPeriod = kStatusFramePeriod / 2;	// 200 Hz: twice the Talon feedback status frame rate
+	public static final double kDefaultEncoderLatency = kDefaultPeriod / 2;		// a new frame arrives, on average, half a sample period before it is read
+	public static final double kDefaultGyroLatency = 0.0;
+	public static final Options kDefaultOptions = new Options(kDefaultPeriod, kDefaultEncoderLatency, kDefaultGyroLatency);
+
+	private final Sensors sensors;
+	private final Options options;
+	private final RobotState robotState;
+	private final Clock clock;
+	private final Clock.PeriodicTask task;
+	private volatile boolean running = false;
+
+	// written by the odometry thread only
+	private double prevGyroTime = Double.NaN;
+	private double prevGyroHeading;
+	private double lastPublishedTime = Double.NEGATIVE_INFINITY;
+	private double prevLDistance = Double.NaN, prevRDistance, prevLSpeed, prevRSpeed;
+	private volatile long updates = 0;
+	private volatile double lag = 0;		// read time - time of the pose published (seconds)
+
+	public OdometryEngine(Sensors _sensors)
+	{
+		this(_sensors, kDefaultOptions, Clock.getDefault());
+	}
+
+	public OdometryEngine(Sensors _sensors, Options _options, Clock _clock)
+	{
+		sensors = _sensors;
+		options = _options;
+		clock = _clock;
+		robotState = RobotState.getInstance();
+		task = clock.createPeriodic(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (running)
+					update();
+			}
+		});
+	}
+
+	public synchronized void start()
+	{
+		if (running)
+			return;
+		prevGyroTime = Double.NaN;
+		prevLDistance = Double.NaN;
+		robotState.setPrevEncoderDistance(sensors.getLeftDistanceInches(), sensors.getRightDistanceInches());
+		running = true;
+		task.startPeriodic(options.period);
+	}
+
+	public synchronized void stop()
+	{
+		running = false;
+		task.stop();
+	}
+
+	public boolean isRunning() { return running; }
+	public long    getUpdates() { return updates; }
+	public double  getLag()     { return lag; }
+
+	// one sample: read the sensors and publish the pose
+	void update()
+	{
+		double readTime = clock.getTime();
+		double heading = sensors.getHeading();
+		double lDistance = sensors.getLeftDistanceInches();
+		double rDistance = sensors.getRightDistanceInches();
+		double lSpeed = sensors.getLeftSpeedInchesPerSec();
+		double rSpeed = sensors.getRightSpeedInchesPerSec();
+
+		// heading at the time the encoder values were measured:
+		// interpolated between the last two gyro samples (or the nearest one)
+		double gyroTime = readTime - options.gyroLatency;
+		double encoderTime = readTime - options.encoderLatency;
+		double encoderHeading = heading;
+		if (!Double.isNaN(prevGyroTime) && encoderTime < gyroTime)
+		{
+			double u = (encoderTime - prevGyroTime) / (gyroTime - prevGyroTime);
+			u = Math.max(0, Math.min(u, 1));
+			encoderHeading = prevGyroHeading + u * (heading - prevGyroHeading);
+		}
+		prevGyroTime = gyroTime;
+		prevGyroHeading = heading;
+
+		// the same status frame as last time: nothing new to integrate (unless the wheels have stopped)
+		boolean repeated = (lDistance == prevLDistance && rDistance == prevRDistance && lSpeed == prevLSpeed && rSpeed == prevRSpeed);
+		if (repeated && encoderTime - lastPublishedTime <= kMaxRepeatTime)
+			return;
+		prevLDistance = lDistance;
+		prevRDistance = rDistance;
+		prevLSpeed = lSpeed;
+		prevRSpeed = rSpeed;
+
+		if (encoderTime <= lastPublishedTime)
+			return;		// (only if the clock or the latencies jump)
+		robotState.generateOdometryFromSensors(encoderTime, lDistance, rDistance, lSpeed, rSpeed, encoderHeading);
+		lastPublishedTime = encoderTime;
+		lag = readTime - encoderTime;
+		updates++;
+	}
+
+
+
+	private final DataLogger logger = new DataLogger()
+	{
+		final IntChannel    updatesCh = addInt("Odometry/updates");
+		final DoubleChannel lagCh     = addDouble("Odometry/lag", "ms");
+
+		@Override
+		public void log()
+		{
+			updatesCh.set( (int)updates );
+			lagCh.set( lag * 1000.0 );
+		}
+	};
+
+	public DataLogger getLogger() { return logger; }
+}
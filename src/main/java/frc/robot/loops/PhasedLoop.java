@@ -0,0 +1,21 @@
+package frc.robot.loops;
+
+/**
+ * A Loop whose work is split into read, compute and write phases.
+ *
+ * Each LoopController tick first calls onRead() for every PhasedLoop that is
+ * due.  These calls may run concurrently on the LoopController's read worker
+ * threads, so that slow sensor reads (I2C, CAN) overlap instead of adding up.
+ * Once all reads have finished, onLoop() is called for every loop (the
+ * compute phase), and finally onWrite() is called for every PhasedLoop to
+ * send new commands to the actuators.
+ *
+ * onRead() should only read hardware and store the results; it must not
+ * depend on another loop's onRead() having run.
+ */
+public interface PhasedLoop extends Loop
+{
+    public void onRead();
+
+    public void onWrite();
+}
@@ -3,13 +3,16 @@ package frc.robot.loops;
 
 import frc.robot.command_status.DriveState;
 import frc.robot.command_status.RobotState;
-
-import edu.wpi.first.wpilibj.Timer;
+import frc.robot.lib.util.Clock;
 
 /**
  * Periodically estimates the state of the robot using the robot's distance
  * traveled (compares two waypoints), gyroscope orientation, and velocity, among
  * various other factors. Similar to a car's odometer.
+ *
+ * Robot now runs odometry in OdometryEngine, on its own thread at the encoder
+ * status frame rate, with each sample timestamped with when it was measured.
+ * Don't register both: they would each integrate the same encoder distances.
  */
 public class RobotStateLoop implements Loop 
 {
@@ -25,9 +28,11 @@ public class RobotStateLoop implements Loop
 
     RobotState robotState;
     DriveState driveState;
+    Clock clock;
     
     RobotStateLoop() 
     {
+        clock = Clock.getDefault();
         robotState = RobotState.getInstance();
         driveState = DriveState.getInstance();
     }
@@ -46,7 +51,7 @@ public class RobotStateLoop implements Loop
     	// the following DriveState elements are set during DriveLoop, called just previous to RobotStateLoop,
     	// and in the same LoopController thread
     	
-        double time      = Timer.getFPGATimestamp();
+        double time      = clock.getTime();
         double lDistance = driveState.getLeftDistanceInches();
         double rDistance = driveState.getRightDistanceInches();
         double lSpeed    = driveState.getLeftSpeedInchesPerSec();
@@ -0,0 +1,97 @@
+package frc.robot.loops;
+
+import frc.robot.Constants;
+import frc.robot.command_status.RobotState;
+import frc.robot.command_status.VisionStatus;
+import frc.robot.lib.sensors.Limelight;
+import frc.robot.lib.util.Clock;
+
+/**
+ * Reads vision targets from the Limelight, and passes them to VisionStatus
+ * and RobotState, timestamped with the time the image was captured (the
+ * current time less the latency the Limelight reports).
+ */
+public class VisionLoop implements PhasedLoop
+{
+	// singleton class
+	private static VisionLoop instance = null;
+	public static VisionLoop getInstance()
+	{
+		if (instance == null) {
+			instance = new VisionLoop();
+		}
+		return instance;
+	}
+
+	public static final double kPeriod = 0.010;		// Limelight runs at up to 90 fps
+	public static final double kBudget = 0.002;		// NetworkTables reads
+
+	Limelight limelight;
+	RobotState robotState;
+	VisionStatus visionStatus;
+	Clock clock;
+
+	// read in onRead()
+	double readTime;
+	boolean targetFound;
+	double tx, thor, latency;
+
+	// last image used, to skip results already passed on
+	double prevTx = Double.NaN, prevThor = Double.NaN, prevLatency = Double.NaN;
+
+	VisionLoop()
+	{
+		limelight = new Limelight();
+		robotState = RobotState.getInstance();
+		visionStatus = VisionStatus.getInstance();
+		clock = Clock.getDefault();
+	}
+
+	@Override
+	public void onStart()
+	{
+		// no-op
+	}
+
+	@Override
+	public void onRead()
+	{
+		readTime = clock.getTime();
+		targetFound = limelight.getIsTargetFound();
+		tx = limelight.getdegRotationToTarget();
+		thor = limelight.getTargetHorizontalLength();
+		latency = limelight.getLatencySeconds();
+	}
+
+	@Override
+	public void onLoop()
+	{
+		double normalizedTargetX = targetFound ? tx / (Constants.kCameraFOVDegrees / 2.0) : 0;
+		double normalizedTargetWidth = targetFound ? thor / Constants.kCameraImageWidthPixels : 0;
+
+		// the Limelight posts once per image: the same values again are the same image
+		if (tx == prevTx && thor == prevThor && latency == prevLatency)
+			return;
+		prevTx = tx;
+		prevThor = thor;
+		prevLatency = latency;
+
+		double imageTimestamp = readTime - latency;
+		visionStatus.setImageTimestamp(imageTimestamp);
+		visionStatus.setNormalizedTargetX(normalizedTargetX);
+		visionStatus.setNormalizedTargetWidth(normalizedTargetWidth);
+		robotState.addVisionObservation(imageTimestamp, normalizedTargetX, normalizedTargetWidth);
+	}
+
+	@Override
+	public void onWrite()
+	{
+		// no-op
+	}
+
+	@Override
+	public void onStop()
+	{
+		// no-op
+	}
+}
@@ -9,6 +9,9 @@ import frc.robot.lib.util.PIDController;
 import frc.robot.loops.DriveLoop;
 import frc.robot.loops.Loop;
 
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+
 /**
  * The robot's drivetrain, which implements the Superstructure abstract class.
  * The drivetrain has several states and builds on the abstract class by
@@ -247,18 +250,26 @@ public class Drive extends Subsystem
 	
 	private final DataLogger logger = new DataLogger()
     {
+		final EnumChannel<DriveControlMode> driveModeCh  = addEnum("Drive/DriveControlModeCmd", DriveControlMode.class, Policy.kChangeOnly);
+		final EnumChannel<ControlMode> talonModeCh   = addEnum("Drive/TalonControlModeCmd", ControlMode.class, Policy.kChangeOnly);
+		final DoubleChannel lMotorCmdCh              = addDouble("Drive/lMotorCmd");
+		final DoubleChannel rMotorCmdCh              = addDouble("Drive/rMotorCmd");
+		final EnumChannel<NeutralMode> brakeModeCh   = addEnum("Drive/BrakeModeCmd", NeutralMode.class, Policy.kChangeOnly);
+		final DoubleChannel pidErrorCh               = addDouble("VelocityHeading/PIDError");
+		final DoubleChannel pidOutputCh              = addDouble("VelocityHeading/PIDOutput");
+
         @Override
         public void log()
         {
 			try // pathFollowingController doesn't exist until started
 			{
-				put("Drive/DriveControlModeCmd", driveCmd.getDriveControlMode().toString() );
-				put("Drive/TalonControlModeCmd", driveCmd.getTalonControlMode().toString() );
-				put("Drive/lMotorCmd", driveCmd.getLeftMotor() );
-				put("Drive/rMotorCmd", driveCmd.getRightMotor() );
-				put("Drive/BrakeModeCmd", DriveCommand.getNeutralMode().toString() );
-				put("VelocityHeading/PIDError",  velocityHeadingSetpoint.velocityHeadingPID.getError() );
-				put("VelocityHeading/PIDOutput", velocityHeadingSetpoint.velocityHeadingPID.get() );
+				driveModeCh.set( driveCmd.getDriveControlMode() );
+				talonModeCh.set( driveCmd.getTalonControlMode() );
+				lMotorCmdCh.set( driveCmd.getLeftMotor() );
+				rMotorCmdCh.set( driveCmd.getRightMotor() );
+				brakeModeCh.set( DriveCommand.getNeutralMode() );
+				pidErrorCh.set( velocityHeadingSetpoint.velocityHeadingPID.getError() );
+				pidOutputCh.set( velocityHeadingSetpoint.velocityHeadingPID.get() );
 
 //				AdaptivePurePursuitController.getLogger().log();
 			} catch (NullPointerException e) {
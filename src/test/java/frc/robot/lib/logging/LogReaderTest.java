@@ -0,0 +1,130 @@
+package frc.robot.lib.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Channels are matched to columns by name, with or without the folders that
+ * CSV headers drop, but never to the wrong one of two columns that only
+ * differ by folder.
+ */
+public class LogReaderTest
+{
+	static final String[] kColumns = { "PathVision/lSpeed", "DriveState/lSpeed", "DriveState/Heading" };	// in the auto log's order: the action logger first
+	static final int kRows = 10;
+
+	@Test
+	public void binaryLogKeepsFolders() throws IOException
+	{
+		File directory = Files.createTempDirectory("LogReaderTest").toFile();
+		try
+		{
+			File file = new File(directory, "test" + BinaryLogFormat.kFileExtension);
+			write(new BinaryLogSink(file));
+			assertEquals(2.0 * (kRows - 1), readLast(file, "DriveState/lSpeed"), 0);
+			assertEquals(1.0 * (kRows - 1), readLast(file, "PathVision/lSpeed"), 0);
+			assertEquals(3.0 * (kRows - 1), readLast(file, "Heading"), 0);
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void csvLogRejectsAmbiguousChannel() throws IOException
+	{
+		File directory = Files.createTempDirectory("LogReaderTest").toFile();
+		try
+		{
+			File file = new File(directory, "test.csv");
+			write(new CsvLogSink(file));
+			for (String channel : new String[] { "DriveState/lSpeed", "PathVision/lSpeed", "lSpeed" })
+			{
+				boolean thrown = false;
+				try
+				{
+					readLast(file, channel);
+				}
+				catch (IOException e)
+				{
+					thrown = true;
+				}
+				assertTrue(channel + " should be ambiguous in a CSV log of DriveState/lSpeed and PathVision/lSpeed", thrown);
+			}
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void csvLogMatchesUniqueChannel() throws IOException
+	{
+		File directory = Files.createTempDirectory("LogReaderTest").toFile();
+		try
+		{
+			File file = new File(directory, "test.csv");
+			write(new CsvLogSink(file));
+			assertEquals(3.0 * (kRows - 1), readLast(file, "DriveState/Heading"), 0);
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+
+	// PathVision/lSpeed is k, DriveState/lSpeed is 2k and DriveState/Heading is 3k in row k
+	private void write(LogSink _sink) throws IOException
+	{
+		LogSchema schema = new LogSchema(kColumns, new byte[] { LogRecord.kDouble, LogRecord.kDouble, LogRecord.kDouble }, new String[] { "", "", "" });
+		LogRecord record = new LogRecord();
+		record.ensureCapacity(kColumns.length);
+		record.numValues = kColumns.length;
+		_sink.open();
+		_sink.writeHeader(schema);
+		for (int k = 0; k < kRows; k++)
+		{
+			record.wallMillis = 1500000000000L + 10*k;
+			record.timestampNanos = 10000000L * k;
+			record.setDouble(0, k);
+			record.setDouble(1, 2*k);
+			record.setDouble(2, 3*k);
+			_sink.writeRecord(record);
+		}
+		_sink.close();
+	}
+
+	// value of _channel in the last row of _file
+	private double readLast(File _file, String _channel) throws IOException
+	{
+		final double[] last = { Double.NaN };
+		try (LogReader reader = new LogReader(_file))
+		{
+			reader.query(0, Double.MAX_VALUE, new String[] { _channel }, new LogReader.RowHandler()
+			{
+				@Override
+				public void onRow(double _time, LogRecord _row)
+				{
+					last[0] = _row.values[0];
+				}
+			});
+		}
+		return last[0];
+	}
+
+	private void delete(File _directory)
+	{
+		for (File file : _directory.listFiles())
+			file.delete();
+		_directory.delete();
+	}
+}
@@ -0,0 +1,91 @@
+package frc.robot.lib.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * close() finishes a log file (AutoModeBase closes the auto log after each
+ * autonomous run), and the next log() must start a new one.
+ */
+public class DataLogControllerTest
+{
+	static final int kRows = 200;
+
+	@Test
+	public void csvReopensAfterClose() throws Exception          { checkReopen(DataLogController.FileFormat.CSV); }
+
+	@Test
+	public void binaryReopensAfterClose() throws Exception       { checkReopen(DataLogController.FileFormat.BINARY); }
+
+	@Test
+	public void mappedBinaryReopensAfterClose() throws Exception { checkReopen(DataLogController.FileFormat.MAPPED_BINARY); }
+
+
+	private void checkReopen(DataLogController.FileFormat _format) throws Exception
+	{
+		File previousDirectory = DataLogController.parentDirectory;
+		File directory = Files.createTempDirectory("DataLogControllerTest").toFile();
+		try
+		{
+			DataLogController.setDirectory(directory);
+			DataLogController controller = new DataLogController("test");
+			DataLogController.setDirectory(directory);		// (the constructor looks for the robot's log directory)
+			controller.setFileFormat(_format);
+
+			logRun(controller);
+			controller.close();
+			assertEquals(_format + " rows after the first run", kRows, controller.getLoggedRows());
+			assertEquals(_format + " files after the first run", 1, countLogFiles(directory));
+
+			Thread.sleep(1100);		// file names are timestamped to the second
+			logRun(controller);
+			controller.close();
+			assertEquals(_format + " rows after the second run", 2*kRows, controller.getLoggedRows());
+			assertEquals(_format + " files after the second run", 2, countLogFiles(directory));
+		}
+		finally
+		{
+			DataLogController.setDirectory(previousDirectory);
+			for (File file : directory.listFiles())
+				file.delete();
+			directory.delete();
+		}
+	}
+
+	// one autonomous run: register a logger, and log kRows rows
+	private void logRun(DataLogController _controller) throws InterruptedException
+	{
+		_controller.deregister();
+		_controller.register(new DataLogger()
+		{
+			int n = 0;
+
+			@Override
+			public void log()
+			{
+				put("Test/n", n++);
+				put("Test/x", n * 0.5);
+			}
+		});
+		_controller.setOutputMode(true, false);
+		for (int k = 0; k < kRows; k++)
+		{
+			_controller.log();
+			Thread.sleep(2);		// rows are logged at most once a millisecond
+		}
+	}
+
+	// number of log files (a MAPPED_BINARY log can be several segment files with the same timestamp)
+	private int countLogFiles(File _directory)
+	{
+		HashSet<String> timestamps = new HashSet<String>();
+		for (File file : _directory.listFiles())
+			timestamps.add(file.getName().substring(0, file.getName().indexOf('_')));
+		return timestamps.size();
+	}
+}
@@ -0,0 +1,121 @@
+package frc.robot.lib.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import frc.robot.command_status.RobotState;
+import frc.robot.lib.util.Path.Waypoint;
+import frc.robot.lib.util.PathFollower.PathVisionState;
+
+/**
+ * A PathFollower step (pathVisionDrive) runs every loop, so it must not
+ * allocate.  Counts the bytes allocated by this thread over many steps of a
+ * path with a vision-enabled segment, in each of the ways the path can be
+ * followed.  The first runs are not counted, so that class loading and JIT
+ * compilation are out of the way.  In VISION mode, a camera reports a target
+ * (through pathVisionDrive()'s arguments, which pass each new image on to
+ * RobotState), and only the steps taken in VISION state are counted.
+ *
+ * Steps that allocate are counted, rather than bytes: the JVM itself can
+ * allocate on this thread once in a while (e.g. when it recompiles), which
+ * shows up as one odd step.  Code that allocates would do it on every run.
+ * (Run with -Xint and no step allocates at all.)
+ */
+public class PathFollowerAllocationTest
+{
+	static final int kWarmupRuns   = 10;
+	static final int kCountedRuns  = 20;
+	static final int kStepsPerRun  = 2000;
+	static final int kMaxAllocatingSteps = 2;	// of kCountedRuns * kStepsPerRun
+
+	enum Mode { PATH, TRAJECTORY, VISION }
+
+	private int countedSteps = 0;
+	private int allocatingSteps = 0;
+
+	@Test
+	public void pathFollowingDoesNotAllocate()       { checkAllocatingSteps(Mode.PATH); }
+
+	@Test
+	public void trajectoryFollowingDoesNotAllocate() { checkAllocatingSteps(Mode.TRAJECTORY); }
+
+	@Test
+	public void visionDriveDoesNotAllocate()         { checkAllocatingSteps(Mode.VISION); }
+
+
+	private void checkAllocatingSteps(Mode _mode)
+	{
+		countAllocatingSteps(_mode);
+		assertTrue(_mode + ": only " + countedSteps + " steps counted", countedSteps >= kCountedRuns * kStepsPerRun / 4);
+		assertTrue(_mode + ": " + allocatingSteps + " of " + countedSteps + " steps allocated", allocatingSteps <= kMaxAllocatingSteps);
+	}
+
+	// counts the pathVisionDrive() calls after the warm-up runs, and the ones that allocated
+	private void countAllocatingSteps(Mode _mode)
+	{
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		PathSegment.Options options       = new PathSegment.Options(72, 144, 24, false);
+		PathSegment.Options visionOptions = new PathSegment.Options(72, 144, 24, true);
+		Path path = new Path();
+		path.add(new Waypoint(new Vector2d(  0,  0), options));
+		path.add(new Waypoint(new Vector2d(120,  0), options));
+		path.add(new Waypoint(new Vector2d(120, 96), visionOptions));
+		path.add(new Waypoint(new Vector2d(200, 96), options));
+		CompiledPath compiledPath = path.compile();
+		Trajectory trajectory = (_mode == Mode.TRAJECTORY) ? TrajectoryGenerator.generate(compiledPath) : null;
+
+		// the camera only sees a target in VISION mode: on the vision-enabled segment, the follower then switches to VISION
+		double targetWidth = (_mode == Mode.VISION) ? 0.1 : 0.0;
+
+		RobotState robotState = RobotState.getInstance();
+		Pose currentPose = new Pose();
+		Pose previousPose = new Pose();
+		for (int run = 0; run < kWarmupRuns + kCountedRuns; run++)
+		{
+			robotState.reset(0, 0, 0, new Pose());		// forget the last run's vision targets
+			PathFollower follower = new PathFollower(compiledPath, trajectory, PathVisionState.PATH_FOLLOWING);
+			follower.setLedControl(false);
+			follower.start();
+
+			double time = 0;
+			double imageTimestamp = 0;
+			for (int step = 0; step < kStepsPerRun; step++)
+			{
+				// drive along the path, wandering a little off it
+				time += 0.01;
+				double distance = Math.min(step * 0.5, 300);
+				previousPose.set(currentPose);
+				if (distance < 120)
+					currentPose.set(distance, 0.3 * Math.sin(step * 0.1), 0.01);
+				else
+					currentPose.set(120 + 0.2 * Math.sin(step * 0.1), Math.min(distance - 120, 96), Math.PI/2);
+
+				// a new image every 3 loops, taken 50 ms before it arrives
+				if (step % 3 == 0)
+					imageTimestamp = time - 0.05;
+
+				boolean counted = (run >= kWarmupRuns) && (_mode != Mode.VISION || follower.getPathVisionState() == PathVisionState.VISION);
+				long before = threadBean.getThreadAllocatedBytes(threadId);
+				follower.pathVisionDrive(time, currentPose, previousPose, imageTimestamp, 0.1, targetWidth);
+				long after = threadBean.getThreadAllocatedBytes(threadId);
+				if (counted)
+				{
+					countedSteps++;
+					if (after != before)
+						allocatingSteps++;
+				}
+			}
+			if (_mode == Mode.VISION)
+				assertEquals("run " + run + " state", PathVisionState.VISION, follower.getPathVisionState());
+		}
+	}
+}
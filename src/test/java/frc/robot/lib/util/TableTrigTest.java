@@ -0,0 +1,143 @@
+package frc.robot.lib.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks TableTrig against java.lang.Math: the maximum errors over a fine
+ * sweep of angles and points are within the bounds documented in TableTrig,
+ * and the odometry drift over long synthetic runs is within kMaxDrift.
+ */
+public class TableTrigTest
+{
+	static final double kMaxDrift   = 0.01;		// inches, over each run
+	static final double kRunSeconds = 600;		// 5 matches of driving without a reset
+	static final double kRunDt      = 0.005;	// OdometryEngine's default period
+
+	private final TableTrig table = TableTrig.getInstance();
+
+	@Test
+	public void sinAndCosWithinBound()
+	{
+		double sinError = 0;
+		double cosError = 0;
+		for (int k = -2000000; k <= 2000000; k++)
+		{
+			double x = k * 1.0e-5 * Math.PI + 1.0e-7;		// +/- 20*pi, off the table entries
+			sinError = Math.max(sinError, Math.abs(table.sin(x) - Math.sin(x)));
+			cosError = Math.max(cosError, Math.abs(table.cos(x) - Math.cos(x)));
+		}
+		assertTrue("sin error " + sinError, sinError <= TableTrig.kMaxSinError);
+		assertTrue("cos error " + cosError, cosError <= TableTrig.kMaxSinError);
+	}
+
+	@Test
+	public void atan2WithinBound()
+	{
+		double atanError = 0;
+		Random random = new Random(2018);
+		for (int k = 0; k < 4000000; k++)
+		{
+			double x = random.nextGaussian() * 100;
+			double y = random.nextGaussian() * 100;
+			atanError = Math.max(atanError, Math.abs(table.atan2(y, x) - Math.atan2(y, x)));
+		}
+		assertTrue("atan2 error " + atanError, atanError <= TableTrig.kMaxAtanError);
+	}
+
+	@Test
+	public void atan2SpecialCases()
+	{
+		double[] values = { 0.0, -0.0, 1.0, -1.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN };
+		for (double y : values)
+			for (double x : values)
+			{
+				double expected = Math.atan2(y, x);
+				double actual = table.atan2(y, x);
+				boolean same = (Double.isNaN(expected) ? Double.isNaN(actual) : Math.abs(actual - expected) <= TableTrig.kMaxAtanError)
+						&& (Math.copySign(1.0, actual) == Math.copySign(1.0, expected));
+				assertTrue("atan2(" + y + ", " + x + ") = " + actual + ", expected " + expected, same);
+			}
+	}
+
+	// RobotState integrates the wheel distances with Kinematics, which uses Trig.getDefault()
+	@Test
+	public void odometryDriftWithGyro()
+	{
+		for (int seed = 0; seed < 2; seed++)
+			checkDrift(seed, true);
+	}
+
+	@Test
+	public void odometryDriftWithEncoders()
+	{
+		for (int seed = 0; seed < 2; seed++)
+			checkDrift(seed, false);
+	}
+
+
+	private void checkDrift(int _seed, boolean _useGyro)
+	{
+		// wander: speeds up to full, turns up to a few rad/sec
+		int steps = (int)(kRunSeconds / kRunDt);
+		double[] dDistance = new double[steps];
+		double[] dHeading = new double[steps];
+		Random random = new Random(_seed);
+		double speed = 0;
+		double turnRate = 0;
+		for (int k = 0; k < steps; k++)
+		{
+			speed    = Util.limit(speed + random.nextGaussian() * 4, -100, 100);
+			turnRate = Util.limit(turnRate + random.nextGaussian() * 0.2, -4, 4);
+			dDistance[k] = speed * kRunDt;
+			dHeading[k] = turnRate * kRunDt;
+		}
+
+		// the same run with each Trig, one after the other
+		Trig previous = Trig.getDefault();
+		double[] mathX = new double[steps];
+		double[] mathY = new double[steps];
+		double maxDrift = 0;
+		try
+		{
+			Trig.setDefault(MathTrig.getInstance());
+			Pose pose = new Pose();
+			double heading = 0;
+			for (int k = 0; k < steps; k++)
+			{
+				heading += dHeading[k];
+				integrate(pose, dDistance[k], dHeading[k], heading, _useGyro);
+				mathX[k] = pose.getX();
+				mathY[k] = pose.getY();
+			}
+
+			Trig.setDefault(table);
+			pose = new Pose();
+			heading = 0;
+			for (int k = 0; k < steps; k++)
+			{
+				heading += dHeading[k];
+				integrate(pose, dDistance[k], dHeading[k], heading, _useGyro);
+				maxDrift = Math.max(maxDrift, Math.hypot(pose.getX() - mathX[k], pose.getY() - mathY[k]));
+			}
+		}
+		finally
+		{
+			Trig.setDefault(previous);
+		}
+
+		assertTrue(String.format("odometry drift over %.0f s (%s, seed %d): %.3g in", kRunSeconds, _useGyro ? "gyro" : "encoders", _seed, maxDrift),
+				maxDrift <= kMaxDrift);
+	}
+
+	private static void integrate(Pose _pose, double _dDistance, double _dHeading, double _heading, boolean _useGyro)
+	{
+		if (_useGyro)
+			Kinematics.integrateForwardKinematics(_pose, _dDistance, _dDistance, _heading, _pose);
+		else
+			Kinematics.travelArc(_pose, _dDistance, _dHeading, _pose);
+	}
+}
@@ -0,0 +1,51 @@
+package frc.robot.loops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import frc.robot.lib.logging.FlightRecorder;
+
+public class LoopControllerTest
+{
+	/**
+	 * A loop that throws on every run only gets its stack trace printed once per
+	 * FlightRecorder.kTriggerHoldoff, but every exception is counted.
+	 */
+	@Test
+	public void repeatedExceptionsAreRateLimited()
+	{
+		final long holdoffNanos = (long)(FlightRecorder.kTriggerHoldoff * 1e9);
+		final long periodNanos = 20000000L;		// a 50 Hz loop
+		LoopController.ExceptionReport report = new LoopController.ExceptionReport();
+		RuntimeException e = new IllegalStateException("test");
+
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		int printed = 0;
+		int runs = (int)(2.5 * holdoffNanos / periodNanos);
+		try
+		{
+			System.setOut(new PrintStream(new ByteArrayOutputStream()));
+			System.setErr(new PrintStream(new ByteArrayOutputStream()));
+			assertTrue(report.report("test", e, 0));
+			assertFalse(report.report("test", e, periodNanos));
+			for (int k = 2; k < runs; k++)
+				if (report.report("test", e, k * periodNanos))
+					printed++;
+		}
+		finally
+		{
+			System.setOut(out);
+			System.setErr(err);
+		}
+
+		assertEquals(2, printed);		// at kTriggerHoldoff and 2 * kTriggerHoldoff
+		assertEquals(runs, report.getCount());
+	}
+}
@@ -0,0 +1,81 @@
+package frc.robot.loops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import frc.robot.command_status.RobotState;
+import frc.robot.lib.util.Pose;
+import frc.robot.lib.util.VirtualClock;
+
+/**
+ * Runs an OdometryEngine on a VirtualClock, with sensors that only change
+ * their encoder values once per Talon status frame, as on the robot.
+ */
+public class OdometryEngineTest
+{
+	static final double kTurnRate = 1.0;		// rad/s
+	static final double kSpeed = 60.0;			// in/s
+
+	// encoder values held for a status frame; the gyro follows the clock
+	static class FrameSensors implements OdometryEngine.Sensors
+	{
+		final VirtualClock clock;
+		final double speed;
+		final double turnRate;
+
+		FrameSensors(VirtualClock _clock, double _speed, double _turnRate)
+		{
+			clock = _clock;
+			speed = _speed;
+			turnRate = _turnRate;
+		}
+
+		double frameTime() { return Math.floor(clock.getTime() / OdometryEngine.kStatusFramePeriod + 1e-9) * OdometryEngine.kStatusFramePeriod; }
+
+		@Override public double getLeftDistanceInches()     { return speed * frameTime(); }
+		@Override public double getRightDistanceInches()    { return speed * frameTime(); }
+		@Override public double getLeftSpeedInchesPerSec()  { return speed; }
+		@Override public double getRightSpeedInchesPerSec() { return speed; }
+		@Override public double getHeading()                { return turnRate * clock.getTime(); }
+	}
+
+	@Test
+	public void headingFollowsGyroWhileWheelsAreStill()
+	{
+		VirtualClock clock = new VirtualClock();
+		RobotState robotState = RobotState.getInstance();
+		robotState.reset(0, 0, 0, new Pose());
+		OdometryEngine odometry = new OdometryEngine(new FrameSensors(clock, 0, kTurnRate), OdometryEngine.kDefaultOptions, clock);
+		odometry.start();
+
+		for (int k = 0; k < 10; k++)
+		{
+			clock.advance(0.1);
+			double measuredTime = clock.getTime() - OdometryEngine.kDefaultEncoderLatency;
+			double latestTime = robotState.getLatestTime();
+			assertTrue("latest time " + latestTime + " at " + clock.getTime(), measuredTime - latestTime <= OdometryEngine.kMaxRepeatTime + OdometryEngine.kDefaultPeriod);
+			assertEquals("heading at " + clock.getTime(), kTurnRate * latestTime, robotState.getLatestFieldToVehicle().getHeading(), 1e-6);
+		}
+		odometry.stop();
+	}
+
+	@Test
+	public void repeatedFramesAreSkippedWhileDriving()
+	{
+		VirtualClock clock = new VirtualClock();
+		RobotState robotState = RobotState.getInstance();
+		robotState.reset(0, 0, 0, new Pose());
+		OdometryEngine odometry = new OdometryEngine(new FrameSensors(clock, kSpeed, 0), OdometryEngine.kDefaultOptions, clock);
+		odometry.start();
+
+		clock.advance(1.0);
+		odometry.stop();
+
+		// one update per status frame, not one per read
+		long frames = Math.round(1.0 / OdometryEngine.kStatusFramePeriod);
+		assertEquals(frames, odometry.getUpdates(), 1);
+		assertEquals(kSpeed * 1.0, robotState.getLatestFieldToVehicle().getX(), kSpeed * OdometryEngine.kStatusFramePeriod);
+	}
+}